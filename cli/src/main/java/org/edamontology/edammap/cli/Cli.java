@@ -23,9 +23,12 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -48,9 +51,11 @@ import org.edamontology.edammap.core.mapping.Mapper;
 import org.edamontology.edammap.core.mapping.Mapping;
 import org.edamontology.edammap.core.output.Output;
 import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.processing.ConceptIndex;
 import org.edamontology.edammap.core.processing.ConceptProcessed;
 import org.edamontology.edammap.core.processing.Processor;
 import org.edamontology.edammap.core.processing.QueryProcessed;
+import org.edamontology.edammap.core.processing.TokenDictionary;
 import org.edamontology.edammap.core.query.Query;
 import org.edamontology.edammap.core.query.QueryLoader;
 
@@ -74,7 +79,7 @@ public class Cli implements Runnable {
 
 	private static CliArgs args;
 
-	private static List<String> stopwords;
+	private static Set<String> stopwords;
 
 	private static Set<EdamUri> edamBlacklist;
 
@@ -82,8 +87,12 @@ public class Cli implements Runnable {
 
 	private static Idf idf;
 
+	private static TokenDictionary tokenDictionary;
+
 	private static Map<EdamUri, ConceptProcessed> processedConcepts;
 
+	private static ConceptIndex conceptIndex;
+
 	private static List<Query> queries;
 
 	private static List<List<Webpage>> webpages;
@@ -100,7 +109,7 @@ public class Cli implements Runnable {
 		}
 		try {
 			PreProcessor pp = new PreProcessor(args.getCoreArgs().getPreProcessorArgs(), stopwords);
-			Mapper mapper = new Mapper(processedConcepts, edamBlacklist);
+			Mapper mapper = new Mapper(processedConcepts, edamBlacklist, conceptIndex);
 
 			while (true) {
 				Query query;
@@ -119,7 +128,7 @@ public class Cli implements Runnable {
 					System.err.print("Map " + PubFetcher.progress(localIndex + 1, queries.size(), start) + "  \r");
 				}
 
-				QueryProcessed processedQuery = processor.getProcessedQuery(query, args.getType(), pp, idf, args.getCoreArgs().getFetcherArgs(), null);
+				QueryProcessed processedQuery = processor.getProcessedQuery(query, args.getType(), pp, idf, args.getCoreArgs().getFetcherArgs(), null, tokenDictionary);
 
 				Mapping mapping = mapper.map(query, processedQuery, args.getCoreArgs().getMapperArgs());
 
@@ -130,6 +139,11 @@ public class Cli implements Runnable {
 					mappings.set(localIndex, mapping);
 				}
 			}
+
+			if (mapper.getTokenPairMemoLookups() > 0) {
+				logger.info("Token pair memo hits {} of {} ({}%)", mapper.getTokenPairMemoHits(), mapper.getTokenPairMemoLookups(),
+					String.format(Locale.ROOT, "%.1f", mapper.getTokenPairMemoHits() * 100.0 / mapper.getTokenPairMemoLookups()));
+			}
 		} finally {
 			synchronized (lock) {
 				--numThreads;
@@ -162,7 +176,7 @@ public class Cli implements Runnable {
 
 		Output output = new Output(args.getOutput(), args.getReport(), args.getJson(), args.getBiotools(), args.getType(), false);
 
-		stopwords = PreProcessor.getStopwords(args.getCoreArgs().getPreProcessorArgs().getStopwords());
+		stopwords = new HashSet<>(PreProcessor.getStopwords(args.getCoreArgs().getPreProcessorArgs().getStopwords()));
 
 		edamBlacklist = Edam.getBlacklist();
 
@@ -182,11 +196,20 @@ public class Cli implements Runnable {
 		}
 
 		logger.info("Loading concepts from {}", args.getEdam());
-		Map<EdamUri, Concept> concepts = Edam.load(args.getEdam());
+		Map<EdamUri, Concept> concepts = Edam.load(args.getEdam(), args.getEdamLoader());
 
 		logger.info("Processing {} concepts", concepts.size());
-		processedConcepts = processor.getProcessedConcepts(concepts, args.getCoreArgs().getMapperArgs().getIdfArgs(), args.getCoreArgs().getMapperArgs().getMultiplierArgs(),
-			new PreProcessor(args.getCoreArgs().getPreProcessorArgs(), stopwords));
+		tokenDictionary = new TokenDictionary();
+		ForkJoinPool conceptsPool = (args.getThreads() > 1 ? new ForkJoinPool(args.getThreads()) : null);
+		try {
+			processedConcepts = processor.getProcessedConcepts(concepts, args.getCoreArgs().getMapperArgs().getIdfArgs(), args.getCoreArgs().getMapperArgs().getMultiplierArgs(),
+				new PreProcessor(args.getCoreArgs().getPreProcessorArgs(), stopwords), tokenDictionary, conceptsPool);
+		} finally {
+			if (conceptsPool != null) {
+				conceptsPool.shutdown();
+			}
+		}
+		conceptIndex = new ConceptIndex(processedConcepts, tokenDictionary);
 
 		logger.info("Loading queries from {}", args.getQuery());
 		queries = QueryLoader.get(args.getQuery(), args.getType(), concepts,
@@ -25,6 +25,7 @@ import com.beust.jcommander.ParametersDelegate;
 import java.io.File;
 
 import org.edamontology.edammap.core.args.CoreArgs;
+import org.edamontology.edammap.core.edam.EdamLoader;
 import org.edamontology.edammap.core.input.Input;
 import org.edamontology.edammap.core.query.QueryType;
 
@@ -40,6 +41,12 @@ public class CliArgs extends BasicArgs {
 	@Parameter(names = { "-e", "--" + edamId }, required = true, description = edamDescription)
 	private String edam;
 
+	private static final String edamLoaderId = "edamLoader";
+	private static final String edamLoaderDescription = "Library used to load the EDAM ontology file: owlapi (OWL API, supports all OWL formats) or stax (streaming, faster and using less memory, but supports only RDF/XML)";
+	private static final EdamLoader edamLoaderDefault = EdamLoader.owlapi;
+	@Parameter(names = { "--" + edamLoaderId }, description = edamLoaderDescription)
+	private EdamLoader edamLoader = edamLoaderDefault;
+
 	private static final String queryId = "query";
 	private static final String queryDescription = "Path or URL of file containing input queries of QueryType --type";
 	private static final String queryDefault = null;
@@ -89,7 +96,7 @@ public class CliArgs extends BasicArgs {
 	private Integer reportPaginationSize = reportPaginationSizeDefault;
 
 	private static final String threadsId = "threads";
-	private static final String threadsDescription = "How many threads to use for mapping (one thread processes one query at a time)";
+	private static final String threadsDescription = "How many threads to use for mapping (one thread processes one query at a time) and for processing concepts";
 	private static final Integer threadsDefault = 4;
 	@Parameter(names = { "--" + threadsId }, validateWith = PositiveInteger.class, description = threadsDescription)
 	private Integer threads = threadsDefault;
@@ -100,6 +107,7 @@ public class CliArgs extends BasicArgs {
 	@Override
 	protected void addArgs() {
 		args.add(new Arg<>(this::getEdamFilename, null, edamDefault, edamId, "Ontology file", edamDescription, null, "https://github.com/edamontology/edamontology/tree/master/releases"));
+		args.add(new Arg<>(this::getEdamLoader, null, edamLoaderDefault, edamLoaderId, "Ontology loader", edamLoaderDescription, EdamLoader.class));
 		args.add(new Arg<>(this::getQueryFilename, null, queryDefault, queryId, "Query file", queryDescription, null));
 		args.add(new Arg<>(this::getType, null, typeDefault, typeId, "Type", typeDescription, QueryType.class));
 		args.add(new Arg<>(this::getOutputFilename, null, outputDefault, outputId, "Output file", outputDescription, null));
@@ -121,6 +129,13 @@ public class CliArgs extends BasicArgs {
 		this.edam = edam;
 	}
 
+	public EdamLoader getEdamLoader() {
+		return edamLoader;
+	}
+	public void setEdamLoader(EdamLoader edamLoader) {
+		this.edamLoader = edamLoader;
+	}
+
 	public String getQuery() {
 		return query;
 	}
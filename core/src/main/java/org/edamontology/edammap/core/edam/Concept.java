@@ -20,7 +20,9 @@
 package org.edamontology.edammap.core.edam;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Concept {
 
@@ -39,6 +41,9 @@ public class Concept {
 	private boolean obsolete = false;
 	private List<EdamUri> replacedBy = new ArrayList<>();
 
+	// preprocessed tokens loaded from an EDAM snapshot, by PreProcessor.getArgsKey()
+	private Map<String, ConceptTokens> tokens = new HashMap<>();
+
 	public String getLabel() {
 		return label;
 	}
@@ -116,6 +121,16 @@ public class Concept {
 		this.replacedBy.add(replacedBy);
 	}
 
+	public Map<String, ConceptTokens> getTokens() {
+		return tokens;
+	}
+	public ConceptTokens getTokens(String preProcessorArgsKey) {
+		return tokens.get(preProcessorArgsKey);
+	}
+	public void putTokens(String preProcessorArgsKey, ConceptTokens conceptTokens) {
+		tokens.put(preProcessorArgsKey, conceptTokens);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
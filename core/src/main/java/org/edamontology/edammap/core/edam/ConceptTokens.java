@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.edam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Preprocessed tokens of the fields of a Concept, definition and comment split to sentences.
+// Stored in an EDAM snapshot, so that concepts don't have to be preprocessed again.
+public class ConceptTokens {
+
+	private List<String> label = null;
+
+	private List<List<String>> exactSynonyms = new ArrayList<>();
+	private List<List<String>> narrowSynonyms = new ArrayList<>();
+	private List<List<String>> broadSynonyms = new ArrayList<>();
+
+	private List<List<String>> definition = new ArrayList<>();
+	private List<List<String>> comment = new ArrayList<>();
+
+	public List<String> getLabel() {
+		return label;
+	}
+	public void setLabel(List<String> label) {
+		this.label = label;
+	}
+
+	public List<List<String>> getExactSynonyms() {
+		return exactSynonyms;
+	}
+	public void addExactSynonym(List<String> exactSynonym) {
+		exactSynonyms.add(exactSynonym);
+	}
+
+	public List<List<String>> getNarrowSynonyms() {
+		return narrowSynonyms;
+	}
+	public void addNarrowSynonym(List<String> narrowSynonym) {
+		narrowSynonyms.add(narrowSynonym);
+	}
+
+	public List<List<String>> getBroadSynonyms() {
+		return broadSynonyms;
+	}
+	public void addBroadSynonym(List<String> broadSynonym) {
+		broadSynonyms.add(broadSynonym);
+	}
+
+	public List<List<String>> getDefinition() {
+		return definition;
+	}
+	public void addDefinition(List<String> definitionSentence) {
+		definition.add(definitionSentence);
+	}
+
+	public List<List<String>> getComment() {
+		return comment;
+	}
+	public void addComment(List<String> commentSentence) {
+		comment.add(commentSentence);
+	}
+}
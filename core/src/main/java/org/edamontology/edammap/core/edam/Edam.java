@@ -43,6 +43,29 @@ public class Edam {
 	private static final Logger logger = LogManager.getLogger();
 
 	public static Map<EdamUri, Concept> load(String edamPath) throws IOException {
+		return load(edamPath, EdamLoader.owlapi);
+	}
+
+	// from the snapshot next to the OWL file, if it is valid
+	public static Map<EdamUri, Concept> load(String edamPath, EdamLoader loader) throws IOException {
+		Map<EdamUri, Concept> concepts = EdamSnapshot.read(edamPath);
+		if (concepts != null) {
+			return concepts;
+		}
+		switch (loader) {
+			case stax: return loadStax(edamPath);
+			default: return loadOwl(edamPath);
+		}
+	}
+
+	// RDF/XML only
+	public static Map<EdamUri, Concept> loadStax(String edamPath) throws IOException {
+		Map<EdamUri, Concept> concepts = EdamStax.load(edamPath, PubFetcher.getResource(Edam.class, "edam/blacklist_synonyms.txt"));
+		logger.debug("Loaded EDAM {} with {} concepts", edamPath, concepts.size());
+		return concepts;
+	}
+
+	public static Map<EdamUri, Concept> loadOwl(String edamPath) throws IOException {
 
 		List<String> blacklistSynonyms = PubFetcher.getResource(Edam.class, "edam/blacklist_synonyms.txt");
 
@@ -0,0 +1,361 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.edam;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.edamontology.pubfetcher.core.common.PubFetcher;
+
+import org.edamontology.edammap.core.processing.VarInt;
+
+// Binary snapshot of concepts loaded from an EDAM OWL file, saved next to it, for loading concepts without parsing the OWL file.
+// Also contains preprocessed tokens of the concepts, for the preprocessing args the snapshot was made with.
+// The snapshot is valid only if the hash of the OWL file (and the synonyms blacklist) matches the hash stored in the snapshot.
+public final class EdamSnapshot {
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private static final int MAGIC = 0x4544534E;
+
+	private static final int VERSION = 1;
+
+	private static final String SNAPSHOT = "EDAM snapshot";
+
+	private EdamSnapshot() {}
+
+	public static String getPath(String edamPath) {
+		return edamPath + ".snapshot";
+	}
+
+	private static byte[] hash(String edamPath) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		try (InputStream in = Files.newInputStream(Paths.get(edamPath))) {
+			byte[] buffer = new byte[65536];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		for (String blacklistSynonym : PubFetcher.getResource(Edam.class, "edam/blacklist_synonyms.txt")) {
+			digest.update(blacklistSynonym.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+		return digest.digest();
+	}
+
+	// null if the snapshot does not exist or is not valid for the OWL file
+	public static Map<EdamUri, Concept> read(String edamPath) throws IOException {
+		Path path = Paths.get(getPath(edamPath));
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		byte[] bytes = Files.readAllBytes(path);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			if (in.readInt() != MAGIC) {
+				logger.warn("File {} is not an EDAM snapshot", path);
+				return null;
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				logger.info("EDAM snapshot {} has version {} instead of {}, not using it", path, version, VERSION);
+				return null;
+			}
+			byte[] hash = new byte[VarInt.read(in, SNAPSHOT)];
+			in.readFully(hash);
+			if (!Arrays.equals(hash, hash(edamPath))) {
+				logger.info("EDAM snapshot {} was not made from current {}, not using it", path, edamPath);
+				return null;
+			}
+
+			String[] strings = new String[VarInt.read(in, SNAPSHOT)];
+			for (int i = 0; i < strings.length; ++i) {
+				byte[] string = new byte[VarInt.read(in, SNAPSHOT)];
+				in.readFully(string);
+				strings[i] = new String(string, StandardCharsets.UTF_8);
+			}
+
+			String[] argsKeys = new String[VarInt.read(in, SNAPSHOT)];
+			for (int i = 0; i < argsKeys.length; ++i) {
+				argsKeys[i] = readString(in, strings);
+			}
+
+			int size = VarInt.read(in, SNAPSHOT);
+			Map<EdamUri, Concept> concepts = new LinkedHashMap<>();
+			for (int i = 0; i < size; ++i) {
+				EdamUri edamUri = readEdamUri(in, strings);
+				Concept concept = new Concept();
+				concept.setLabel(readString(in, strings));
+				for (String exactSynonym : readStrings(in, strings)) {
+					concept.addExactSynonym(exactSynonym);
+				}
+				for (String narrowSynonym : readStrings(in, strings)) {
+					concept.addNarrowSynonym(narrowSynonym);
+				}
+				for (String broadSynonym : readStrings(in, strings)) {
+					concept.addBroadSynonym(broadSynonym);
+				}
+				concept.setDefinition(readString(in, strings));
+				concept.addComment(readString(in, strings));
+				concept.setDirectParents(readEdamUris(in, strings));
+				concept.setDirectChildren(readEdamUris(in, strings));
+				concept.setObsolete(in.readBoolean());
+				for (EdamUri replacedBy : readEdamUris(in, strings)) {
+					concept.addReplacedBy(replacedBy);
+				}
+				for (String argsKey : argsKeys) {
+					ConceptTokens conceptTokens = new ConceptTokens();
+					if (in.readBoolean()) {
+						conceptTokens.setLabel(readStrings(in, strings));
+					}
+					for (List<String> exactSynonym : readStringsList(in, strings)) {
+						conceptTokens.addExactSynonym(exactSynonym);
+					}
+					for (List<String> narrowSynonym : readStringsList(in, strings)) {
+						conceptTokens.addNarrowSynonym(narrowSynonym);
+					}
+					for (List<String> broadSynonym : readStringsList(in, strings)) {
+						conceptTokens.addBroadSynonym(broadSynonym);
+					}
+					for (List<String> definitionSentence : readStringsList(in, strings)) {
+						conceptTokens.addDefinition(definitionSentence);
+					}
+					for (List<String> commentSentence : readStringsList(in, strings)) {
+						conceptTokens.addComment(commentSentence);
+					}
+					concept.putTokens(argsKey, conceptTokens);
+				}
+				concepts.put(edamUri, concept);
+			}
+
+			logger.debug("Loaded EDAM snapshot {} with {} concepts and tokens for {}", path, concepts.size(), Arrays.toString(argsKeys));
+			return concepts;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Corrupt EDAM snapshot {}, not using it: {}", path, e.toString());
+			return null;
+		}
+	}
+
+	// tokens are written for the args keys all concepts have tokens for
+	public static void write(String edamPath, Map<EdamUri, Concept> concepts) throws IOException {
+		List<String> argsKeys = new ArrayList<>();
+		if (!concepts.isEmpty()) {
+			for (String argsKey : concepts.values().iterator().next().getTokens().keySet()) {
+				if (concepts.values().stream().allMatch(c -> c.getTokens(argsKey) != null)) {
+					argsKeys.add(argsKey);
+				}
+			}
+		}
+
+		StringTable strings = new StringTable();
+		argsKeys.forEach(strings::add);
+		for (Map.Entry<EdamUri, Concept> entry : concepts.entrySet()) {
+			Concept concept = entry.getValue();
+			strings.add(entry.getKey());
+			strings.add(concept.getLabel());
+			concept.getExactSynonyms().forEach(strings::add);
+			concept.getNarrowSynonyms().forEach(strings::add);
+			concept.getBroadSynonyms().forEach(strings::add);
+			strings.add(concept.getDefinition());
+			strings.add(concept.getComment());
+			concept.getDirectParents().forEach(strings::add);
+			concept.getDirectChildren().forEach(strings::add);
+			concept.getReplacedBy().forEach(strings::add);
+			for (String argsKey : argsKeys) {
+				ConceptTokens conceptTokens = concept.getTokens(argsKey);
+				if (conceptTokens.getLabel() != null) {
+					conceptTokens.getLabel().forEach(strings::add);
+				}
+				conceptTokens.getExactSynonyms().forEach(t -> t.forEach(strings::add));
+				conceptTokens.getNarrowSynonyms().forEach(t -> t.forEach(strings::add));
+				conceptTokens.getBroadSynonyms().forEach(t -> t.forEach(strings::add));
+				conceptTokens.getDefinition().forEach(t -> t.forEach(strings::add));
+				conceptTokens.getComment().forEach(t -> t.forEach(strings::add));
+			}
+		}
+
+		Path path = Paths.get(getPath(edamPath));
+		Path tmp = Paths.get(getPath(edamPath) + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			byte[] hash = hash(edamPath);
+			VarInt.write(out, hash.length);
+			out.write(hash);
+
+			VarInt.write(out, strings.list.size());
+			for (String string : strings.list) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				VarInt.write(out, bytes.length);
+				out.write(bytes);
+			}
+
+			VarInt.write(out, argsKeys.size());
+			for (String argsKey : argsKeys) {
+				strings.write(out, argsKey);
+			}
+
+			VarInt.write(out, concepts.size());
+			for (Map.Entry<EdamUri, Concept> entry : concepts.entrySet()) {
+				Concept concept = entry.getValue();
+				strings.write(out, entry.getKey().getUri());
+				strings.write(out, concept.getLabel());
+				strings.write(out, concept.getExactSynonyms());
+				strings.write(out, concept.getNarrowSynonyms());
+				strings.write(out, concept.getBroadSynonyms());
+				strings.write(out, concept.getDefinition());
+				strings.write(out, concept.getComment());
+				strings.writeEdamUris(out, concept.getDirectParents());
+				strings.writeEdamUris(out, concept.getDirectChildren());
+				out.writeBoolean(concept.isObsolete());
+				strings.writeEdamUris(out, concept.getReplacedBy());
+				for (String argsKey : argsKeys) {
+					ConceptTokens conceptTokens = concept.getTokens(argsKey);
+					out.writeBoolean(conceptTokens.getLabel() != null);
+					if (conceptTokens.getLabel() != null) {
+						strings.write(out, conceptTokens.getLabel());
+					}
+					strings.writeList(out, conceptTokens.getExactSynonyms());
+					strings.writeList(out, conceptTokens.getNarrowSynonyms());
+					strings.writeList(out, conceptTokens.getBroadSynonyms());
+					strings.writeList(out, conceptTokens.getDefinition());
+					strings.writeList(out, conceptTokens.getComment());
+				}
+			}
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		logger.debug("Wrote EDAM snapshot {} with {} concepts and tokens for {}", path, concepts.size(), argsKeys);
+	}
+
+	// all strings of the snapshot are written once, string index 0 is null
+	private static final class StringTable {
+
+		private final Map<String, Integer> indexes = new HashMap<>();
+
+		private final List<String> list = new ArrayList<>();
+
+		private void add(String string) {
+			if (string != null && !indexes.containsKey(string)) {
+				indexes.put(string, list.size() + 1);
+				list.add(string);
+			}
+		}
+
+		private void add(EdamUri edamUri) {
+			add(edamUri.getUri());
+		}
+
+		private void write(DataOutputStream out, String string) throws IOException {
+			VarInt.write(out, string != null ? indexes.get(string) : 0);
+		}
+
+		private void write(DataOutputStream out, List<String> strings) throws IOException {
+			VarInt.write(out, strings.size());
+			for (String string : strings) {
+				write(out, string);
+			}
+		}
+
+		private void writeList(DataOutputStream out, List<List<String>> stringsList) throws IOException {
+			VarInt.write(out, stringsList.size());
+			for (List<String> strings : stringsList) {
+				write(out, strings);
+			}
+		}
+
+		private void writeEdamUris(DataOutputStream out, List<EdamUri> edamUris) throws IOException {
+			VarInt.write(out, edamUris.size());
+			for (EdamUri edamUri : edamUris) {
+				write(out, edamUri.getUri());
+			}
+		}
+	}
+
+	private static String readString(DataInputStream in, String[] strings) throws IOException {
+		int index = VarInt.read(in, SNAPSHOT);
+		if (index > strings.length) {
+			throw new IOException("String index " + index + " out of bounds");
+		}
+		return index > 0 ? strings[index - 1] : null;
+	}
+
+	private static List<String> readStrings(DataInputStream in, String[] strings) throws IOException {
+		int size = VarInt.read(in, SNAPSHOT);
+		List<String> list = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			list.add(readString(in, strings));
+		}
+		return list;
+	}
+
+	private static List<List<String>> readStringsList(DataInputStream in, String[] strings) throws IOException {
+		int size = VarInt.read(in, SNAPSHOT);
+		List<List<String>> list = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			list.add(readStrings(in, strings));
+		}
+		return list;
+	}
+
+	// prefix of the URI was either the ontology prefix or the default prefix, in both cases everything before the last '/'
+	private static EdamUri readEdamUri(DataInputStream in, String[] strings) throws IOException {
+		String uri = readString(in, strings);
+		if (uri == null) {
+			throw new IOException("Missing EDAM URI");
+		}
+		return new EdamUri(uri, uri.substring(0, uri.lastIndexOf('/')));
+	}
+
+	private static List<EdamUri> readEdamUris(DataInputStream in, String[] strings) throws IOException {
+		int size = VarInt.read(in, SNAPSHOT);
+		List<EdamUri> edamUris = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			edamUris.add(readEdamUri(in, strings));
+		}
+		return edamUris;
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.edam;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+// Loads concepts from EDAM in RDF/XML by streaming it with StAX, instead of building the whole ontology in memory with OWLAPI.
+// Only what Edam.loadOwl uses is read: annotations and named superclasses of named classes, the rest (like owl:Axiom and owl:Restriction) is skipped.
+// Classes and annotations are sorted like OWLAPI sorts them, so that the result is the same as with Edam.loadOwl.
+final class EdamStax {
+
+	private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	private static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+	private static final String OWL = "http://www.w3.org/2002/07/owl#";
+	private static final String OBO = "http://www.geneontology.org/formats/oboInOwl#";
+
+	private static final class Annotation {
+		private final String property;
+		private final String value;
+		private final boolean iri;
+		private final String datatypeLang;
+		private Annotation(String property, String value, boolean iri, String datatypeLang) {
+			this.property = property;
+			this.value = value;
+			this.iri = iri;
+			this.datatypeLang = datatypeLang;
+		}
+	}
+
+	// literals before IRIs, as in OWLAPI
+	private static final Comparator<Annotation> ANNOTATION_ORDER = Comparator
+		.comparing((Annotation a) -> a.property)
+		.thenComparing(a -> a.iri)
+		.thenComparing(a -> a.value)
+		.thenComparing(a -> a.datatypeLang);
+
+	private static final class Node {
+		private boolean owlClass = false;
+		private final Set<Annotation> annotations = new TreeSet<>(ANNOTATION_ORDER);
+		private final Set<String> superClasses = new TreeSet<>();
+	}
+
+	private EdamStax() {}
+
+	private static String resolve(String base, String iri) {
+		if (iri == null || base == null || URI.create(iri).isAbsolute()) {
+			return iri;
+		}
+		return URI.create(base).resolve(iri).toString();
+	}
+
+	// text of a property element, null if it contains elements
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		boolean nested = false;
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT: nested = true; ++depth; break;
+			case XMLStreamConstants.END_ELEMENT: --depth; break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (depth == 1) text.append(reader.getText());
+				break;
+			}
+		}
+		return nested ? null : text.toString();
+	}
+
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT: ++depth; break;
+			case XMLStreamConstants.END_ELEMENT: --depth; break;
+			}
+		}
+	}
+
+	static Map<EdamUri, Concept> load(String edamPath, List<String> blacklistSynonyms) throws IOException {
+		String prefix = null;
+		Map<String, Node> nodes = new TreeMap<>();
+
+		XMLStreamReader reader = null;
+		try (InputStream is = Files.newInputStream(Paths.get(edamPath))) {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+			// entities of the internal DTD subset are used in EDAM, but nothing external must be loaded
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+			reader = factory.createXMLStreamReader(is);
+
+			String base = null;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+				if (!RDF.equals(reader.getNamespaceURI()) || !"RDF".equals(reader.getLocalName())) {
+					throw new IOException("Root element of " + edamPath + " is not rdf:RDF");
+				}
+				base = reader.getAttributeValue("http://www.w3.org/XML/1998/namespace", "base");
+				break;
+			}
+
+			// node elements, children of rdf:RDF
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT) break;
+				if (event != XMLStreamConstants.START_ELEMENT) continue;
+
+				String type = reader.getNamespaceURI() + reader.getLocalName();
+				String about = resolve(base, reader.getAttributeValue(RDF, "about"));
+				if (about == null) {
+					skipElement(reader);
+					continue;
+				}
+				if (type.equals(OWL + "Ontology")) {
+					prefix = about;
+					skipElement(reader);
+					continue;
+				}
+				Node node = nodes.computeIfAbsent(about, k -> new Node());
+				if (type.equals(OWL + "Class")) {
+					node.owlClass = true;
+				}
+
+				// property elements
+				while (true) {
+					event = reader.next();
+					if (event == XMLStreamConstants.END_ELEMENT) break;
+					if (event != XMLStreamConstants.START_ELEMENT) continue;
+
+					String property = reader.getNamespaceURI() + reader.getLocalName();
+					String resource = resolve(base, reader.getAttributeValue(RDF, "resource"));
+					if (resource != null) {
+						skipElement(reader);
+						if (property.equals(RDF + "type")) {
+							if (resource.equals(OWL + "Class")) {
+								node.owlClass = true;
+							}
+						} else if (property.equals(RDFS + "subClassOf")) {
+							node.superClasses.add(resource);
+							nodes.computeIfAbsent(resource, k -> new Node()).owlClass = true;
+						} else {
+							node.annotations.add(new Annotation(property, resource, true, ""));
+						}
+					} else if (reader.getAttributeValue(RDF, "parseType") != null || reader.getAttributeValue(RDF, "nodeID") != null) {
+						skipElement(reader);
+					} else {
+						String datatype = reader.getAttributeValue(RDF, "datatype");
+						String lang = reader.getAttributeValue("http://www.w3.org/XML/1998/namespace", "lang");
+						String text = readText(reader);
+						if (text != null && !property.equals(RDFS + "subClassOf")) {
+							node.annotations.add(new Annotation(property, text, false, (datatype != null ? datatype : "") + "@" + (lang != null ? lang : "")));
+						}
+					}
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Can't parse " + edamPath + ": " + e.getLocalizedMessage(), e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					throw new IOException(e);
+				}
+			}
+		}
+
+		if (prefix == null) {
+			throw new IOException("Ontology IRI not found in " + edamPath);
+		}
+		final String ontologyPrefix = prefix;
+
+		Map<String, Set<String>> subClasses = new TreeMap<>();
+		for (Map.Entry<String, Node> node : nodes.entrySet()) {
+			for (String superClass : node.getValue().superClasses) {
+				subClasses.computeIfAbsent(superClass, k -> new TreeSet<>()).add(node.getKey());
+			}
+		}
+
+		Map<EdamUri, Concept> concepts = new LinkedHashMap<>();
+		for (Map.Entry<String, Node> node : nodes.entrySet()) {
+			String iri = node.getKey();
+			if (!node.getValue().owlClass || !EdamUri.isEdamUri(iri, ontologyPrefix)) continue;
+
+			Concept concept = new Concept();
+			for (Annotation a : node.getValue().annotations) {
+				if (a.property.equals(RDFS + "label")) {
+					if (!a.iri) concept.setLabel(a.value);
+				} else if (a.property.equals(OBO + "hasExactSynonym") && !a.iri) {
+					if (!blacklistSynonyms.contains(a.value))
+						concept.addExactSynonym(a.value);
+				} else if (a.property.equals(OBO + "hasNarrowSynonym") && !a.iri) {
+					if (!blacklistSynonyms.contains(a.value))
+						concept.addNarrowSynonym(a.value);
+				} else if (a.property.equals(OBO + "hasBroadSynonym") && !a.iri) {
+					if (!blacklistSynonyms.contains(a.value))
+						concept.addBroadSynonym(a.value);
+				} else if (a.property.equals(OBO + "hasDefinition") && !a.iri)
+					concept.setDefinition(a.value);
+				else if (a.property.equals(RDFS + "comment") && !a.iri)
+					concept.addComment(a.value);
+				else if (a.property.equals(OWL + "deprecated"))
+					concept.setObsolete(true);
+				else if (a.property.equals(OBO + "replacedBy") && a.iri)
+					concept.addReplacedBy(new EdamUri(a.value, EdamUri.DEFAULT_PREFIX));
+				else if (a.property.equals(OBO + "consider") && a.iri)
+					concept.addReplacedBy(new EdamUri(a.value, EdamUri.DEFAULT_PREFIX));
+			}
+			concept.setDirectParents(node.getValue().superClasses.stream()
+				.filter(s -> !s.equals(OWL + "DeprecatedClass"))
+				.map(s -> new EdamUri(s, ontologyPrefix))
+				.collect(Collectors.toList()));
+			concept.setDirectChildren(subClasses.getOrDefault(iri, new TreeSet<>()).stream()
+				.map(s -> new EdamUri(s, ontologyPrefix))
+				.collect(Collectors.toList()));
+			if (concept.getLabel() == null)
+				throw new IllegalStateException(String.format("Label of concept %s is empty", iri));
+			concepts.put(new EdamUri(iri, ontologyPrefix), concept);
+		}
+
+		return concepts;
+	}
+}
@@ -23,12 +23,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -48,14 +48,38 @@ public class Idf {
 
 	private final List<IdfTop> idfTop;
 
+	// if not null, then idfMap and countsMap are null
+	private final IdfBinary binary;
+
 	public Idf(ObjectDoubleHashMap<String> idfMap, ObjectIntHashMap<String> countsMap, int documentCount) {
 		this.idfMap = idfMap;
 		this.countsMap = countsMap;
 		this.documentCount = documentCount;
 		this.idfTop = null;
+		this.binary = null;
 	}
 
+	// inputPath can be an IDF file in text format or in binary format (made with makeBinary())
 	public Idf(String inputPath, boolean top) throws IOException {
+		Path path = Paths.get(inputPath);
+		if (IdfBinary.isBinary(path)) {
+			this.binary = new IdfBinary(path);
+			this.documentCount = binary.getDocumentCount();
+			this.idfMap = null;
+			this.countsMap = null;
+			if (top) {
+				this.idfTop = new ArrayList<>();
+				for (int i = 0; i < binary.size(); ++i) {
+					idfTop.add(new IdfTop(binary.getTerm(i), binary.getCount(i)));
+				}
+				Collections.sort(idfTop);
+			} else {
+				this.idfTop = null;
+			}
+			logger.debug("Opened binary IDF {} with {} entries", inputPath, binary.size());
+			return;
+		}
+		this.binary = null;
 		try (BufferedReader br = Files.newBufferedReader(Paths.get(inputPath), StandardCharsets.UTF_8)) {
 			if (top) {
 				this.idfTop = new ArrayList<>();
@@ -104,7 +128,18 @@ public class Idf {
 		this(inputPath, false);
 	}
 
+	// returns number of terms written
+	public static int makeBinary(String inputPath, String outputPath) throws IOException {
+		try (BufferedReader br = Files.newBufferedReader(Paths.get(inputPath), StandardCharsets.UTF_8)) {
+			return IdfBinary.write(br, Paths.get(outputPath));
+		}
+	}
+
 	public double getIdf(String term) {
+		if (binary != null) {
+			int index = binary.find(term);
+			return (index < 0 ? 1.0d : binary.getIdf(index));
+		}
 		if (idfMap.containsKey(term)) {
 			return idfMap.get(term);
 		} else {
@@ -115,7 +150,12 @@ public class Idf {
 	// getIdf(String) has shift +1
 	public double getIdfShifted(String term, int shift) {
 		int termCount = 0;
-		if (countsMap.containsKey(term)) {
+		if (binary != null) {
+			int index = binary.find(term);
+			if (index >= 0) {
+				termCount = binary.getCount(index);
+			}
+		} else if (countsMap.containsKey(term)) {
 			termCount = countsMap.get(term);
 		}
 		int totalCount = termCount + shift;
@@ -125,8 +165,23 @@ public class Idf {
 		return idf;
 	}
 
-	public List<Double> getIdf(Collection<String> terms) {
-		return terms.stream().map(term -> getIdf(term)).collect(Collectors.toList());
+	public double[] getIdf(Collection<String> terms) {
+		double[] idfs = new double[terms.size()];
+		int i = 0;
+		for (String term : terms) {
+			idfs[i++] = getIdf(term);
+		}
+		return idfs;
+	}
+
+	// idf^scaling for each of idfs, or null if no scaling is to be done
+	public static double[] getIdfPowers(double[] idfs, double scaling) {
+		if (idfs == null || scaling <= 0) return null;
+		double[] idfPowers = new double[idfs.length];
+		for (int i = 0; i < idfs.length; ++i) {
+			idfPowers[i] = Math.pow(idfs[i], scaling);
+		}
+		return idfPowers;
 	}
 
 	public List<IdfTop> getTop() {
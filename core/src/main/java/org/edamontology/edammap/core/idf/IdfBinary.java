@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.idf;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+
+// IDF file in binary format, memory-mapped, so that opening it is fast and terms are not loaded to the heap.
+// Format: magic, version, document count, term count n, n IDFs (doubles), n counts (ints), n + 1 starts of terms (ints, relative to start of terms), terms (UTF-8).
+// Terms are sorted by their UTF-8 bytes (as unsigned), so that a term can be found by binary search.
+// Only absolute gets are done on the buffer, thus it can be read concurrently.
+class IdfBinary {
+
+	private static final int MAGIC = 0x45444D49;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 16;
+
+	private static final int[] UTF8_LEAD = { 0, 0x00, 0xC0, 0xE0, 0xF0 };
+
+	private final ByteBuffer buffer;
+
+	private final int documentCount;
+
+	private final int size;
+
+	private final int counts;
+
+	private final int termStarts;
+
+	private final int terms;
+
+	static boolean isBinary(Path path) throws IOException {
+		try (InputStream is = Files.newInputStream(path)) {
+			byte[] magic = is.readNBytes(4);
+			return magic.length == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+		}
+	}
+
+	IdfBinary(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Binary IDF file " + path + " is too large");
+			}
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("Binary IDF file " + path + " is truncated");
+			}
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IOException("Unsupported version " + version + " of binary IDF file " + path);
+		}
+		this.documentCount = buffer.getInt(8);
+		this.size = buffer.getInt(12);
+		// checked in long, so that offsets computed in int here and in getIdf, getCount and getTerm (for index < size) can't overflow
+		if (size < 0 || HEADER_SIZE + size * 16L + 4 > buffer.capacity()) {
+			throw new IOException("Binary IDF file " + path + " is corrupt");
+		}
+		this.counts = HEADER_SIZE + size * 8;
+		this.termStarts = counts + size * 4;
+		this.terms = termStarts + (size + 1) * 4;
+		// term starts must be non-decreasing from 0 to the end of the file, so that getTerm stays within the file
+		int previous = 0;
+		for (int i = 0; i <= size; ++i) {
+			int termStart = buffer.getInt(termStarts + i * 4);
+			if (termStart < previous || i == 0 && termStart != 0) {
+				throw new IOException("Binary IDF file " + path + " is corrupt");
+			}
+			previous = termStart;
+		}
+		if (terms + (long) previous != buffer.capacity()) {
+			throw new IOException("Binary IDF file " + path + " is corrupt");
+		}
+	}
+
+	int getDocumentCount() {
+		return documentCount;
+	}
+
+	int size() {
+		return size;
+	}
+
+	double getIdf(int index) {
+		return buffer.getDouble(HEADER_SIZE + index * 8);
+	}
+
+	int getCount(int index) {
+		return buffer.getInt(counts + index * 4);
+	}
+
+	String getTerm(int index) {
+		int start = terms + buffer.getInt(termStarts + index * 4);
+		byte[] bytes = new byte[terms + buffer.getInt(termStarts + (index + 1) * 4) - start];
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// index of term, or -1 if not found
+	int find(String term) {
+		// terms read from a UTF-8 file can't contain lone surrogates
+		for (int i = 0; i < term.length(); ++i) {
+			char c = term.charAt(i);
+			if (Character.isHighSurrogate(c) && i + 1 < term.length() && Character.isLowSurrogate(term.charAt(i + 1))) {
+				++i;
+			} else if (Character.isSurrogate(c)) {
+				return -1;
+			}
+		}
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(mid, term);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	// compares stored term at index to UTF-8 bytes of term (which must not contain lone surrogates), without encoding term to a new array
+	private int compare(int index, String term) {
+		int position = terms + buffer.getInt(termStarts + index * 4);
+		int end = terms + buffer.getInt(termStarts + (index + 1) * 4);
+		for (int i = 0; i < term.length(); ) {
+			int codePoint = term.codePointAt(i);
+			i += Character.charCount(codePoint);
+			int length = (codePoint < 0x80 ? 1 : (codePoint < 0x800 ? 2 : (codePoint < 0x10000 ? 3 : 4)));
+			for (int k = length - 1; k >= 0; --k) {
+				int b;
+				if (k == length - 1) {
+					b = UTF8_LEAD[length] | (codePoint >> (6 * k));
+				} else {
+					b = 0x80 | ((codePoint >> (6 * k)) & 0x3F);
+				}
+				if (position == end) return -1;
+				int stored = buffer.get(position++) & 0xFF;
+				if (stored != b) return stored - b;
+			}
+		}
+		return (position == end ? 0 : 1);
+	}
+
+	// returns number of terms written
+	static int write(BufferedReader br, Path outputPath) throws IOException {
+		String line = br.readLine();
+		if (line == null) {
+			throw new IOException("First line must be document count!");
+		}
+		int documentCount = Integer.parseInt(line);
+
+		List<byte[]> termsList = new ArrayList<>();
+		IntArrayList countsList = new IntArrayList();
+		DoubleArrayList idfsList = new DoubleArrayList();
+		while ((line = br.readLine()) != null) {
+			int tab = line.indexOf("\t");
+			int tab2 = line.indexOf("\t", tab + 1);
+			termsList.add(line.substring(0, tab).getBytes(StandardCharsets.UTF_8));
+			countsList.add(Integer.parseInt(line.substring(tab + 1, tab2)));
+			idfsList.add(Double.parseDouble(line.substring(tab2 + 1)));
+		}
+
+		// stable sort, so that of repeated terms the last one can be kept (as when loading the text file to a map)
+		Integer[] order = new Integer[termsList.size()];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(termsList.get(a), termsList.get(b)));
+		List<Integer> unique = new ArrayList<>(order.length);
+		long termsSize = 0;
+		for (int i = 0; i < order.length; ++i) {
+			if (i + 1 < order.length && Arrays.equals(termsList.get(order[i]), termsList.get(order[i + 1]))) continue;
+			unique.add(order[i]);
+			termsSize += termsList.get(order[i]).length;
+		}
+		if (HEADER_SIZE + unique.size() * 16L + 4 + termsSize > Integer.MAX_VALUE) {
+			throw new IOException("Too many terms for binary IDF file");
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(documentCount);
+			out.writeInt(unique.size());
+			for (int i : unique) {
+				out.writeDouble(idfsList.get(i));
+			}
+			for (int i : unique) {
+				out.writeInt(countsList.get(i));
+			}
+			int termStart = 0;
+			out.writeInt(termStart);
+			for (int i : unique) {
+				termStart += termsList.get(i).length;
+				out.writeInt(termStart);
+			}
+			for (int i : unique) {
+				out.write(termsList.get(i));
+			}
+		}
+
+		return unique.size();
+	}
+}
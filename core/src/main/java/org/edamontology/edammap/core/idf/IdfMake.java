@@ -27,14 +27,16 @@ import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import com.carrotsearch.hppc.ObjectDoubleHashMap;
 import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.cursors.ObjectIntCursor;
 
 import org.edamontology.pubfetcher.core.common.PubFetcher;
 
@@ -44,13 +46,14 @@ public class IdfMake {
 
 	private int documentCount;
 
-	private Map<String, Integer> termCounts;
+	// number of documents each term occurs in, terms are sorted only when writing output
+	private ObjectIntHashMap<String> termCounts;
 
 	private Set<String> documentTerms;
 
 	public IdfMake() {
 		documentCount = 0;
-		termCounts = new TreeMap<>();
+		termCounts = new ObjectIntHashMap<>();
 		documentTerms = new HashSet<>();
 	}
 
@@ -68,13 +71,27 @@ public class IdfMake {
 		terms.forEach(t -> documentTerms.addAll(t));
 	}
 
+	// add all terms of a document and end it
+	public void addDocument(Collection<String> terms) {
+		documentTerms.addAll(terms);
+		endDocument();
+	}
+
 	public void endDocument() {
-		documentTerms.forEach(term -> termCounts.merge(term, 1, Integer::sum));
+		documentTerms.forEach(term -> termCounts.addTo(term, 1));
 		documentTerms.clear();
 
 		++documentCount;
 	}
 
+	// add counts of documents ended in other, for making an IDF in parallel with one IdfMake per thread
+	public void merge(IdfMake other) {
+		for (ObjectIntCursor<String> termCount : other.termCounts) {
+			termCounts.addTo(termCount.key, termCount.value);
+		}
+		documentCount += other.documentCount;
+	}
+
 	public int getDocumentCount() {
 		return documentCount;
 	}
@@ -83,19 +100,15 @@ public class IdfMake {
 	public ObjectDoubleHashMap<String> getIdf() {
 		ObjectDoubleHashMap<String> idfMap = new ObjectDoubleHashMap<>();
 		double idf_max = Math.log10(documentCount);
-		for (Map.Entry<String, Integer> termCount : termCounts.entrySet()) {
-			double idf = Math.log10(documentCount / (double)(termCount.getValue())) / idf_max;
-			idfMap.put(termCount.getKey(), idf);
+		for (ObjectIntCursor<String> termCount : termCounts) {
+			double idf = Math.log10(documentCount / (double)(termCount.value)) / idf_max;
+			idfMap.put(termCount.key, idf);
 		}
 		return idfMap;
 	}
 
 	public ObjectIntHashMap<String> getCounts() {
-		ObjectIntHashMap<String> countsMap = new ObjectIntHashMap<>();
-		for (Map.Entry<String, Integer> termCount : termCounts.entrySet()) {
-			countsMap.put(termCount.getKey(), termCount.getValue());
-		}
-		return countsMap;
+		return new ObjectIntHashMap<>(termCounts);
 	}
 
 	// +1, as for queries, where unknown words might be queried
@@ -103,15 +116,21 @@ public class IdfMake {
 		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
 		encoder.onMalformedInput(CodingErrorAction.REPLACE);
 		encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		List<String> terms = new ArrayList<>(termCounts.size());
+		for (ObjectIntCursor<String> termCount : termCounts) {
+			terms.add(termCount.key);
+		}
+		Collections.sort(terms);
 		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(output), encoder))) {
 			writer.write(documentCount + "\n");
 			double idf_max = Math.log10(documentCount);
-			for (Map.Entry<String, Integer> termCount : termCounts.entrySet()) {
-				writer.write(termCount.getKey());
+			for (String term : terms) {
+				int count = termCounts.get(term);
+				writer.write(term);
 				writer.write("\t");
-				writer.write(termCount.getValue().toString());
+				writer.write(String.valueOf(count));
 				writer.write("\t");
-				double idf = Math.log10(documentCount / (double)(termCount.getValue() + 1)) / idf_max;
+				double idf = Math.log10(documentCount / (double)(count + 1)) / idf_max;
 				if (idf < 0) idf = 0;
 				writer.write(String.valueOf(idf));
 				writer.write("\n");
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.idf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.edamontology.edammap.core.processing.VarInt;
+
+// State of an IDF made from queries, for updating the IDF incrementally: for each query (by key), a fingerprint of its content and the set of its terms.
+// When updating, queries with unchanged fingerprint don't have to be processed again, as their terms are taken from the state.
+// The settings (preprocessing args, etc) the state was made with are also stored, a state made with different settings is not used.
+public class IdfMakeState {
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private static final int MAGIC = 0x45444953;
+
+	private static final int VERSION = 1;
+
+	private static final String STATE = "IDF state";
+
+	public static final class Entry {
+
+		private final byte[] fingerprint;
+
+		private final String[] terms;
+
+		private Entry(byte[] fingerprint, String[] terms) {
+			this.fingerprint = fingerprint;
+			this.terms = terms;
+		}
+
+		public byte[] getFingerprint() {
+			return fingerprint;
+		}
+
+		public List<String> getTerms() {
+			return Arrays.asList(terms);
+		}
+	}
+
+	private final String settings;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	public IdfMakeState(String settings) {
+		this.settings = settings;
+	}
+
+	// empty state if file does not exist, was made with different settings or can't be read (then all queries are processed again)
+	public static IdfMakeState read(String path, String settings) {
+		if (!Files.exists(Paths.get(path))) {
+			logger.info("IDF state {} does not exist, all queries will be processed", path);
+			return new IdfMakeState(settings);
+		}
+		try {
+			return readState(path, settings);
+		} catch (IOException e) {
+			logger.warn("Can't read IDF state {} ({}), all queries will be processed", path, e.toString());
+			return new IdfMakeState(settings);
+		}
+	}
+
+	private static IdfMakeState readState(String path, String settings) throws IOException {
+		IdfMakeState state = new IdfMakeState(settings);
+		// any length read from the file can't be more than the size of the file, checked before allocating
+		long fileSize = Files.size(Paths.get(path));
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(path))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("File " + path + " is not an IDF state");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported version " + version + " of IDF state " + path);
+			}
+			String stateSettings = readString(in, fileSize);
+			if (!stateSettings.equals(settings)) {
+				logger.info("IDF state {} was made with different settings ({}), all queries will be processed", path, stateSettings);
+				return state;
+			}
+			String[] terms = new String[readLength(in, fileSize)];
+			for (int i = 0; i < terms.length; ++i) {
+				terms[i] = readString(in, fileSize);
+			}
+			int size = readLength(in, fileSize);
+			for (int i = 0; i < size; ++i) {
+				String key = readString(in, fileSize);
+				byte[] fingerprint = new byte[readLength(in, fileSize)];
+				in.readFully(fingerprint);
+				String[] entryTerms = new String[readLength(in, fileSize)];
+				int termIndex = 0;
+				for (int j = 0; j < entryTerms.length; ++j) {
+					termIndex += VarInt.read(in, STATE);
+					if (termIndex < 0 || termIndex >= terms.length) {
+						throw new IOException("Term index " + termIndex + " out of bounds in IDF state " + path);
+					}
+					entryTerms[j] = terms[termIndex];
+				}
+				state.entries.put(key, new Entry(fingerprint, entryTerms));
+			}
+		}
+		logger.info("Loaded IDF state {} with {} queries", path, state.entries.size());
+		return state;
+	}
+
+	public Entry get(String key) {
+		return entries.get(key);
+	}
+
+	public synchronized void put(String key, byte[] fingerprint, Collection<String> terms) {
+		entries.put(key, new Entry(fingerprint, terms.toArray(new String[terms.size()])));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	// entries in the order of keys, so that output does not depend on the order entries were put in
+	public void write(String path, List<String> keys) throws IOException {
+		Map<String, Integer> termIndexes = new HashMap<>();
+		List<String> terms = new ArrayList<>();
+		for (String key : keys) {
+			for (String term : entries.get(key).terms) {
+				if (!termIndexes.containsKey(term)) {
+					termIndexes.put(term, terms.size());
+					terms.add(term);
+				}
+			}
+		}
+
+		Path output = Paths.get(path);
+		Path tmp = Paths.get(path + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, settings);
+			VarInt.write(out, terms.size());
+			for (String term : terms) {
+				writeString(out, term);
+			}
+			VarInt.write(out, keys.size());
+			for (String key : keys) {
+				Entry entry = entries.get(key);
+				writeString(out, key);
+				VarInt.write(out, entry.fingerprint.length);
+				out.write(entry.fingerprint);
+				int[] entryTermIndexes = new int[entry.terms.length];
+				for (int i = 0; i < entryTermIndexes.length; ++i) {
+					entryTermIndexes[i] = termIndexes.get(entry.terms[i]);
+				}
+				Arrays.sort(entryTermIndexes);
+				VarInt.write(out, entryTermIndexes.length);
+				int previous = 0;
+				for (int termIndex : entryTermIndexes) {
+					VarInt.write(out, termIndex - previous);
+					previous = termIndex;
+				}
+			}
+		}
+		Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		VarInt.write(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static int readLength(DataInputStream in, long fileSize) throws IOException {
+		int length = VarInt.read(in, STATE);
+		if (length > fileSize) {
+			throw new IOException("Length " + length + " larger than " + STATE + " of " + fileSize + " bytes");
+		}
+		return length;
+	}
+
+	private static String readString(DataInputStream in, long fileSize) throws IOException {
+		byte[] bytes = new byte[readLength(in, fileSize)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
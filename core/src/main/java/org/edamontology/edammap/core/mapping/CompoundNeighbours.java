@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.mapping;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+
+// Concept compounds and concept tokens that can be matched through an accidental compound to tokens of the query,
+// found once per query with the BkTrees of the concept compounds and of the concept vocabulary,
+// so that concepts only matchable through compounds are not pruned.
+class CompoundNeighbours {
+
+	// for each query token ID, IDs of concept compounds (of ConceptCompounds) within the allowed distance of it
+	private final IntObjectHashMap<int[]> compounds = new IntObjectHashMap<>();
+
+	// for each query token list, IDs of concept tokens within the allowed distance of some compound of the list
+	private final Map<List<String>, int[]> tokens = new IdentityHashMap<>();
+
+	void putCompounds(int queryTokenId, int[] compoundIds) {
+		compounds.put(queryTokenId, compoundIds);
+	}
+
+	// null if not a query token of a part where compounds are matched
+	int[] getCompounds(int queryTokenId) {
+		return compounds.get(queryTokenId);
+	}
+
+	void putTokens(List<String> queryTokens, int[] tokenIds) {
+		tokens.put(queryTokens, tokenIds);
+	}
+
+	// null if not a query token list of a part where compounds are matched
+	int[] getTokens(List<String> queryTokens) {
+		return tokens.get(queryTokens);
+	}
+}
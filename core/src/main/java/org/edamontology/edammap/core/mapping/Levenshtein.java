@@ -19,6 +19,8 @@
 
 package org.edamontology.edammap.core.mapping;
 
+import java.util.Arrays;
+
 public class Levenshtein {
 
 	public static int standard(String a, String b) {
@@ -116,4 +118,172 @@ public class Levenshtein {
 
 		return p - 1;
 	}
+
+	// Myers G. A fast bit-vector algorithm for approximate string matching based on dynamic programming. (https://doi.org/10.1145/316542.316550)
+	// Hyyrö H. A bit-vector algorithm for computing Levenshtein and Damerau edit distances.
+	// Same result as improved(), but computes a column of the DP matrix with a few operations on 64-bit words,
+	// the pattern (the shorter of a and b) being split into blocks of 64 symbols if it is longer.
+
+	private static final int WORD = 64;
+
+	// symbols below this have a fixed place in the peq table, others are looked up from extraSymbols
+	private static final int DIRECT_SYMBOLS = 128;
+
+	private int[] aSymbols = new int[WORD];
+	private int[] bSymbols = new int[WORD];
+
+	// for each block of the pattern and each symbol, bits of the pattern positions containing the symbol
+	private long[] peq = new long[DIRECT_SYMBOLS];
+
+	private int[] extraSymbols = new int[8];
+	private int extraSize;
+
+	private long[] pvs = new long[2];
+	private long[] mvs = new long[2];
+
+	public int bitParallel(String a, String b, int p_max) {
+		if (aSymbols.length < a.length()) aSymbols = new int[a.length()];
+		for (int i = 0; i < a.length(); ++i) aSymbols[i] = a.charAt(i);
+		if (bSymbols.length < b.length()) bSymbols = new int[b.length()];
+		for (int i = 0; i < b.length(); ++i) bSymbols[i] = b.charAt(i);
+		return bitParallel(aSymbols, a.length(), bSymbols, b.length(), p_max);
+	}
+
+	public int bitParallel(char[] a, char[] b, int p_max) {
+		if (aSymbols.length < a.length) aSymbols = new int[a.length];
+		for (int i = 0; i < a.length; ++i) aSymbols[i] = a[i];
+		if (bSymbols.length < b.length) bSymbols = new int[b.length];
+		for (int i = 0; i < b.length; ++i) bSymbols[i] = b[i];
+		return bitParallel(aSymbols, a.length, bSymbols, b.length, p_max);
+	}
+
+	public int bitParallel(int[] a, int[] b, int p_max) {
+		return bitParallel(a, a.length, b, b.length, p_max);
+	}
+
+	private int symbolIndex(int symbol) {
+		if (symbol >= 0 && symbol < DIRECT_SYMBOLS) return symbol;
+		for (int i = 0; i < extraSize; ++i) {
+			if (extraSymbols[i] == symbol) return DIRECT_SYMBOLS + i;
+		}
+		return -1;
+	}
+
+	private int bitParallel(int[] a, int m, int[] b, int n, int p_max) {
+		if (Math.abs(n - m) > p_max) return -1;
+
+		if (p_max == 0) {
+			for (int i = 0; i < m; ++i) {
+				if (a[i] != b[i]) return -1;
+			}
+			return 0;
+		}
+
+		// the pattern is the shorter one
+		if (m > n) {
+			int[] swap = a;
+			a = b;
+			b = swap;
+			int swapLength = m;
+			m = n;
+			n = swapLength;
+		}
+		if (m == 0) return n;
+
+		extraSize = 0;
+		for (int i = 0; i < m; ++i) {
+			if (symbolIndex(a[i]) < 0) {
+				if (extraSize == extraSymbols.length) extraSymbols = Arrays.copyOf(extraSymbols, extraSize * 2);
+				extraSymbols[extraSize++] = a[i];
+			}
+		}
+		int stride = DIRECT_SYMBOLS + extraSize;
+		int blocks = (m + WORD - 1) / WORD;
+		if (peq.length < blocks * stride) peq = new long[blocks * stride];
+		for (int i = 0; i < m; ++i) {
+			peq[(i / WORD) * stride + symbolIndex(a[i])] |= 1L << (i % WORD);
+		}
+
+		int d;
+		if (blocks == 1) {
+			d = bitParallelWord(b, n, m, p_max);
+		} else {
+			d = bitParallelBlocks(b, n, m, blocks, stride, p_max);
+		}
+
+		// leave peq zeroed for the next call
+		for (int i = 0; i < m; ++i) {
+			peq[(i / WORD) * stride + symbolIndex(a[i])] = 0;
+		}
+
+		return d;
+	}
+
+	private int bitParallelWord(int[] b, int n, int m, int p_max) {
+		long last = 1L << (m - 1);
+		long pv = -1L;
+		long mv = 0;
+		int score = m;
+
+		for (int j = 0; j < n; ++j) {
+			int index = symbolIndex(b[j]);
+			long eq = (index < 0 ? 0 : peq[index]);
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0) ++score;
+			else if ((mh & last) != 0) --score;
+			ph = (ph << 1) | 1;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+			// each remaining column can decrease the score by at most 1
+			if (score - (n - j - 1) > p_max) return -1;
+		}
+
+		return (score > p_max ? -1 : score);
+	}
+
+	private int bitParallelBlocks(int[] b, int n, int m, int blocks, int stride, int p_max) {
+		if (pvs.length < blocks) {
+			pvs = new long[blocks];
+			mvs = new long[blocks];
+		}
+		Arrays.fill(pvs, 0, blocks, -1L);
+		Arrays.fill(mvs, 0, blocks, 0);
+		long last = 1L << ((m - 1) % WORD);
+		int score = m;
+
+		for (int j = 0; j < n; ++j) {
+			int index = symbolIndex(b[j]);
+			// horizontal delta coming into the block from above, the first row increasing by 1 in each column
+			int h = 1;
+			for (int k = 0; k < blocks; ++k) {
+				long eq = (index < 0 ? 0 : peq[k * stride + index]);
+				long pv = pvs[k];
+				long mv = mvs[k];
+				long xv = eq | mv;
+				if (h < 0) eq |= 1;
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+				long high = (k == blocks - 1 ? last : Long.MIN_VALUE);
+				int hOut = 0;
+				if ((ph & high) != 0) hOut = 1;
+				else if ((mh & high) != 0) hOut = -1;
+				ph <<= 1;
+				mh <<= 1;
+				if (h < 0) mh |= 1;
+				else if (h > 0) ph |= 1;
+				pvs[k] = mh | ~(xv | ph);
+				mvs[k] = ph & xv;
+				h = hOut;
+			}
+			score += h;
+			if (score - (n - j - 1) > p_max) return -1;
+		}
+
+		return (score > p_max ? -1 : score);
+	}
 }
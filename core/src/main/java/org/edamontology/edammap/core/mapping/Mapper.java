@@ -21,12 +21,25 @@ package org.edamontology.edammap.core.mapping;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
 
 import org.edamontology.edammap.core.edam.Branch;
 import org.edamontology.edammap.core.edam.EdamUri;
@@ -35,86 +48,425 @@ import org.edamontology.edammap.core.mapping.args.IdfArgs;
 import org.edamontology.edammap.core.mapping.args.MapperArgs;
 import org.edamontology.edammap.core.mapping.args.MultiplierArgs;
 import org.edamontology.edammap.core.mapping.args.NormaliserArgs;
+import org.edamontology.edammap.core.mapping.args.ScoreArgs;
+import org.edamontology.edammap.core.mapping.args.WeightArgs;
+import org.edamontology.edammap.core.processing.BkTree;
+import org.edamontology.edammap.core.processing.ConceptCompounds;
+import org.edamontology.edammap.core.processing.ConceptRegistry;
+import org.edamontology.edammap.core.processing.ConceptIndex;
 import org.edamontology.edammap.core.processing.ConceptProcessed;
 import org.edamontology.edammap.core.processing.PublicationProcessed;
 import org.edamontology.edammap.core.processing.QueryProcessed;
+import org.edamontology.edammap.core.processing.TokenDictionary;
 import org.edamontology.edammap.core.query.Query;
 
 public class Mapper {
 
+	private static final Logger logger = LogManager.getLogger();
+
 	private static final int FIND_BEST_REPLACEMENT_RECURSION_LIMIT = 10;
 
-	private class M {
-		private M(int to, int from, double score) {
-			this.to = to;
-			this.from = from;
-			this.score = score;
+	private static final int ALL_FIELDS = -1;
+
+	private static final int MIN_SCORED = 64;
+
+	// minimum number of concepts scored by one task of pool
+	private static final int MIN_TASK_SIZE = 32;
+
+	// query parts in the order they are matched in getBestMatch, EFO and GO terms being one part
+	private static final QueryMatchType[] BEST_MATCH_PARTS = {
+		QueryMatchType.name, QueryMatchType.keyword, QueryMatchType.description,
+		QueryMatchType.publication_title, QueryMatchType.publication_keyword, QueryMatchType.publication_mesh, QueryMatchType.publication_efo,
+		QueryMatchType.publication_abstract, QueryMatchType.publication_fulltext,
+		QueryMatchType.doc, QueryMatchType.webpage
+	};
+
+	// upper bounds of scores for each concept (by ordinal)
+	private class UpperBounds {
+		private UpperBounds(int size) {
+			this.scores = new double[size];
+			this.limitScores = new double[size];
+			this.removed = new boolean[size];
 		}
-		private int to;
-		private int from;
-		private double score;
+		// score before path enrichment
+		private final double[] scores;
+		// score after path enrichment, i.e. the score matches are sorted by
+		private double[] pathScores;
+		// score compared to goodScore and badScore
+		private final double[] limitScores;
+		// removed regardless of the query
+		private final boolean[] removed;
 	}
 
 	private final Map<EdamUri, ConceptProcessed> processedConcepts;
 
 	private final Set<EdamUri> edamBlacklist;
 
+	private final ConceptIndex conceptIndex;
+
+	private final ForkJoinPool pool;
+
+	// from conceptIndex, or built on first use if there is no conceptIndex
+	private ConceptRegistry registry = null;
+
+	// ordinals of concepts in edamBlacklist
+	private BitSet blacklisted = null;
+
 	private final Levenshtein levenshtein;
 
+	private final TokenPairMemo tokenPairMemo;
+
+	// compounds of token lists of the current query and of concepts, see getCompounds
+	private final Map<List<String>, String[][]> compounds = new IdentityHashMap<>();
+
+	private final TokenMatches tokenMatches = new TokenMatches();
+
+	// worker Mappers of scoreConcepts, kept until the end of map(), so that their memos and compounds are reused by all tasks and rounds of scoring for the query
+	private final List<Mapper> workers = Collections.synchronizedList(new ArrayList<>());
+
+	// workers not currently used by a task
+	private final Queue<Mapper> idleWorkers = new ConcurrentLinkedQueue<>();
+
+	private final double[] bestPositionScoresEdge = new double[1];
+	private final double[] bestPositionScoresMiddle = new double[2];
+
+	// scratch arrays of getPathScores, sums of all concepts are -infinity between calls
+	private double[] pathSums = null;
+	private double[] pathSumsNext = null;
+	private int[] pathLevel = null;
+	private int[] pathLevelNext = null;
+
+	private long tokenPairMemoHits = 0;
+
+	private long tokenPairMemoLookups = 0;
+
 	public Mapper(Map<EdamUri, ConceptProcessed> processedConcepts, Set<EdamUri> edamBlacklist) {
+		this(processedConcepts, edamBlacklist, null);
+	}
+
+	public Mapper(Map<EdamUri, ConceptProcessed> processedConcepts, Set<EdamUri> edamBlacklist, ConceptIndex conceptIndex) {
+		this(processedConcepts, edamBlacklist, conceptIndex, null);
+	}
+
+	// conceptIndex must be made of processedConcepts and of the TokenDictionary given to Processor.getProcessedConcepts when processedConcepts was made
+	// if pool is not null, concepts of a query are scored in parallel in it, with the hierarchy of concepts and the selection of top matches still done sequentially
+	public Mapper(Map<EdamUri, ConceptProcessed> processedConcepts, Set<EdamUri> edamBlacklist, ConceptIndex conceptIndex, ForkJoinPool pool) {
 		if (processedConcepts == null) {
 			throw new IllegalArgumentException("Given concepts is null");
 		}
 		this.processedConcepts = processedConcepts;
 		this.edamBlacklist = edamBlacklist;
+		this.conceptIndex = (conceptIndex != null && conceptIndex.getProcessedConcepts() == processedConcepts ? conceptIndex : null);
+		this.pool = (pool != null && pool.getParallelism() > 1 ? pool : null);
+		if (this.conceptIndex != null) {
+			this.registry = this.conceptIndex.getRegistry();
+		}
 		this.levenshtein = new Levenshtein();
+		this.tokenPairMemo = new TokenPairMemo();
+	}
+
+	// number of times the score of an approximate or compound token match was found from the memo, over all queries mapped
+	public long getTokenPairMemoHits() {
+		return tokenPairMemoHits;
 	}
 
-	private List<M> getTokenMatches(List<String> tos, List<String> froms, int compoundWords, double mismatchMultiplier, double matchMinimum) {
-		List<M> matches = new ArrayList<>();
+	// number of times the memo was consulted, i.e. hits and approximate or compound token matches computed
+	public long getTokenPairMemoLookups() {
+		return tokenPairMemoLookups;
+	}
 
-		for (int toCW = 0; toCW <= compoundWords; ++toCW) {
-			for (int toI = 0; toI < tos.size() - toCW; ++toI) {
-				String to = tos.get(toI);
-				for (int toJ = 1; toJ <= toCW; ++toJ) {
-					to += " " + tos.get(toI + toJ);
+	// token IDs of given query and concepts can be compared only if they come from the same dictionary
+	private boolean isTokenIds(QueryProcessed processedQuery) {
+		return conceptIndex != null && processedQuery.getTokenDictionary() != null && processedQuery.getTokenDictionary().getParent() == conceptIndex.getTokenDictionary();
+	}
+
+	private boolean isField(int fields, ConceptMatchType field) {
+		return (fields & (1 << field.ordinal())) != 0;
+	}
+
+	// give add the query token and the concept tokens it can be approximately matched to, if not done already
+	private void addMatchable(int tokenId, TokenNeighbours tokenNeighbours, BitSet done, IntConsumer add) {
+		if (!done.get(tokenId)) {
+			add.accept(tokenId);
+			done.set(tokenId);
+		}
+		IntDoubleHashMap neighbours = (tokenNeighbours != null ? tokenNeighbours.getNeighbours(tokenId) : null);
+		if (neighbours != null) {
+			for (IntCursor neighbour : neighbours.keys()) {
+				if (!done.get(neighbour.value)) {
+					add.accept(neighbour.value);
+					done.set(neighbour.value);
+				}
+			}
+		}
+	}
+
+	// give add the concept tokens that compounds of the query token list can be matched to and addCompound the concept compounds that tokens of the list can be matched to, if not done already
+	private void addCompoundMatchable(CompoundNeighbours compoundNeighbours, List<String> tokens, int[] tokenIds, BitSet done, BitSet compoundsDone, IntConsumer add, IntConsumer addCompound) {
+		int[] neighbours = compoundNeighbours.getTokens(tokens);
+		if (neighbours != null) {
+			for (int neighbour : neighbours) {
+				if (!done.get(neighbour)) {
+					add.accept(neighbour);
+					done.set(neighbour);
+				}
+			}
+		}
+		for (int tokenId : tokenIds) {
+			int[] compoundIds = compoundNeighbours.getCompounds(tokenId);
+			if (compoundIds == null) continue;
+			for (int compoundId : compoundIds) {
+				if (!compoundsDone.get(compoundId)) {
+					addCompound.accept(compoundId);
+					compoundsDone.set(compoundId);
+				}
+			}
+		}
+	}
+
+	// fields of each concept (by ordinal in processedConcepts) containing some query token or its neighbour (or compound neighbour), or null if all concepts and fields must be scored
+	private int[] getCandidateFields(QueryPrepared preparedQuery, MapperArgs args) {
+		if (!preparedQuery.isTokenIds()) return null;
+		AlgorithmArgs algorithmArgs = args.getAlgorithmArgs();
+		if (algorithmArgs.getPruning() == MapperPruning.none) return null;
+		if (algorithmArgs.getPruning() == MapperPruning.exact && (algorithmArgs.getCompoundWords() > 0 && preparedQuery.getCompoundNeighbours() == null || algorithmArgs.getMatchMinimum() < 1 && preparedQuery.getTokenNeighbours() == null)) return null;
+		// otherwise not matching concepts would not have a score of 0
+		if (algorithmArgs.getConceptWeight() + algorithmArgs.getQueryWeight() <= 0) return null;
+		if (algorithmArgs.getMappingStrategy() == MapperStrategy.average && args.getWeightArgs().getAverageScaling() <= 0) return null;
+
+		int[] fields = new int[conceptIndex.size()];
+		BitSet done = new BitSet();
+		BitSet compoundsDone = new BitSet();
+		CompoundNeighbours compoundNeighbours = (algorithmArgs.getPruning() == MapperPruning.exact ? preparedQuery.getCompoundNeighbours() : null);
+		ConceptCompounds conceptCompounds = (compoundNeighbours != null ? conceptIndex.getCompounds(algorithmArgs.getCompoundWords()) : null);
+		for (QueryMatchType type : QueryMatchType.values()) {
+			QueryPrepared.Part part = preparedQuery.getPart(type);
+			if (part == null) continue;
+			for (int i = 0; i < part.tokenIds.size(); ++i) {
+				int[] tokenIds = part.tokenIds.get(i);
+				if (tokenIds == null) continue;
+				for (int tokenId : tokenIds) {
+					addMatchable(tokenId, preparedQuery.getTokenNeighbours(), done, id -> conceptIndex.addFields(fields, id));
+				}
+				if (compoundNeighbours != null && part.shortParts) {
+					addCompoundMatchable(compoundNeighbours, part.tokens.get(i), tokenIds, done, compoundsDone, id -> conceptIndex.addFields(fields, id), id -> conceptCompounds.addFields(fields, id));
+				}
+			}
+		}
+		return fields;
+	}
+
+	// concept tokens within the distance allowed by matchMinimum of each query token, with their match score
+	// null if approximate matching is not done or the distance allowed is not bounded by the length of the query token
+	private TokenNeighbours getTokenNeighbours(QueryPrepared preparedQuery, AlgorithmArgs args) {
+		if (!preparedQuery.isTokenIds() || args.getMatchMinimum() >= 1) return null;
+		// distance allowed is at most (int) (l * c), where l is the length of the longer token
+		double c = (1 - args.getMatchMinimum()) / args.getMismatchMultiplier();
+		if (c >= 1) return null;
+
+		TokenDictionary queryTokenDictionary = preparedQuery.getProcessedQuery().getTokenDictionary();
+		BkTree tokenTree = conceptIndex.getTokenTree();
+		TokenNeighbours tokenNeighbours = new TokenNeighbours(conceptIndex.getTokenDictionary().size());
+		IntArrayList ids = new IntArrayList();
+		IntArrayList distances = new IntArrayList();
+		BitSet done = new BitSet();
+
+		for (QueryMatchType type : QueryMatchType.values()) {
+			QueryPrepared.Part part = preparedQuery.getPart(type);
+			if (part == null) continue;
+			for (int[] tokenIds : part.tokenIds) {
+				if (tokenIds == null) continue;
+				for (int tokenId : tokenIds) {
+					if (done.get(tokenId)) continue;
+					done.set(tokenId);
+					String token = queryTokenDictionary.getToken(tokenId);
+					ids.clear();
+					distances.clear();
+					// a concept token longer than the query token by d can be matched if d <= c * (length + d)
+					tokenTree.search(token, (int) (token.length() * c / (1 - c)) + 1, levenshtein, ids, distances);
+					IntDoubleHashMap scores = new IntDoubleHashMap();
+					for (int i = 0; i < ids.size(); ++i) {
+						int l = Math.max(token.length(), conceptIndex.getTokenDictionary().getToken(ids.get(i)).length());
+						int d_max = (int) (l * (1 - args.getMatchMinimum()) / args.getMismatchMultiplier());
+						if (distances.get(i) <= d_max) {
+							scores.put(ids.get(i), 1 - (args.getMismatchMultiplier() * distances.get(i)) / (double)l);
+						}
+					}
+					tokenNeighbours.put(tokenId, scores);
+				}
+			}
+		}
+
+		return tokenNeighbours;
+	}
+
+	// maximum distance of a match between two strings, the longer of length l, one of them being a compound with given number of spaces (as in getApproximateScore)
+	private static int getCompoundDistanceMax(int l, int spaces, AlgorithmArgs args) {
+		int d_max = spaces;
+		if (args.getMatchMinimum() < 1) {
+			d_max += (int) (l * (1 - args.getMatchMinimum()) / args.getMismatchMultiplier());
+		}
+		return d_max;
+	}
+
+	// a string longer than the given string by d can be matched if d <= c * (length + d) + spaces
+	private static int getCompoundRadius(String s, int spaces, double c) {
+		return (int) ((s.length() * c + spaces) / (1 - c)) + (c > 0 ? 1 : 0);
+	}
+
+	private static int countSpaces(String s) {
+		int spaces = 0;
+		for (int i = 0; i < s.length(); ++i) {
+			if (s.charAt(i) == ' ') ++spaces;
+		}
+		return spaces;
+	}
+
+	// concept compounds within the distance allowed for a compound match of each query token, and concept tokens within the distance allowed of compounds of each query token list
+	// only for query parts where compounds are matched (see calculateScores)
+	// null if compound matching is not done or the distance allowed is not bounded by the length of the query token
+	private CompoundNeighbours getCompoundNeighbours(QueryPrepared preparedQuery, AlgorithmArgs args) {
+		if (!preparedQuery.isTokenIds() || args.getCompoundWords() <= 0) return null;
+		double c = (args.getMatchMinimum() < 1 ? (1 - args.getMatchMinimum()) / args.getMismatchMultiplier() : 0);
+		if (c >= 1) return null;
+
+		TokenDictionary queryTokenDictionary = preparedQuery.getProcessedQuery().getTokenDictionary();
+		TokenDictionary conceptTokenDictionary = conceptIndex.getTokenDictionary();
+		BkTree tokenTree = conceptIndex.getTokenTree();
+		ConceptCompounds conceptCompounds = conceptIndex.getCompounds(args.getCompoundWords());
+		TokenDictionary compoundDictionary = conceptCompounds.getCompoundDictionary();
+		BkTree compoundTree = conceptCompounds.getCompoundTree();
+		CompoundNeighbours compoundNeighbours = new CompoundNeighbours();
+		IntArrayList ids = new IntArrayList();
+		IntArrayList distances = new IntArrayList();
+		IntArrayList neighbours = new IntArrayList();
+		BitSet done = new BitSet();
+
+		for (QueryMatchType type : QueryMatchType.values()) {
+			QueryPrepared.Part part = preparedQuery.getPart(type);
+			if (part == null || !part.shortParts) continue;
+			for (int i = 0; i < part.tokenIds.size(); ++i) {
+				int[] tokenIds = part.tokenIds.get(i);
+				if (tokenIds == null) continue;
+
+				// query token matched to a compound of concept tokens
+				for (int tokenId : tokenIds) {
+					if (done.get(tokenId)) continue;
+					done.set(tokenId);
+					String token = queryTokenDictionary.getToken(tokenId);
+					ids.clear();
+					distances.clear();
+					compoundTree.search(token, getCompoundRadius(token, args.getCompoundWords(), c), levenshtein, ids, distances);
+					neighbours.clear();
+					for (int j = 0; j < ids.size(); ++j) {
+						String compound = compoundDictionary.getToken(ids.get(j));
+						if (distances.get(j) <= getCompoundDistanceMax(Math.max(token.length(), compound.length()), countSpaces(compound), args)) {
+							neighbours.add(ids.get(j));
+						}
+					}
+					compoundNeighbours.putCompounds(tokenId, neighbours.toArray());
+				}
+
+				// compound of query tokens matched to a concept token
+				List<String> tokens = part.tokens.get(i);
+				if (compoundNeighbours.getTokens(tokens) != null) continue;
+				neighbours.clear();
+				String[][] tokensCompounds = getCompounds(tokens, args.getCompoundWords());
+				for (int cw = 1; cw <= args.getCompoundWords(); ++cw) {
+					for (String compound : tokensCompounds[cw - 1]) {
+						ids.clear();
+						distances.clear();
+						tokenTree.search(compound, getCompoundRadius(compound, cw, c), levenshtein, ids, distances);
+						for (int j = 0; j < ids.size(); ++j) {
+							String token = conceptTokenDictionary.getToken(ids.get(j));
+							if (distances.get(j) <= getCompoundDistanceMax(Math.max(token.length(), compound.length()), cw, args)) {
+								neighbours.add(ids.get(j));
+							}
+						}
+					}
+				}
+				compoundNeighbours.putTokens(tokens, neighbours.toArray());
+			}
+		}
+
+		return compoundNeighbours;
+	}
+
+	private double getApproximateScore(String from, String to, int toCW, int fromCW, double mismatchMultiplier, double matchMinimum) {
+		int l = Math.max(from.length(), to.length());
+		int d_max = 0;
+		if (matchMinimum < 1) {
+			d_max += (int) (l * (1 - matchMinimum) / mismatchMultiplier);
+		}
+		if (toCW > 0 || fromCW > 0) {
+			d_max += toCW + fromCW;
+		}
+		int d = levenshtein.bitParallel(from, to, d_max);
+		if (d > -1) {
+			return 1 - (mismatchMultiplier * d) / (double)l;
+		} else {
+			return 0;
+		}
+	}
+
+	// compounds[cw - 1][i] is tokens i to i + cw joined with spaces
+	private String[][] getCompounds(List<String> tokens, int compoundWords) {
+		String[][] tokensCompounds = compounds.get(tokens);
+		if (tokensCompounds == null || tokensCompounds.length < compoundWords) {
+			tokensCompounds = new String[compoundWords][];
+			for (int cw = 1; cw <= compoundWords; ++cw) {
+				tokensCompounds[cw - 1] = new String[Math.max(tokens.size() - cw, 0)];
+				for (int i = 0; i < tokens.size() - cw; ++i) {
+					tokensCompounds[cw - 1][i] = (cw == 1 ? tokens.get(i) : tokensCompounds[cw - 2][i]) + " " + tokens.get(i + cw);
 				}
+			}
+			compounds.put(tokens, tokensCompounds);
+		}
+		return tokensCompounds;
+	}
+
+	// matches are put to tokenMatches, sorted by to
+	private void findTokenMatches(TokenNeighbours tokenNeighbours, List<String> tos, int[] toIds, List<String> froms, int[] fromIds, int compoundWords, double mismatchMultiplier, double matchMinimum) {
+		tokenMatches.clear();
 
+		String[][] toCompounds = (compoundWords > 0 ? getCompounds(tos, compoundWords) : null);
+		String[][] fromCompounds = (compoundWords > 0 ? getCompounds(froms, compoundWords) : null);
+
+		for (int toCW = 0; toCW <= compoundWords; ++toCW) {
+			for (int toI = 0; toI < tos.size() - toCW; ++toI) {
 				for (int fromCW = 0; fromCW <= compoundWords; ++fromCW) {
 					// Only do one-to-many and many-to-one matches
 					if (toCW > 0 && fromCW > 0) break;
 
 					for (int fromI = 0; fromI < froms.size() - fromCW; ++fromI) {
-						String from = froms.get(fromI);
-						for (int fromJ = 1; fromJ <= fromCW; ++fromJ) {
-							from += " " + froms.get(fromI + fromJ);
-						}
-
 						double score = 0;
-						if (matchMinimum < 1 || toCW > 0 || fromCW > 0) {
-							int l = Math.max(from.length(), to.length());
-							int d_max = 0;
-							if (matchMinimum < 1) {
-								d_max += (int) (l * (1 - matchMinimum) / mismatchMultiplier);
-							}
-							if (toCW > 0 || fromCW > 0) {
-								d_max += toCW + fromCW;
-							}
-							int d = levenshtein.improved(from, to, d_max);
-							if (d > -1) {
-								score = 1 - (mismatchMultiplier * d) / (double)l;
-							} else {
-								score = 0;
+						double neighbourScore = -1;
+						if (matchMinimum < 1 && toCW == 0 && fromCW == 0 && tokenNeighbours != null && toIds != null && fromIds != null) {
+							neighbourScore = tokenNeighbours.getScore(toIds[toI], fromIds[fromI]);
+						}
+						if (neighbourScore > -1) {
+							score = neighbourScore;
+						} else if (matchMinimum < 1 || toCW > 0 || fromCW > 0) {
+							long key = TokenPairMemo.getKey(toIds, toI, toCW, fromIds, fromI, fromCW, matchMinimum < 1);
+							score = (key > -1 ? tokenPairMemo.get(key) : Double.NaN);
+							if (Double.isNaN(score)) {
+								String to = (toCW == 0 ? tos.get(toI) : toCompounds[toCW - 1][toI]);
+								String from = (fromCW == 0 ? froms.get(fromI) : fromCompounds[fromCW - 1][fromI]);
+								score = getApproximateScore(from, to, toCW, fromCW, mismatchMultiplier, matchMinimum);
+								if (key > -1) tokenPairMemo.put(key, score);
 							}
+						} else if (toIds != null && fromIds != null) {
+							if (fromIds[fromI] == toIds[toI]) score = 1;
+							else score = 0;
 						} else {
-							if (from.equals(to)) score = 1;
+							if (froms.get(fromI).equals(tos.get(toI))) score = 1;
 							else score = 0;
 						}
 
 						if (score > 0) {
 							for (int toJ = 0; toJ <= toCW; ++toJ) {
 								for (int fromJ = 0; fromJ <= fromCW; ++fromJ) {
-									matches.add(new M(toI + toJ, fromI + fromJ, score));
+									tokenMatches.add(toI + toJ, fromI + fromJ, score);
 								}
 							}
 						}
@@ -124,10 +476,8 @@ public class Mapper {
 		}
 
 		if (compoundWords > 0) {
-			matches.sort((m1, m2) -> (m1.to > m2.to ? 1 : (m1.to < m2.to ? -1 : 0)));
+			tokenMatches.sortByTo();
 		}
-
-		return matches;
 	}
 
 	private void scorePositionIfBest(double[] bestPositionScores, double score) {
@@ -147,51 +497,53 @@ public class Mapper {
 		}
 	}
 
-	private void scorePosition(double[] bestPositionScores, int to, int from, List<M> matches, int index, double[] positionOffScores, double positionMatchScaling, double matchMinimum) {
+	private void scorePosition(double[] bestPositionScores, int to, int from, TokenMatches matches, int index, double[] positionOffScores, double positionMatchScaling, double matchMinimum) {
 		for (int i = index - 1; i >= 0; --i) {
-			M matcho = matches.get(i);
+			int matchoTo = matches.to[i];
+			int matchoFrom = matches.from[i];
 
-			if (matcho.to < to - positionOffScores.length) break;
+			if (matchoTo < to - positionOffScores.length) break;
 
-			int d = to - matcho.to;
+			int d = to - matchoTo;
 
 			int c = 0;
-			if (matcho.to < to) {
-				if (matcho.from < from) c = -2;
-				else if (matcho.from > from) c = -1;
+			if (matchoTo < to) {
+				if (matchoFrom < from) c = -2;
+				else if (matchoFrom > from) c = -1;
 			}
 
-			int positionOff = Math.abs(matcho.from - from) + d + c;
+			int positionOff = Math.abs(matchoFrom - from) + d + c;
 			if (positionOff < positionOffScores.length) {
 				double score = positionOffScores[positionOff];
 
 				if (matchMinimum < 1 && positionMatchScaling > 0) {
-					score *= Math.pow(matcho.score, positionMatchScaling);
+					score *= Math.pow(matches.score[i], positionMatchScaling);
 				}
 
 				scorePositionIfBest(bestPositionScores, score);
 			}
 		}
 
-		for (int i = index + 1; i < matches.size(); ++i) {
-			M matcho = matches.get(i);
+		for (int i = index + 1; i < matches.size; ++i) {
+			int matchoTo = matches.to[i];
+			int matchoFrom = matches.from[i];
 
-			if (matcho.to > to + positionOffScores.length) break;
+			if (matchoTo > to + positionOffScores.length) break;
 
-			int d = matcho.to - to;
+			int d = matchoTo - to;
 
 			int c = 0;
-			if (matcho.to > to) {
-				if (matcho.from < from) c = -1;
-				else if (matcho.from > from) c = -2;
+			if (matchoTo > to) {
+				if (matchoFrom < from) c = -1;
+				else if (matchoFrom > from) c = -2;
 			}
 
-			int positionOff = Math.abs(matcho.from - from) + d + c;
+			int positionOff = Math.abs(matchoFrom - from) + d + c;
 			if (positionOff < positionOffScores.length) {
 				double score = positionOffScores[positionOff];
 
 				if (matchMinimum < 1 && positionMatchScaling > 0) {
-					score *= Math.pow(matcho.score, positionMatchScaling);
+					score *= Math.pow(matches.score[i], positionMatchScaling);
 				}
 
 				scorePositionIfBest(bestPositionScores, score);
@@ -199,35 +551,37 @@ public class Mapper {
 		}
 	}
 
-	private void calculateScores(double[] bestScores, List<String> tos, List<String> froms, List<Double> fromIdfs, double fromIdfScaling, double fromMultiplier, AlgorithmArgs args, boolean shortParts) {
+	private void calculateScores(TokenNeighbours tokenNeighbours, double[] bestScores, List<String> tos, int[] toIds, List<String> froms, int[] fromIds, double[] fromIdfPowers, double fromMultiplier, AlgorithmArgs args, boolean shortParts) {
 		double[] positionOffScores = { 1, args.getPositionOffBy1(), args.getPositionOffBy2() };
 
-		List<M> matches = getTokenMatches(tos, froms, shortParts ? args.getCompoundWords() : 0, args.getMismatchMultiplier(), shortParts ? args.getMatchMinimum() : 1.0);
+		findTokenMatches(tokenNeighbours, tos, toIds, froms, fromIds, shortParts ? args.getCompoundWords() : 0, args.getMismatchMultiplier(), shortParts ? args.getMatchMinimum() : 1.0);
+		TokenMatches matches = tokenMatches;
 
 		double bestScore = 0;
 
-		for (int i = 0; i < matches.size(); ++i) {
-			M match = matches.get(i);
+		for (int i = 0; i < matches.size; ++i) {
+			int matchTo = matches.to[i];
+			int matchFrom = matches.from[i];
 
 			double[] bestPositionScores;
-			if ((match.to == 0 && match.from == 0) ||
-				(match.to == tos.size() - 1 && match.from == froms.size() - 1) ||
+			if ((matchTo == 0 && matchFrom == 0) ||
+				(matchTo == tos.size() - 1 && matchFrom == froms.size() - 1) ||
 				(tos.size() == 1)) {
 
-				bestPositionScores = new double[1];
+				bestPositionScores = bestPositionScoresEdge;
 				if (tos.size() == 1) {
 					bestPositionScores[0] = 1;
 				} else {
 					bestPositionScores[0] = 0;
 				}
 			} else {
-				bestPositionScores = new double[2];
+				bestPositionScores = bestPositionScoresMiddle;
 				bestPositionScores[0] = 0;
 				bestPositionScores[1] = 0;
 			}
 
 			if (tos.size() > 1 && args.getPositionLoss() > 0) {
-				scorePosition(bestPositionScores, match.to, match.from, matches, i, positionOffScores, args.getPositionMatchScaling(), args.getMatchMinimum());
+				scorePosition(bestPositionScores, matchTo, matchFrom, matches, i, positionOffScores, args.getPositionMatchScaling(), args.getMatchMinimum());
 			}
 
 			double bestPositionScore;
@@ -237,18 +591,18 @@ public class Mapper {
 				bestPositionScore = (bestPositionScores[0] + bestPositionScores[1]) / 2;
 			}
 
-			double score = match.score - args.getPositionLoss() * (1 - bestPositionScore);
+			double score = matches.score[i] - args.getPositionLoss() * (1 - bestPositionScore);
 			if (score < 0) {
 				score = 0;
 			}
-			if (fromIdfScaling > 0) {
-				score *= Math.pow(fromIdfs.get(match.from), fromIdfScaling);
+			if (fromIdfPowers != null) {
+				score *= fromIdfPowers[matchFrom];
 			}
 
-			if (i > 0 && match.to > matches.get(i - 1).to) {
+			if (i > 0 && matchTo > matches.to[i - 1]) {
 				bestScore *= fromMultiplier;
-				if (bestScore > bestScores[matches.get(i - 1).to]) {
-					bestScores[matches.get(i - 1).to] = bestScore;
+				if (bestScore > bestScores[matches.to[i - 1]]) {
+					bestScores[matches.to[i - 1]] = bestScore;
 				}
 				bestScore = 0;
 			}
@@ -257,15 +611,15 @@ public class Mapper {
 				bestScore = score;
 			}
 		}
-		if (matches.size() > 0) {
+		if (matches.size > 0) {
 			bestScore *= fromMultiplier;
-			if (bestScore > bestScores[matches.get(matches.size() - 1).to]) {
-				bestScores[matches.get(matches.size() - 1).to] = bestScore;
+			if (bestScore > bestScores[matches.to[matches.size - 1]]) {
+				bestScores[matches.to[matches.size - 1]] = bestScore;
 			}
 		}
 	}
 
-	private double getScoreSentenceToLabel(List<String> toTokens, List<Double> toIdfs, double toIdfScaling, List<List<String>> fromsTokens, List<List<Double>> fromsIdfs, List<Double> fromIdfScalings, List<Double> fromMultipliers, AlgorithmArgs args, boolean shortParts) {
+	private double getScoreSentenceToLabel(TokenNeighbours tokenNeighbours, List<String> toTokens, int[] toTokenIds, double[] toIdfPowers, List<List<String>> fromsTokens, List<int[]> fromsTokenIds, List<double[]> fromsIdfPowers, List<Double> fromMultipliers, AlgorithmArgs args, boolean shortParts) {
 		double best = 0;
 
 		for (int i = 0; i < fromsTokens.size(); ++i) {
@@ -276,7 +630,7 @@ public class Mapper {
 			if (args.getScoreScaling() > 0) {
 				multiplier = Math.pow(multiplier, 1 / args.getScoreScaling());
 			}
-			calculateScores(bestScores, toTokens, fromsTokens.get(i), fromsIdfs.get(i), fromIdfScalings.get(i), multiplier, args, shortParts);
+			calculateScores(tokenNeighbours, bestScores, toTokens, toTokenIds, fromsTokens.get(i), fromsTokenIds != null ? fromsTokenIds.get(i) : null, fromsIdfPowers.get(i), multiplier, args, shortParts);
 
 			double score = 0;
 
@@ -285,8 +639,8 @@ public class Mapper {
 					score = 0;
 					break;
 				}
-				if (toIdfScaling > 0) {
-					score += bestScores[j] * Math.pow(toIdfs.get(j), toIdfScaling);
+				if (toIdfPowers != null) {
+					score += bestScores[j] * toIdfPowers[j];
 				} else {
 					score += bestScores[j];
 				}
@@ -301,7 +655,7 @@ public class Mapper {
 		return best;
 	}
 
-	private double getScoreSentence(List<String> toTokens, List<Double> toIdfs, double toIdfScaling, List<List<String>> fromsTokens, List<List<Double>> fromsIdfs, List<Double> fromIdfScalings, List<Double> fromMultipliers, AlgorithmArgs args, boolean shortParts) {
+	private double getScoreSentence(TokenNeighbours tokenNeighbours, List<String> toTokens, int[] toTokenIds, double[] toIdfPowers, List<List<String>> fromsTokens, List<int[]> fromsTokenIds, List<double[]> fromsIdfPowers, List<Double> fromMultipliers, AlgorithmArgs args, boolean shortParts) {
 		double[] bestScores = new double[toTokens.size()];
 		Arrays.fill(bestScores, 0);
 
@@ -310,13 +664,13 @@ public class Mapper {
 			if (args.getScoreScaling() > 0) {
 				multiplier = Math.pow(multiplier, 1 / args.getScoreScaling());
 			}
-			calculateScores(bestScores, toTokens, fromsTokens.get(i), fromsIdfs.get(i), fromIdfScalings.get(i), multiplier, args, shortParts);
+			calculateScores(tokenNeighbours, bestScores, toTokens, toTokenIds, fromsTokens.get(i), fromsTokenIds != null ? fromsTokenIds.get(i) : null, fromsIdfPowers.get(i), multiplier, args, shortParts);
 		}
 
 		double bestScoresSum = 0;
 		for (int i = 0; i < bestScores.length; ++i) {
-			if (toIdfScaling > 0) {
-				bestScoresSum += bestScores[i] * Math.pow(toIdfs.get(i), toIdfScaling);
+			if (toIdfPowers != null) {
+				bestScoresSum += bestScores[i] * toIdfPowers[i];
 			} else {
 				bestScoresSum += bestScores[i];
 			}
@@ -326,7 +680,7 @@ public class Mapper {
 	}
 
 	@SuppressWarnings("unchecked")
-	private double getScore(List<?> toTokens, List<?> toIdfs, double toIdfScaling, double toMultiplier, List<List<String>> fromsTokens, List<List<Double>> fromsIdfs, List<Double> fromIdfScalings, List<Double> fromMultipliers, AlgorithmArgs args, boolean toLabel, boolean shortParts) {
+	private double getScore(TokenNeighbours tokenNeighbours, List<?> toTokens, Object toTokenIds, Object toIdfPowers, double toMultiplier, List<List<String>> fromsTokens, List<int[]> fromsTokenIds, List<double[]> fromsIdfPowers, List<Double> fromMultipliers, AlgorithmArgs args, boolean toLabel, boolean shortParts) {
 		if (toTokens.isEmpty()) return 0;
 
 		double score;
@@ -334,14 +688,14 @@ public class Mapper {
 		if (toTokens.get(0) instanceof List) {
 			double scoresSum = 0;
 			for (int i = 0; i < toTokens.size(); ++i) {
-				scoresSum += getScoreSentence((List<String>) toTokens.get(i), toIdfs != null ? (List<Double>) toIdfs.get(i) : null, toIdfScaling, fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, args, shortParts);
+				scoresSum += getScoreSentence(tokenNeighbours, (List<String>) toTokens.get(i), toTokenIds != null ? ((List<int[]>) toTokenIds).get(i) : null, toIdfPowers != null ? ((List<double[]>) toIdfPowers).get(i) : null, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, args, shortParts);
 			}
 			score = scoresSum / (double)toTokens.size();
 		} else {
 			if (toLabel) {
-				score = getScoreSentenceToLabel((List<String>) toTokens, (List<Double>) toIdfs, toIdfScaling, fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, args, shortParts);
+				score = getScoreSentenceToLabel(tokenNeighbours, (List<String>) toTokens, (int[]) toTokenIds, (double[]) toIdfPowers, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, args, shortParts);
 			} else {
-				score = getScoreSentence((List<String>) toTokens, (List<Double>) toIdfs, toIdfScaling, fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, args, shortParts);
+				score = getScoreSentence(tokenNeighbours, (List<String>) toTokens, (int[]) toTokenIds, (double[]) toIdfPowers, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, args, shortParts);
 			}
 		}
 
@@ -355,189 +709,28 @@ public class Mapper {
 	}
 
 	// TODO try to make less copy-pasty
-	private ConceptMatch toConceptFromQuery(ConceptProcessed processedConcept, QueryProcessed processedQuery, QueryMatchType type, AlgorithmArgs algorithmArgs, IdfArgs idfArgs, MultiplierArgs multiplierArgs, NormaliserArgs normaliserArgs) {
-		List<List<String>> fromsTokens = new ArrayList<>();
-		List<List<Double>> fromsIdfs = new ArrayList<>();
-		List<Double> fromIdfScalings = new ArrayList<>();
-		List<Double> fromMultipliers = new ArrayList<>();
-		boolean fromShort = false;
-
-		switch (type) {
-		case name:
-			if (processedQuery.getNameTokens() != null && normaliserArgs.getNameNormaliser() > 0) {
-				fromsTokens.add(processedQuery.getNameTokens());
-				fromsIdfs.add(processedQuery.getNameIdfs());
-				fromIdfScalings.add((processedQuery.getNameIdfs() == null || !idfArgs.isNameKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-				fromMultipliers.add(Double.valueOf(1));
-			}
-			fromShort = true;
-			break;
-		case keyword:
-			if (normaliserArgs.getKeywordNormaliser() > 0) {
-				for (int i = 0; i < processedQuery.getKeywordsTokens().size(); ++i) {
-					if (processedQuery.getKeywordsTokens().get(i) == null) continue;
-					fromsTokens.add(processedQuery.getKeywordsTokens().get(i));
-					fromsIdfs.add(processedQuery.getKeywordsIdfs().get(i));
-					fromIdfScalings.add((processedQuery.getKeywordsIdfs().get(i) == null || !idfArgs.isNameKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-					fromMultipliers.add(Double.valueOf(1));
-				}
-			}
-			fromShort = true;
-			break;
-		case description:
-			if (normaliserArgs.getDescriptionNormaliser() > 0) {
-				for (int i = 0; i < processedQuery.getDescriptionTokens().size(); ++i) {
-					fromsTokens.add(processedQuery.getDescriptionTokens().get(i));
-					fromsIdfs.add(processedQuery.getDescriptionIdfs() != null ? processedQuery.getDescriptionIdfs().get(i) : null);
-					fromIdfScalings.add((processedQuery.getDescriptionIdfs() == null || processedQuery.getDescriptionIdfs().get(i) == null || !idfArgs.isDescriptionIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-					fromMultipliers.add(Double.valueOf(1));
-				}
-			}
-			fromShort = true;
-			break;
-		case publication_title:
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
-				if (processedPublication.getTitleTokens() != null && normaliserArgs.getPublicationTitleNormaliser() > 0) {
-					fromsTokens.add(processedPublication.getTitleTokens());
-					fromsIdfs.add(processedPublication.getTitleIdfs());
-					fromIdfScalings.add((processedPublication.getTitleIdfs() == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-					fromMultipliers.add(Double.valueOf(1));
-				}
-			}
-			fromShort = true;
-			break;
-		case publication_keyword:
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
-				if (normaliserArgs.getPublicationKeywordNormaliser() > 0) {
-					for (int i = 0; i < processedPublication.getKeywordsTokens().size(); ++i) {
-						if (processedPublication.getKeywordsTokens().get(i) == null) continue;
-						fromsTokens.add(processedPublication.getKeywordsTokens().get(i));
-						fromsIdfs.add(processedPublication.getKeywordsIdfs().get(i));
-						fromIdfScalings.add((processedPublication.getKeywordsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = true;
-			break;
-		case publication_mesh:
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
-				if (normaliserArgs.getPublicationMeshNormaliser() > 0) {
-					for (int i = 0; i < processedPublication.getMeshTermsTokens().size(); ++i) {
-						if (processedPublication.getMeshTermsTokens().get(i) == null) continue;
-						fromsTokens.add(processedPublication.getMeshTermsTokens().get(i));
-						fromsIdfs.add(processedPublication.getMeshTermsIdfs().get(i));
-						fromIdfScalings.add((processedPublication.getMeshTermsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = true;
-			break;
-		case publication_efo:
-		case publication_go:
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
-				if (normaliserArgs.getPublicationMinedTermNormaliser() > 0) {
-					for (int i = 0; i < processedPublication.getEfoTermsTokens().size(); ++i) {
-						if (processedPublication.getEfoTermsTokens().get(i) == null) continue;
-						fromsTokens.add(processedPublication.getEfoTermsTokens().get(i));
-						fromsIdfs.add(processedPublication.getEfoTermsIdfs().get(i));
-						fromIdfScalings.add((processedPublication.getEfoTermsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-				if (normaliserArgs.getPublicationMinedTermNormaliser() > 0) {
-					for (int i = 0; i < processedPublication.getGoTermsTokens().size(); ++i) {
-						if (processedPublication.getGoTermsTokens().get(i) == null) continue;
-						fromsTokens.add(processedPublication.getGoTermsTokens().get(i));
-						fromsIdfs.add(processedPublication.getGoTermsIdfs().get(i));
-						fromIdfScalings.add((processedPublication.getGoTermsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = true;
-			break;
-		case publication_abstract:
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
-				if (normaliserArgs.getPublicationAbstractNormaliser() > 0) {
-					for (int i = 0; i < processedPublication.getAbstractTokens().size(); ++i) {
-						fromsTokens.add(processedPublication.getAbstractTokens().get(i));
-						fromsIdfs.add(processedPublication.getAbstractIdfs() != null ? processedPublication.getAbstractIdfs().get(i) : null);
-						fromIdfScalings.add((processedPublication.getAbstractIdfs() == null || processedPublication.getAbstractIdfs().get(i) == null || !idfArgs.isAbstractIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = true;
-			break;
-		case publication_fulltext:
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
-				if (normaliserArgs.getPublicationFulltextNormaliser() > 0) {
-					for (int i = 0; i < processedPublication.getFulltextTokens().size(); ++i) {
-						fromsTokens.add(processedPublication.getFulltextTokens().get(i));
-						fromsIdfs.add(processedPublication.getFulltextIdfs() != null ? processedPublication.getFulltextIdfs().get(i) : null);
-						fromIdfScalings.add((processedPublication.getFulltextIdfs() == null || processedPublication.getFulltextIdfs().get(i) == null) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = false;
-			break;
-		case doc:
-			if (normaliserArgs.getDocNormaliser() > 0) {
-				for (int i = 0; i < processedQuery.getDocsTokens().size(); ++i) {
-					if (processedQuery.getDocsTokens().get(i) == null) continue;
-					for (int j = 0; j < processedQuery.getDocsTokens().get(i).size(); ++j) {
-						fromsTokens.add(processedQuery.getDocsTokens().get(i).get(j));
-						fromsIdfs.add(processedQuery.getDocsIdfs().get(i) == null ? null : processedQuery.getDocsIdfs().get(i).get(j));
-						fromIdfScalings.add((processedQuery.getDocsIdfs().get(i) == null) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = false;
-			break;
-		case webpage:
-			if (normaliserArgs.getWebpageNormaliser() > 0) {
-				for (int i = 0; i < processedQuery.getWebpagesTokens().size(); ++i) {
-					if (processedQuery.getWebpagesTokens().get(i) == null) continue;
-					for (int j = 0; j < processedQuery.getWebpagesTokens().get(i).size(); ++j) {
-						fromsTokens.add(processedQuery.getWebpagesTokens().get(i).get(j));
-						fromsIdfs.add(processedQuery.getWebpagesIdfs().get(i) == null ? null : processedQuery.getWebpagesIdfs().get(i).get(j));
-						fromIdfScalings.add((processedQuery.getWebpagesIdfs().get(i) == null) ? 0 : idfArgs.getQueryIdfScaling());
-						fromMultipliers.add(Double.valueOf(1));
-					}
-				}
-			}
-			fromShort = false;
-			break;
-		default:
-			break;
-		}
+	private ConceptMatch toConceptFromQuery(ConceptProcessed processedConcept, QueryPrepared preparedQuery, QueryMatchType type, AlgorithmArgs algorithmArgs, IdfArgs idfArgs, MultiplierArgs multiplierArgs, int fields) {
+		QueryPrepared.Part part = preparedQuery.getPart(type);
+		List<List<String>> fromsTokens = part.tokens;
+		List<int[]> fromsTokenIds = part.tokenIds;
+		List<double[]> fromsIdfPowers = part.idfPowers;
+		List<Double> fromMultipliers = part.multipliers;
+		boolean fromShort = part.shortParts;
 
 		double bestScore = 0;
 		ConceptMatchType matchType = ConceptMatchType.none;
 		int synonymIndex = -1;
 
-		if (processedConcept.getLabelTokens() != null && multiplierArgs.getLabelMultiplier() > 0) {
-			double idfScaling = idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0;
-			double score = getScore(processedConcept.getLabelTokens(), processedConcept.getLabelIdfs(), idfScaling, multiplierArgs.getLabelMultiplier(), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, true, fromShort);
+		if (processedConcept.getLabelTokens() != null && multiplierArgs.getLabelMultiplier() > 0 && isField(fields, ConceptMatchType.label)) {
+			double score = getScore(preparedQuery.getTokenNeighbours(), processedConcept.getLabelTokens(), processedConcept.getLabelTokenIds(), idfArgs.isLabelSynonymsIdf() ? processedConcept.getLabelIdfPowers() : null, multiplierArgs.getLabelMultiplier(), fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, true, fromShort);
 			if (score > bestScore) {
 				bestScore = score;
 				matchType = ConceptMatchType.label;
 			}
 		}
-		if (multiplierArgs.getExactSynonymMultiplier() > 0) {
+		if (multiplierArgs.getExactSynonymMultiplier() > 0 && isField(fields, ConceptMatchType.exact_synonym)) {
 			for (int i = 0; i < processedConcept.getExactSynonymsTokens().size(); ++i) {
-				double idfScaling = idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0;
-				double score = getScore(processedConcept.getExactSynonymsTokens().get(i), processedConcept.getExactSynonymsIdfs().get(i), idfScaling, multiplierArgs.getExactSynonymMultiplier(), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, true, fromShort);
+				double score = getScore(preparedQuery.getTokenNeighbours(), processedConcept.getExactSynonymsTokens().get(i), processedConcept.getExactSynonymsTokenIds().get(i), idfArgs.isLabelSynonymsIdf() ? processedConcept.getExactSynonymsIdfPowers().get(i) : null, multiplierArgs.getExactSynonymMultiplier(), fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, true, fromShort);
 				if (score > bestScore) {
 					bestScore = score;
 					matchType = ConceptMatchType.exact_synonym;
@@ -545,10 +738,9 @@ public class Mapper {
 				}
 			}
 		}
-		if (multiplierArgs.getNarrowBroadSynonymMultiplier() > 0) {
+		if (multiplierArgs.getNarrowBroadSynonymMultiplier() > 0 && isField(fields, ConceptMatchType.narrow_synonym)) {
 			for (int i = 0; i < processedConcept.getNarrowSynonymsTokens().size(); ++i) {
-				double idfScaling = idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0;
-				double score = getScore(processedConcept.getNarrowSynonymsTokens().get(i), processedConcept.getNarrowSynonymsIdfs().get(i), idfScaling, multiplierArgs.getNarrowBroadSynonymMultiplier(), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, true, fromShort);
+				double score = getScore(preparedQuery.getTokenNeighbours(), processedConcept.getNarrowSynonymsTokens().get(i), processedConcept.getNarrowSynonymsTokenIds().get(i), idfArgs.isLabelSynonymsIdf() ? processedConcept.getNarrowSynonymsIdfPowers().get(i) : null, multiplierArgs.getNarrowBroadSynonymMultiplier(), fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, true, fromShort);
 				if (score > bestScore) {
 					bestScore = score;
 					matchType = ConceptMatchType.narrow_synonym;
@@ -556,10 +748,9 @@ public class Mapper {
 				}
 			}
 		}
-		if (multiplierArgs.getNarrowBroadSynonymMultiplier() > 0) {
+		if (multiplierArgs.getNarrowBroadSynonymMultiplier() > 0 && isField(fields, ConceptMatchType.broad_synonym)) {
 			for (int i = 0; i < processedConcept.getBroadSynonymsTokens().size(); ++i) {
-				double idfScaling = idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0;
-				double score = getScore(processedConcept.getBroadSynonymsTokens().get(i), processedConcept.getBroadSynonymsIdfs().get(i), idfScaling, multiplierArgs.getNarrowBroadSynonymMultiplier(), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, true, fromShort);
+				double score = getScore(preparedQuery.getTokenNeighbours(), processedConcept.getBroadSynonymsTokens().get(i), processedConcept.getBroadSynonymsTokenIds().get(i), idfArgs.isLabelSynonymsIdf() ? processedConcept.getBroadSynonymsIdfPowers().get(i) : null, multiplierArgs.getNarrowBroadSynonymMultiplier(), fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, true, fromShort);
 				if (score > bestScore) {
 					bestScore = score;
 					matchType = ConceptMatchType.broad_synonym;
@@ -567,17 +758,15 @@ public class Mapper {
 				}
 			}
 		}
-		if (!processedConcept.getDefinitionTokens().isEmpty() && multiplierArgs.getDefinitionMultiplier() > 0) {
-			double idfScaling = idfArgs.getConceptIdfScaling();
-			double score = getScore(processedConcept.getDefinitionTokens(), processedConcept.getDefinitionIdfs(), idfScaling, multiplierArgs.getDefinitionMultiplier(), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, fromShort);
+		if (!processedConcept.getDefinitionTokens().isEmpty() && multiplierArgs.getDefinitionMultiplier() > 0 && isField(fields, ConceptMatchType.definition)) {
+			double score = getScore(preparedQuery.getTokenNeighbours(), processedConcept.getDefinitionTokens(), processedConcept.getDefinitionTokenIds(), processedConcept.getDefinitionIdfPowers(), multiplierArgs.getDefinitionMultiplier(), fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, fromShort);
 			if (score > bestScore) {
 				bestScore = score;
 				matchType = ConceptMatchType.definition;
 			}
 		}
-		if (!processedConcept.getCommentTokens().isEmpty() && multiplierArgs.getCommentMultiplier() > 0) {
-			double idfScaling = idfArgs.getConceptIdfScaling();
-			double score = getScore(processedConcept.getCommentTokens(), processedConcept.getCommentIdfs(), idfScaling, multiplierArgs.getCommentMultiplier(), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, fromShort);
+		if (!processedConcept.getCommentTokens().isEmpty() && multiplierArgs.getCommentMultiplier() > 0 && isField(fields, ConceptMatchType.comment)) {
+			double score = getScore(preparedQuery.getTokenNeighbours(), processedConcept.getCommentTokens(), processedConcept.getCommentTokenIds(), processedConcept.getCommentIdfPowers(), multiplierArgs.getCommentMultiplier(), fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, fromShort);
 			if (score > bestScore) {
 				bestScore = score;
 				matchType = ConceptMatchType.comment;
@@ -588,10 +777,12 @@ public class Mapper {
 	}
 
 	// TODO try to make less copy-pasty
-	private QueryMatch toQueryFromConcept(QueryProcessed processedQuery, ConceptProcessed processedConcept, QueryMatchType type, AlgorithmArgs algorithmArgs, IdfArgs idfArgs, NormaliserArgs normaliserArgs) {
+	private QueryMatch toQueryFromConcept(QueryPrepared preparedQuery, ConceptProcessed processedConcept, QueryMatchType type, AlgorithmArgs algorithmArgs, IdfArgs idfArgs, NormaliserArgs normaliserArgs) {
+		QueryProcessed processedQuery = preparedQuery.getProcessedQuery();
+		boolean tokenIds = preparedQuery.isTokenIds();
 		List<List<String>> fromsTokens = processedConcept.getTokens();
-		List<List<Double>> fromsIdfs = processedConcept.getIdfs();
-		List<Double> fromIdfScalings = processedConcept.getIdfScalings();
+		List<int[]> fromsTokenIds = processedConcept.getTokenIds();
+		List<double[]> fromsIdfPowers = processedConcept.getIdfPowers();
 		List<Double> fromMultipliers = processedConcept.getMultipliers();
 
 		double bestScore = 0;
@@ -602,9 +793,9 @@ public class Mapper {
 		switch (type) {
 		case name:
 			if (processedQuery.getNameTokens() != null && normaliserArgs.getNameNormaliser() > 0) {
-				List<Double> idfs = processedQuery.getNameIdfs();
-				double idfScaling = ((idfs == null || !idfArgs.isNameKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-				double score = getScore(processedQuery.getNameTokens(), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+				double[] idfs = processedQuery.getNameIdfs();
+				double[] idfPowers = ((idfs == null || !idfArgs.isNameKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+				double score = getScore(preparedQuery.getTokenNeighbours(), processedQuery.getNameTokens(), tokenIds ? processedQuery.getNameTokenIds() : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 				if (score > bestScore) {
 					bestScore = score;
 				}
@@ -615,9 +806,9 @@ public class Mapper {
 			if (normaliserArgs.getKeywordNormaliser() > 0) {
 				for (int i = 0; i < processedQuery.getKeywordsTokens().size(); ++i) {
 					if (processedQuery.getKeywordsTokens().get(i) == null) continue;
-					List<Double> idfs = processedQuery.getKeywordsIdfs().get(i);
-					double idfScaling = ((idfs == null || !idfArgs.isNameKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-					double score = getScore(processedQuery.getKeywordsTokens().get(i), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+					double[] idfs = processedQuery.getKeywordsIdfs().get(i);
+					double[] idfPowers = ((idfs == null || !idfArgs.isNameKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+					double score = getScore(preparedQuery.getTokenNeighbours(), processedQuery.getKeywordsTokens().get(i), tokenIds ? processedQuery.getKeywordsTokenIds().get(i) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 					if (score > bestScore) {
 						bestScore = score;
 						index = i;
@@ -628,9 +819,9 @@ public class Mapper {
 			break;
 		case description:
 			if (!processedQuery.getDescriptionTokens().isEmpty() && normaliserArgs.getDescriptionNormaliser() > 0) {
-				List<List<Double>> idfs = processedQuery.getDescriptionIdfs();
-				double idfScaling = ((idfs == null || !idfArgs.isDescriptionIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-				double score = getScore(processedQuery.getDescriptionTokens(), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+				List<double[]> idfs = processedQuery.getDescriptionIdfs();
+				List<double[]> idfPowers = ((idfs == null || !idfArgs.isDescriptionIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+				double score = getScore(preparedQuery.getTokenNeighbours(), processedQuery.getDescriptionTokens(), tokenIds ? processedQuery.getDescriptionTokenIds() : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 				if (score > bestScore) {
 					bestScore = score;
 				}
@@ -642,9 +833,9 @@ public class Mapper {
 				PublicationProcessed processedPublication = processedQuery.getProcessedPublications().get(i);
 				if (processedPublication == null) continue;
 				if (processedPublication.getTitleTokens() != null && normaliserArgs.getPublicationTitleNormaliser() > 0) {
-					List<Double> idfs = processedPublication.getTitleIdfs();
-					double idfScaling = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-					double score = getScore(processedPublication.getTitleTokens(), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+					double[] idfs = processedPublication.getTitleIdfs();
+					double[] idfPowers = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+					double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getTitleTokens(), tokenIds ? processedPublication.getTitleTokenIds() : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 					if (score > bestScore) {
 						bestScore = score;
 						index = i;
@@ -660,9 +851,9 @@ public class Mapper {
 				if (normaliserArgs.getPublicationKeywordNormaliser() > 0) {
 					for (int j = 0; j < processedPublication.getKeywordsTokens().size(); ++j) {
 						if (processedPublication.getKeywordsTokens().get(j) == null) continue;
-						List<Double> idfs = processedPublication.getKeywordsIdfs().get(j);
-						double idfScaling = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						double score = getScore(processedPublication.getKeywordsTokens().get(j), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+						double[] idfs = processedPublication.getKeywordsIdfs().get(j);
+						double[] idfPowers = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+						double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getKeywordsTokens().get(j), tokenIds ? processedPublication.getKeywordsTokenIds().get(j) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 						if (score > bestScore) {
 							bestScore = score;
 							index = i;
@@ -680,9 +871,9 @@ public class Mapper {
 				if (normaliserArgs.getPublicationMeshNormaliser() > 0) {
 					for (int j = 0; j < processedPublication.getMeshTermsTokens().size(); ++j) {
 						if (processedPublication.getMeshTermsTokens().get(j) == null) continue;
-						List<Double> idfs = processedPublication.getMeshTermsIdfs().get(j);
-						double idfScaling = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						double score = getScore(processedPublication.getMeshTermsTokens().get(j), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+						double[] idfs = processedPublication.getMeshTermsIdfs().get(j);
+						double[] idfPowers = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+						double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getMeshTermsTokens().get(j), tokenIds ? processedPublication.getMeshTermsTokenIds().get(j) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 						if (score > bestScore) {
 							bestScore = score;
 							index = i;
@@ -700,9 +891,9 @@ public class Mapper {
 				if (normaliserArgs.getPublicationMinedTermNormaliser() > 0) {
 					for (int j = 0; j < processedPublication.getEfoTermsTokens().size(); ++j) {
 						if (processedPublication.getEfoTermsTokens().get(j) == null) continue;
-						List<Double> idfs = processedPublication.getEfoTermsIdfs().get(j);
-						double idfScaling = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						double score = getScore(processedPublication.getEfoTermsTokens().get(j), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+						double[] idfs = processedPublication.getEfoTermsIdfs().get(j);
+						double[] idfPowers = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+						double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getEfoTermsTokens().get(j), tokenIds ? processedPublication.getEfoTermsTokenIds().get(j) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 						// simulate fulltext
 						score *= Math.pow(processedPublication.getEfoTermFrequencies().get(j), algorithmArgs.getScoreScaling());
 						if (score > bestScore) {
@@ -722,9 +913,9 @@ public class Mapper {
 				if (normaliserArgs.getPublicationMinedTermNormaliser() > 0) {
 					for (int j = 0; j < processedPublication.getGoTermsTokens().size(); ++j) {
 						if (processedPublication.getGoTermsTokens().get(j) == null) continue;
-						List<Double> idfs = processedPublication.getGoTermsIdfs().get(j);
-						double idfScaling = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-						double score = getScore(processedPublication.getGoTermsTokens().get(j), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+						double[] idfs = processedPublication.getGoTermsIdfs().get(j);
+						double[] idfPowers = ((idfs == null || !idfArgs.isTitleKeywordsIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+						double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getGoTermsTokens().get(j), tokenIds ? processedPublication.getGoTermsTokenIds().get(j) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 						// simulate fulltext
 						score *= Math.pow(processedPublication.getGoTermFrequencies().get(j), algorithmArgs.getScoreScaling());
 						if (score > bestScore) {
@@ -742,9 +933,9 @@ public class Mapper {
 				PublicationProcessed processedPublication = processedQuery.getProcessedPublications().get(i);
 				if (processedPublication == null) continue;
 				if (!processedPublication.getAbstractTokens().isEmpty() && normaliserArgs.getPublicationAbstractNormaliser() > 0) {
-					List<List<Double>> idfs = processedPublication.getAbstractIdfs();
-					double idfScaling = ((idfs == null || !idfArgs.isAbstractIdf()) ? 0 : idfArgs.getQueryIdfScaling());
-					double score = getScore(processedPublication.getAbstractTokens(), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, true);
+					List<double[]> idfs = processedPublication.getAbstractIdfs();
+					List<double[]> idfPowers = ((idfs == null || !idfArgs.isAbstractIdf()) ? null : preparedQuery.getIdfPowers(idfs));
+					double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getAbstractTokens(), tokenIds ? processedPublication.getAbstractTokenIds() : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, true);
 					if (score > bestScore) {
 						bestScore = score;
 						index = i;
@@ -758,9 +949,9 @@ public class Mapper {
 				PublicationProcessed processedPublication = processedQuery.getProcessedPublications().get(i);
 				if (processedPublication == null) continue;
 				if (!processedPublication.getFulltextTokens().isEmpty() && normaliserArgs.getPublicationFulltextNormaliser() > 0) {
-					List<List<Double>> idfs = processedPublication.getFulltextIdfs();
-					double idfScaling = ((idfs == null) ? 0 : idfArgs.getQueryIdfScaling());
-					double score = getScore(processedPublication.getFulltextTokens(), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, false);
+					List<double[]> idfs = processedPublication.getFulltextIdfs();
+					List<double[]> idfPowers = ((idfs == null) ? null : preparedQuery.getIdfPowers(idfs));
+					double score = getScore(preparedQuery.getTokenNeighbours(), processedPublication.getFulltextTokens(), tokenIds ? processedPublication.getFulltextTokenIds() : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, false);
 					if (score > bestScore) {
 						bestScore = score;
 						index = i;
@@ -773,9 +964,9 @@ public class Mapper {
 			if (normaliserArgs.getDocNormaliser() > 0) {
 				for (int i = 0; i < processedQuery.getDocsTokens().size(); ++i) {
 					if (processedQuery.getDocsTokens().get(i) == null) continue;
-					List<List<Double>> idfs = processedQuery.getDocsIdfs().get(i);
-					double idfScaling = ((idfs == null) ? 0 : idfArgs.getQueryIdfScaling());
-					double score = getScore(processedQuery.getDocsTokens().get(i), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, false);
+					List<double[]> idfs = processedQuery.getDocsIdfs().get(i);
+					List<double[]> idfPowers = ((idfs == null) ? null : preparedQuery.getIdfPowers(idfs));
+					double score = getScore(preparedQuery.getTokenNeighbours(), processedQuery.getDocsTokens().get(i), tokenIds ? processedQuery.getDocsTokenIds().get(i) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, false);
 					if (score > bestScore) {
 						bestScore = score;
 						index = i;
@@ -788,9 +979,9 @@ public class Mapper {
 			if (normaliserArgs.getWebpageNormaliser() > 0) {
 				for (int i = 0; i < processedQuery.getWebpagesTokens().size(); ++i) {
 					if (processedQuery.getWebpagesTokens().get(i) == null) continue;
-					List<List<Double>> idfs = processedQuery.getWebpagesIdfs().get(i);
-					double idfScaling = ((idfs == null) ? 0 : idfArgs.getQueryIdfScaling());
-					double score = getScore(processedQuery.getWebpagesTokens().get(i), idfs, idfScaling, Double.valueOf(1), fromsTokens, fromsIdfs, fromIdfScalings, fromMultipliers, algorithmArgs, false, false);
+					List<double[]> idfs = processedQuery.getWebpagesIdfs().get(i);
+					List<double[]> idfPowers = ((idfs == null) ? null : preparedQuery.getIdfPowers(idfs));
+					double score = getScore(preparedQuery.getTokenNeighbours(), processedQuery.getWebpagesTokens().get(i), tokenIds ? processedQuery.getWebpagesTokenIds().get(i) : null, idfPowers, 1, fromsTokens, fromsTokenIds, fromsIdfPowers, fromMultipliers, algorithmArgs, false, false);
 					if (score > bestScore) {
 						bestScore = score;
 						index = i;
@@ -806,18 +997,18 @@ public class Mapper {
 		return new QueryMatch(bestScore, matchType, index, indexInPublication);
 	}
 
-	private Match getMatch(ConceptProcessed processedConcept, QueryProcessed processedQuery, QueryMatchType type, AlgorithmArgs algorithmArgs, IdfArgs idfArgs, MultiplierArgs multiplierArgs, NormaliserArgs normaliserArgs) {
+	private Match getMatch(ConceptProcessed processedConcept, QueryPrepared preparedQuery, QueryMatchType type, AlgorithmArgs algorithmArgs, IdfArgs idfArgs, MultiplierArgs multiplierArgs, NormaliserArgs normaliserArgs, int fields) {
 
 		ConceptMatch conceptMatch;
 		if (algorithmArgs.getConceptWeight() > 0) {
-			conceptMatch = toConceptFromQuery(processedConcept, processedQuery, type, algorithmArgs, idfArgs, multiplierArgs, normaliserArgs);
+			conceptMatch = toConceptFromQuery(processedConcept, preparedQuery, type, algorithmArgs, idfArgs, multiplierArgs, fields);
 		} else {
 			conceptMatch = new ConceptMatch(0, ConceptMatchType.none, -1);
 		}
 
 		QueryMatch queryMatch;
 		if (algorithmArgs.getQueryWeight() > 0) {
-			queryMatch = toQueryFromConcept(processedQuery, processedConcept, type, algorithmArgs, idfArgs, normaliserArgs);
+			queryMatch = toQueryFromConcept(preparedQuery, processedConcept, type, algorithmArgs, idfArgs, normaliserArgs);
 		} else {
 			queryMatch = new QueryMatch(0, QueryMatchType.none, -1, -1);
 		}
@@ -873,7 +1064,9 @@ public class Mapper {
 		return false;
 	}
 
-	private Match getBestMatch(ConceptProcessed processedConcept, QueryProcessed processedQuery, MapperArgs args) {
+	private Match getBestMatch(ConceptProcessed processedConcept, QueryPrepared preparedQuery, MapperArgs args, int fields) {
+		QueryProcessed processedQuery = preparedQuery.getProcessedQuery();
+
 		Match bestMatch = new Match(0, new ConceptMatch(0, ConceptMatchType.none, -1), new QueryMatch(0, QueryMatchType.none, -1, -1));
 		double numerator = 0;
 		double denominator = 0;
@@ -886,7 +1079,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getNameNormaliser() > 0
 				&& (!average || args.getWeightArgs().getNameWeight() > 0)
 				&& hasTokens(processedQuery.getNameTokens())) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.name, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.name, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getNameNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -899,7 +1092,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getKeywordNormaliser() > 0
 				&& (!average || args.getWeightArgs().getKeywordWeight() > 0)
 				&& hasListTokens(processedQuery.getKeywordsTokens())) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.keyword, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.keyword, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getKeywordNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -912,7 +1105,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getDescriptionNormaliser() > 0
 				&& (!average || args.getWeightArgs().getDescriptionWeight() > 0)
 				&& hasListTokens(processedQuery.getDescriptionTokens())) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.description, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.description, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getDescriptionNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -925,7 +1118,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getPublicationTitleNormaliser() > 0
 				&& (!average || args.getWeightArgs().getPublicationTitleWeight() > 0)
 				&& hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_title)) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.publication_title, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_title, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getPublicationTitleNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -938,7 +1131,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getPublicationKeywordNormaliser() > 0
 				&& (!average || args.getWeightArgs().getPublicationKeywordWeight() > 0)
 				&& hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_keyword)) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.publication_keyword, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_keyword, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getPublicationKeywordNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -951,7 +1144,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getPublicationMeshNormaliser() > 0
 				&& (!average || args.getWeightArgs().getPublicationMeshWeight() > 0)
 				&& hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_mesh)) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.publication_mesh, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_mesh, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getPublicationMeshNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -964,8 +1157,8 @@ public class Mapper {
 		if (args.getNormaliserArgs().getPublicationMinedTermNormaliser() > 0
 				&& (!average || args.getWeightArgs().getPublicationMinedTermWeight() > 0)
 				&& (hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_efo) || hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_go))) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.publication_efo, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
-			Match otherMatch = getMatch(processedConcept, processedQuery, QueryMatchType.publication_go, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_efo, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
+			Match otherMatch = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_go, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			if (otherMatch.compareTo(match) > 0) match = otherMatch;
 			match.setScore(match.getScore() * args.getNormaliserArgs().getPublicationMinedTermNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
@@ -979,7 +1172,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getPublicationAbstractNormaliser() > 0
 				&& (!average || args.getWeightArgs().getPublicationAbstractWeight() > 0)
 				&& hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_abstract)) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.publication_abstract, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_abstract, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getPublicationAbstractNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -992,7 +1185,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getPublicationFulltextNormaliser() > 0
 				&& (!average || args.getWeightArgs().getPublicationFulltextWeight() > 0)
 				&& hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_fulltext)) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.publication_fulltext, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.publication_fulltext, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getPublicationFulltextNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -1005,7 +1198,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getDocNormaliser() > 0
 				&& (!average || args.getWeightArgs().getDocWeight() > 0)
 				&& hasListListTokens(processedQuery.getDocsTokens())) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.doc, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.doc, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getDocNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -1018,7 +1211,7 @@ public class Mapper {
 		if (args.getNormaliserArgs().getWebpageNormaliser() > 0
 				&& (!average || args.getWeightArgs().getWebpageWeight() > 0)
 				&& hasListListTokens(processedQuery.getWebpagesTokens())) {
-			Match match = getMatch(processedConcept, processedQuery, QueryMatchType.webpage, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs());
+			Match match = getMatch(processedConcept, preparedQuery, QueryMatchType.webpage, args.getAlgorithmArgs(), args.getIdfArgs(), args.getMultiplierArgs(), args.getNormaliserArgs(), fields);
 			match.setScore(match.getScore() * args.getNormaliserArgs().getWebpageNormaliser());
 			if (match.compareTo(bestMatch) > 0) bestMatch = match;
 			if (average) {
@@ -1043,58 +1236,353 @@ public class Mapper {
 		return bestMatch;
 	}
 
-	private double bestPathScore(EdamUri edamUri, Map<EdamUri, Match> matches, int level, double current, double parentWeight) {
-		// matches.get(edamUri) is null if edamUri is from some other branch than its child who called us
-		// should not happen if EDAM is consistent
-		double score = (matches.get(edamUri) == null ? 0 : matches.get(edamUri).getWithoutPathScore());
-		current += Math.pow(parentWeight, level) * score;
-		List<EdamUri> parents = processedConcepts.get(edamUri).getDirectParents();
-		if (parents.size() == 0) {
-			double denominator = 0;
-			for (int l = 1; l <= level; ++l) {
-				denominator += Math.pow(parentWeight, l);
-			}
-			return current /= denominator;
+	private double getNormaliser(QueryMatchType type, NormaliserArgs normaliserArgs) {
+		switch (type) {
+		case name: return normaliserArgs.getNameNormaliser();
+		case keyword: return normaliserArgs.getKeywordNormaliser();
+		case description: return normaliserArgs.getDescriptionNormaliser();
+		case publication_title: return normaliserArgs.getPublicationTitleNormaliser();
+		case publication_keyword: return normaliserArgs.getPublicationKeywordNormaliser();
+		case publication_mesh: return normaliserArgs.getPublicationMeshNormaliser();
+		case publication_efo:
+		case publication_go: return normaliserArgs.getPublicationMinedTermNormaliser();
+		case publication_abstract: return normaliserArgs.getPublicationAbstractNormaliser();
+		case publication_fulltext: return normaliserArgs.getPublicationFulltextNormaliser();
+		case doc: return normaliserArgs.getDocNormaliser();
+		case webpage: return normaliserArgs.getWebpageNormaliser();
+		default: return 0;
+		}
+	}
+
+	private double getWeight(QueryMatchType type, WeightArgs weightArgs) {
+		switch (type) {
+		case name: return weightArgs.getNameWeight();
+		case keyword: return weightArgs.getKeywordWeight();
+		case description: return weightArgs.getDescriptionWeight();
+		case publication_title: return weightArgs.getPublicationTitleWeight();
+		case publication_keyword: return weightArgs.getPublicationKeywordWeight();
+		case publication_mesh: return weightArgs.getPublicationMeshWeight();
+		case publication_efo:
+		case publication_go: return weightArgs.getPublicationMinedTermWeight();
+		case publication_abstract: return weightArgs.getPublicationAbstractWeight();
+		case publication_fulltext: return weightArgs.getPublicationFulltextWeight();
+		case doc: return weightArgs.getDocWeight();
+		case webpage: return weightArgs.getWebpageWeight();
+		default: return 0;
+		}
+	}
+
+	private boolean hasPartTokens(QueryProcessed processedQuery, QueryMatchType type) {
+		switch (type) {
+		case name: return hasTokens(processedQuery.getNameTokens());
+		case keyword: return hasListTokens(processedQuery.getKeywordsTokens());
+		case description: return hasListTokens(processedQuery.getDescriptionTokens());
+		case publication_efo:
+		case publication_go: return hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_efo) || hasPublicationTokens(processedQuery.getProcessedPublications(), QueryMatchType.publication_go);
+		case doc: return hasListListTokens(processedQuery.getDocsTokens());
+		case webpage: return hasListListTokens(processedQuery.getWebpagesTokens());
+		case none: return false;
+		default: return hasPublicationTokens(processedQuery.getProcessedPublications(), type);
+		}
+	}
+
+	private boolean isZeroMatch(ConceptProcessed processedConcept, MapperArgs args) {
+		return processedConcept.getDirectParents().isEmpty() && !processedConcept.isObsolete()
+			|| processedConcept.isObsolete() && !args.isObsolete() && !args.isReplaceObsolete();
+	}
+
+	// the score of any part of a match is at most its normaliser (and 0 for parts not sharing any token or compound match with the concept),
+	// the path score of a match is at most the best score of its ancestors
+	// null if scores of concepts not sharing any token with some query part are not known to be 0 for that part
+	private UpperBounds getUpperBounds(QueryPrepared preparedQuery, int[] candidateFields, MapperArgs args) {
+		if (candidateFields == null || args.getAlgorithmArgs().getPruning() != MapperPruning.exact) return null;
+
+		QueryProcessed processedQuery = preparedQuery.getProcessedQuery();
+		boolean average = (args.getAlgorithmArgs().getMappingStrategy() == MapperStrategy.average);
+		double scaling = args.getWeightArgs().getAverageScaling();
+
+		List<QueryMatchType> types = new ArrayList<>();
+		double denominator = 0;
+		for (QueryMatchType type : BEST_MATCH_PARTS) {
+			if (getNormaliser(type, args.getNormaliserArgs()) > 0
+					&& (!average || getWeight(type, args.getWeightArgs()) > 0)
+					&& hasPartTokens(processedQuery, type)) {
+				types.add(type);
+				denominator += getWeight(type, args.getWeightArgs());
+			}
+		}
+		if (average && denominator <= 0) return null;
+
+		// query parts (bits of QueryMatchType ordinals) sharing some token (or compound match) with the concept, for each concept ordinal
+		int[] parts = new int[conceptIndex.size()];
+		BitSet done = new BitSet();
+		BitSet compoundsDone = new BitSet();
+		CompoundNeighbours compoundNeighbours = preparedQuery.getCompoundNeighbours();
+		ConceptCompounds conceptCompounds = (compoundNeighbours != null ? conceptIndex.getCompounds(args.getAlgorithmArgs().getCompoundWords()) : null);
+		for (QueryMatchType type : types) {
+			int mask = 1 << type.ordinal();
+			QueryPrepared.Part part = preparedQuery.getPart(type);
+			for (int i = 0; i < part.tokenIds.size(); ++i) {
+				int[] tokenIds = part.tokenIds.get(i);
+				if (tokenIds == null) continue;
+				for (int tokenId : tokenIds) {
+					addMatchable(tokenId, preparedQuery.getTokenNeighbours(), done, id -> conceptIndex.addMask(parts, id, mask));
+				}
+				if (compoundNeighbours != null && part.shortParts) {
+					addCompoundMatchable(compoundNeighbours, part.tokens.get(i), tokenIds, done, compoundsDone, id -> conceptIndex.addMask(parts, id, mask), id -> conceptCompounds.addMask(parts, id, mask));
+				}
+			}
+			done.clear();
+			compoundsDone.clear();
+		}
+
+		UpperBounds upperBounds = new UpperBounds(registry.size());
+		for (int ordinal = 0; ordinal < registry.size(); ++ordinal) {
+			ConceptProcessed processedConcept = registry.getProcessedConcept(ordinal);
+			if (isZeroMatch(processedConcept, args) || blacklisted.get(ordinal)) {
+				upperBounds.removed[ordinal] = true;
+			}
+		}
+		for (Branch branch : Branch.values()) {
+			if (!args.getBranches().contains(branch)) continue;
+			for (int ordinal = registry.getBranchStart(branch); ordinal < registry.getBranchEnd(branch); ++ordinal) {
+				ConceptProcessed processedConcept = registry.getProcessedConcept(ordinal);
+				if (isZeroMatch(processedConcept, args)) continue;
+				double best = 0;
+				double numerator = 0;
+				for (QueryMatchType type : types) {
+					if ((parts[ordinal] & (1 << type.ordinal())) != 0) {
+						double normaliser = getNormaliser(type, args.getNormaliserArgs());
+						if (normaliser > best) best = normaliser;
+						numerator += getWeight(type, args.getWeightArgs()) * Math.pow(normaliser, scaling);
+					}
+				}
+				double score = (average ? numerator / denominator : best);
+				if (processedConcept.isObsolete()) {
+					score *= args.getObsoletePenalty();
+				}
+				upperBounds.scores[ordinal] = score;
+				upperBounds.limitScores[ordinal] = (average ? best : score);
+			}
+		}
+
+		if (args.getAlgorithmArgs().getPathWeight() > 0 && args.getAlgorithmArgs().getParentWeight() > 0) {
+			upperBounds.pathScores = new double[registry.size()];
+			for (int ordinal = 0; ordinal < registry.size(); ++ordinal) {
+				if (registry.isTopLevel(ordinal)) {
+					upperBounds.pathScores[ordinal] = upperBounds.scores[ordinal];
+				} else {
+					double pathWeight = args.getAlgorithmArgs().getPathWeight();
+					upperBounds.pathScores[ordinal] = (upperBounds.scores[ordinal] + pathWeight * getAncestorScore(ordinal, upperBounds.scores)) / (1 + pathWeight);
+				}
+			}
 		} else {
-			double bestPathScore = 0;
-			for (EdamUri parent : parents) {
-				double best = bestPathScore(parent, matches, level + 1, current, parentWeight);
-				if (best > bestPathScore) bestPathScore = best;
+			upperBounds.pathScores = upperBounds.scores;
+		}
+
+		return upperBounds;
+	}
+
+	private double getAncestorScore(int ordinal, double[] scores) {
+		double ancestorScore = 0;
+		BitSet ancestors = registry.getAncestors(ordinal);
+		for (int ancestor = ancestors.nextSetBit(0); ancestor >= 0; ancestor = ancestors.nextSetBit(ancestor + 1)) {
+			ancestorScore = Math.max(ancestorScore, scores[ancestor]);
+		}
+		return ancestorScore;
+	}
+
+	// the concept, and the concepts whose matches are needed by getMapping if the match of the concept is present:
+	// its ancestors (for path scores and removing of parents and children) and its replacements (if obsolete)
+	private void addScored(BitSet scored, int ordinal, MapperArgs args) {
+		if (ordinal < 0 || scored.get(ordinal)) return;
+		if (!args.getBranches().contains(registry.getEdamUri(ordinal).getBranch())) return;
+		scored.set(ordinal);
+		for (int parent : registry.getParents(ordinal)) {
+			addScored(scored, parent, args);
+		}
+		if (registry.isObsolete(ordinal) && args.isReplaceObsolete()) {
+			for (int replacement : registry.getReplacedBy(ordinal)) {
+				addScored(scored, replacement, args);
 			}
-			return bestPathScore;
 		}
 	}
 
-	private void removeParents(EdamUri edamUri, Map<EdamUri, Match> matches) {
-		for (EdamUri parent : processedConcepts.get(edamUri).getDirectParents()) {
-			if (matches.get(parent) != null && !matches.get(parent).isRemoved()) {
-				matches.get(parent).setRemoved(true);
+	// a match with these scores would be skipped by getMapping in any case
+	private boolean isSkipped(UpperBounds upperBounds, int ordinal, Branch branch, ScoreArgs scoreArgs) {
+		return upperBounds.removed[ordinal]
+			|| !scoreArgs.isOutputBadScores() && upperBounds.limitScores[ordinal] < getBadScore(branch, scoreArgs) - scoreArgs.getPassableBadScoreInterval();
+	}
+
+	private double getGoodScore(Branch branch, ScoreArgs scoreArgs) {
+		switch (branch) {
+		case topic: return scoreArgs.getGoodScoreTopic();
+		case operation: return scoreArgs.getGoodScoreOperation();
+		case data: return scoreArgs.getGoodScoreData();
+		case format: return scoreArgs.getGoodScoreFormat();
+		default: return 0;
+		}
+	}
+
+	private double getBadScore(Branch branch, ScoreArgs scoreArgs) {
+		switch (branch) {
+		case topic: return scoreArgs.getBadScoreTopic();
+		case operation: return scoreArgs.getBadScoreOperation();
+		case data: return scoreArgs.getBadScoreData();
+		case format: return scoreArgs.getBadScoreFormat();
+		default: return 0;
+		}
+	}
+
+	private Match copyMatch(Match match) {
+		Match copy = new Match(match.getScore(), match.getConceptMatch(), match.getQueryMatch());
+		copy.setBestOneScore(match.getBestOneScore());
+		copy.setMatchAverageStats(match.getMatchAverageStats());
+		if (match.getEdamUri() != null) {
+			copy.setEdamUri(match.getEdamUri());
+		}
+		return copy;
+	}
+
+	private Match scoreConcept(EdamUri edamUri, ConceptProcessed processedConcept, QueryPrepared preparedQuery, MapperArgs args, int fields, Match prunedMatch) {
+		if (isZeroMatch(processedConcept, args)) {
+			Match zeroMatch = new Match(0, new ConceptMatch(0, ConceptMatchType.none, -1), new QueryMatch(0, QueryMatchType.none, -1, -1));
+			zeroMatch.setEdamUri(edamUri);
+			return zeroMatch;
+		}
+
+		Match match;
+		if (fields == 0) {
+			match = copyMatch(prunedMatch);
+		} else {
+			match = getBestMatch(processedConcept, preparedQuery, args, fields);
+		}
+		match.setEdamUri(edamUri);
+
+		if (processedConcept.isObsolete()) {
+			match.setScore(match.getScore() * args.getObsoletePenalty());
+		}
+
+		return match;
+	}
+
+	// best path score of each concept with a match and with parents (0 for other concepts): over all paths from the concept to a top-level concept,
+	// the maximum of the weighted average of the scores of the concepts on the path (not including the concept itself),
+	// the concept at level l having weight parentWeight^l.
+	// The ancestors of a concept are visited level by level, keeping for each ancestor at a level only the best sum of a path up to it,
+	// with terms added in the same order as in the sum of a single path. Adding the same number to two doubles or dividing them by the same positive number
+	// never reverses their order, so this gives exactly the maximum over all paths, without going through each path.
+	private double[] getPathScores(Match[] matches, double parentWeight) {
+		int width = registry.getMaxDepth() + 1;
+		double[] weights = new double[width + 1];
+		double[] denominators = new double[width + 1];
+		for (int level = 1; level <= width; ++level) {
+			weights[level] = Math.pow(parentWeight, level);
+			denominators[level] = denominators[level - 1] + weights[level];
+		}
+
+		int size = registry.size();
+		if (pathSums == null || pathSums.length < size) {
+			pathSums = new double[size];
+			Arrays.fill(pathSums, Double.NEGATIVE_INFINITY);
+			pathSumsNext = new double[size];
+			Arrays.fill(pathSumsNext, Double.NEGATIVE_INFINITY);
+			pathLevel = new int[size];
+			pathLevelNext = new int[size];
+		}
+
+		double[] pathScores = new double[size];
+		for (int ordinal = 0; ordinal < size; ++ordinal) {
+			if (matches[ordinal] == null || registry.getParents(ordinal).length == 0) continue;
+			double[] sums = pathSums;
+			double[] sumsNext = pathSumsNext;
+			int[] level = pathLevel;
+			int[] levelNext = pathLevelNext;
+			double best = 0;
+			sums[ordinal] = 0;
+			level[0] = ordinal;
+			int levelSize = 1;
+			for (int l = 0; levelSize > 0; ++l) {
+				int nextSize = 0;
+				for (int i = 0; i < levelSize; ++i) {
+					int ancestor = level[i];
+					double sum = sums[ancestor];
+					sums[ancestor] = Double.NEGATIVE_INFINITY;
+					int[] parents = registry.getParents(ancestor);
+					if (parents.length == 0) {
+						double pathScore = sum / denominators[l];
+						if (pathScore > best) best = pathScore;
+					}
+					for (int parent : parents) {
+						double next = sum + weights[l + 1] * getWithoutPathScore(matches, parent);
+						if (sumsNext[parent] == Double.NEGATIVE_INFINITY) levelNext[nextSize++] = parent;
+						if (next > sumsNext[parent]) sumsNext[parent] = next;
+					}
+				}
+				double[] sumsSwap = sums;
+				sums = sumsNext;
+				sumsNext = sumsSwap;
+				int[] levelSwap = level;
+				level = levelNext;
+				levelNext = levelSwap;
+				levelSize = nextSize;
+			}
+			pathScores[ordinal] = best;
+		}
+		return pathScores;
+	}
+
+	// 0 for concepts without a match, i.e. from some other branch than their child, should not happen if EDAM is consistent
+	private static double getWithoutPathScore(Match[] matches, int ordinal) {
+		return (matches[ordinal] == null ? 0 : matches[ordinal].getWithoutPathScore());
+	}
+
+	private void initRegistry() {
+		if (registry == null) {
+			registry = new ConceptRegistry(processedConcepts);
+		}
+		if (blacklisted == null) {
+			blacklisted = new BitSet(registry.size());
+			if (edamBlacklist != null) {
+				for (EdamUri edamUri : edamBlacklist) {
+					int ordinal = registry.getOrdinal(edamUri);
+					if (ordinal >= 0) blacklisted.set(ordinal);
+				}
+			}
+		}
+	}
+
+	// the walks stop at matches already removed, so that concepts only reachable through removed matches are kept
+	private void removeParents(EdamUri edamUri, Match[] matches) {
+		removeParents(registry.getOrdinal(edamUri), matches);
+	}
+
+	private void removeParents(int ordinal, Match[] matches) {
+		for (int parent : registry.getParents(ordinal)) {
+			if (matches[parent] != null && !matches[parent].isRemoved()) {
+				matches[parent].setRemoved(true);
 				removeParents(parent, matches);
 			}
 		}
 	}
 
-	private void removeChildren(EdamUri edamUri, Map<EdamUri, Match> matches) {
-		for (EdamUri child : processedConcepts.get(edamUri).getDirectChildren()) {
-			if (matches.get(child) != null && !matches.get(child).isRemoved()) {
-				matches.get(child).setRemoved(true);
+	private void removeChildren(EdamUri edamUri, Match[] matches) {
+		removeChildren(registry.getOrdinal(edamUri), matches);
+	}
+
+	private void removeChildren(int ordinal, Match[] matches) {
+		for (int child : registry.getChildren(ordinal)) {
+			if (matches[child] != null && !matches[child].isRemoved()) {
+				matches[child].setRemoved(true);
 				removeChildren(child, matches);
 			}
 		}
 	}
 
 	private boolean isParent(EdamUri child, EdamUri parentSearched) {
-		boolean isParent = false;
-		for (EdamUri parent : processedConcepts.get(child).getDirectParents()) {
-			if (parentSearched.equals(parent)) {
-				isParent = true;
-				break;
-			} else if (isParent(parent, parentSearched)) {
-				isParent = true;
-				break;
-			}
-		}
-		return isParent;
+		int childOrdinal = registry.getOrdinal(child);
+		int parentOrdinal = registry.getOrdinal(parentSearched);
+		return childOrdinal >= 0 && parentOrdinal >= 0 && registry.isAncestor(childOrdinal, parentOrdinal);
 	}
 
 	private void addParentsChildren(Match match, Mapping mapping, boolean remainingAnnotation) {
@@ -1131,21 +1619,22 @@ public class Mapper {
 		}
 	}
 
-	private Match findBestReplacement(ConceptProcessed conceptProcessed, Match bestReplacementMatch, Map<EdamUri, Match> matches, Mapping mapping, MapperArgs args, int level) {
+	private Match findBestReplacement(int ordinal, Match bestReplacementMatch, Match[] matches, Mapping mapping, MapperArgs args, int level) {
 		if (level > FIND_BEST_REPLACEMENT_RECURSION_LIMIT) {
 			return bestReplacementMatch;
 		}
-		for (EdamUri edamUriReplacement : conceptProcessed.getReplacedBy()) {
+		for (int replacement : registry.getReplacedBy(ordinal)) {
 			if (bestReplacementMatch != null && bestReplacementMatch.getScore() < 0) {
 				break;
 			}
 			Match replacementMatch;
-			ConceptProcessed conceptProcessedReplacement = processedConcepts.get(edamUriReplacement);
-			if (conceptProcessedReplacement.isObsolete()) {
-				replacementMatch = findBestReplacement(conceptProcessedReplacement, bestReplacementMatch, matches, mapping, args, level + 1);
+			if (registry.isObsolete(replacement)) {
+				replacementMatch = findBestReplacement(replacement, bestReplacementMatch, matches, mapping, args, level + 1);
 			} else {
-				replacementMatch = matches.get(edamUriReplacement);
-				if (replacementMatch.isRemoved()) continue;
+				replacementMatch = matches[replacement];
+				// null if the replacement is from some branch not mapped to
+				if (replacementMatch == null || replacementMatch.isRemoved()) continue;
+				EdamUri edamUriReplacement = registry.getEdamUri(replacement);
 				boolean existing = false;
 				for (Match existingMatch : mapping.getMatches(edamUriReplacement.getBranch())) {
 					if (existingMatch.getEdamUri().equals(edamUriReplacement)) {
@@ -1166,40 +1655,172 @@ public class Mapper {
 	}
 
 	public Mapping map(Query query, QueryProcessed processedQuery, MapperArgs args) {
-		Mapping mapping = new Mapping(args.getMatches(), args.getBranches());
+		initRegistry();
+
+		QueryPrepared preparedQuery = new QueryPrepared(processedQuery, isTokenIds(processedQuery), args.getIdfArgs(), args.getNormaliserArgs());
+		preparedQuery.setTokenNeighbours(getTokenNeighbours(preparedQuery, args.getAlgorithmArgs()));
+
+		tokenPairMemo.clear();
+		compounds.clear();
+		// memos of workers are only valid for one query
+		workers.clear();
+		idleWorkers.clear();
+		if (args.getAlgorithmArgs().getPruning() == MapperPruning.exact) {
+			preparedQuery.setCompoundNeighbours(getCompoundNeighbours(preparedQuery, args.getAlgorithmArgs()));
+		}
+		Mapping mapping = map(query, preparedQuery, args);
+		for (Mapper worker : workers) {
+			tokenPairMemo.addCounts(worker.tokenPairMemo);
+		}
+		workers.clear();
+		idleWorkers.clear();
+		if (tokenPairMemo.getLookups() > 0) {
+			logger.debug("Token pair memo hits {} of {} for query {}", tokenPairMemo.getHits(), tokenPairMemo.getLookups(), query.getId());
+		}
+		tokenPairMemoHits += tokenPairMemo.getHits();
+		tokenPairMemoLookups += tokenPairMemo.getLookups();
+		tokenPairMemo.clear();
+		compounds.clear();
 
-		Map<EdamUri, Match> matches = new HashMap<>();
+		return mapping;
+	}
 
-		for (Map.Entry<EdamUri, ConceptProcessed> conceptEntry : processedConcepts.entrySet()) {
-			EdamUri edamUri = conceptEntry.getKey();
-			ConceptProcessed processedConcept = conceptEntry.getValue();
+	// a worker not used by any other task currently, made if there is none
+	private Mapper getWorker() {
+		Mapper worker = idleWorkers.poll();
+		if (worker == null) {
+			worker = new Mapper(processedConcepts, edamBlacklist, conceptIndex);
+			workers.add(worker);
+		}
+		return worker;
+	}
 
-			if (!args.getBranches().contains(edamUri.getBranch())) continue;
+	// matches of given concepts, in the same order, scored in parallel if pool is set
+	// (each task takes a worker Mapper for itself, as the memo and other scratch state of a Mapper are not thread-safe)
+	private Match[] scoreConcepts(int[] ordinals, int[] fields, QueryPrepared preparedQuery, MapperArgs args, Match prunedMatch) {
+		Match[] matches = new Match[ordinals.length];
+		if (pool == null || matches.length < 2 * MIN_TASK_SIZE) {
+			for (int i = 0; i < matches.length; ++i) {
+				matches[i] = scoreConcept(registry.getEdamUri(ordinals[i]), registry.getProcessedConcept(ordinals[i]), preparedQuery, args, fields[i], prunedMatch);
+			}
+			return matches;
+		}
+
+		// more tasks than threads, as the time needed to score concepts varies a lot
+		int taskSize = Math.max(MIN_TASK_SIZE, (matches.length + 4 * pool.getParallelism() - 1) / (4 * pool.getParallelism()));
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (int start = 0; start < matches.length; start += taskSize) {
+			int from = start;
+			int to = Math.min(start + taskSize, matches.length);
+			tasks.add(pool.submit(() -> {
+				Mapper worker = getWorker();
+				try {
+					for (int i = from; i < to; ++i) {
+						matches[i] = worker.scoreConcept(registry.getEdamUri(ordinals[i]), registry.getProcessedConcept(ordinals[i]), preparedQuery, args, fields[i], prunedMatch);
+					}
+				} finally {
+					idleWorkers.add(worker);
+				}
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		return matches;
+	}
+
+	private Mapping map(Query query, QueryPrepared preparedQuery, MapperArgs args) {
+		int[] candidateFields = getCandidateFields(preparedQuery, args);
+		// same as what getBestMatch would return for a concept not matching any query token
+		Match prunedMatch = (candidateFields != null ? getBestMatch(new ConceptProcessed(), preparedQuery, args, ALL_FIELDS) : null);
+
+		UpperBounds upperBounds = getUpperBounds(preparedQuery, candidateFields, args);
+
+		IntArrayList branchOrdinals = new IntArrayList();
+		for (Branch branch : Branch.values()) {
+			if (!args.getBranches().contains(branch)) continue;
+			for (int ordinal = registry.getBranchStart(branch); ordinal < registry.getBranchEnd(branch); ++ordinal) {
+				branchOrdinals.add(ordinal);
+			}
+		}
+
+		if (upperBounds == null) {
+			int[] ordinals = branchOrdinals.toArray();
+			int[] fields = new int[ordinals.length];
+			for (int i = 0; i < ordinals.length; ++i) {
+				fields[i] = (candidateFields != null ? candidateFields[ordinals[i]] : ALL_FIELDS);
+			}
+			Match[] scoredMatches = scoreConcepts(ordinals, fields, preparedQuery, args, prunedMatch);
+			Match[] matches = new Match[registry.size()];
+			for (int i = 0; i < ordinals.length; ++i) {
+				matches[ordinals[i]] = scoredMatches[i];
+			}
+			return getMapping(query, matches, args, Double.NEGATIVE_INFINITY);
+		}
+
+		// concepts are scored in increasing batches, in decreasing order of their upper bound,
+		// until the concepts not scored are known to not be able to change the mapping
+		List<Integer> order = new ArrayList<>();
+		for (IntCursor ordinal : branchOrdinals) {
+			order.add(ordinal.value);
+		}
+		Collections.sort(order, (a, b) -> Double.compare(upperBounds.pathScores[b], upperBounds.pathScores[a]));
 
-			if (processedConcept.getDirectParents().isEmpty() && !processedConcept.isObsolete()
-					|| processedConcept.isObsolete() && !args.isObsolete() && !args.isReplaceObsolete()) {
-				Match zeroMatch = new Match(0, new ConceptMatch(0, ConceptMatchType.none, -1), new QueryMatch(0, QueryMatchType.none, -1, -1));
-				zeroMatch.setEdamUri(edamUri);
-				matches.put(edamUri, zeroMatch);
-				continue;
+		Match[] scoredMatches = new Match[registry.size()];
+		for (int top = Math.max(MIN_SCORED, 4 * args.getMatches() * args.getBranches().size()); ; top *= 2) {
+			BitSet scored = new BitSet(registry.size());
+			for (int i = 0; i < top && i < order.size(); ++i) {
+				addScored(scored, order.get(i), args);
+			}
+			if (query.getAnnotations() != null) {
+				for (EdamUri annotation : query.getAnnotations()) {
+					addScored(scored, registry.getOrdinal(annotation), args);
+				}
+			}
+
+			// best possible score of a concept not scored that could get into the mapping
+			double limit = Double.NEGATIVE_INFINITY;
+			for (int i = Math.min(top, order.size()); i < order.size(); ++i) {
+				int ordinal = order.get(i);
+				if (!scored.get(ordinal) && !isSkipped(upperBounds, ordinal, registry.getEdamUri(ordinal).getBranch(), args.getScoreArgs())) {
+					limit = upperBounds.pathScores[ordinal];
+					break;
+				}
 			}
 
-			Match match = getBestMatch(processedConcept, processedQuery, args);
-			match.setEdamUri(edamUri);
+			IntArrayList ordinals = new IntArrayList();
+			IntArrayList fields = new IntArrayList();
+			for (int ordinal = scored.nextSetBit(0); ordinal >= 0; ordinal = scored.nextSetBit(ordinal + 1)) {
+				if (scoredMatches[ordinal] == null) {
+					ordinals.add(ordinal);
+					fields.add(candidateFields[ordinal]);
+				}
+			}
+			Match[] newMatches = scoreConcepts(ordinals.toArray(), fields.toArray(), preparedQuery, args, prunedMatch);
+			for (int i = 0; i < newMatches.length; ++i) {
+				scoredMatches[ordinals.get(i)] = newMatches[i];
+			}
 
-			if (processedConcept.isObsolete()) {
-				match.setScore(match.getScore() * args.getObsoletePenalty());
+			Match[] matches = new Match[registry.size()];
+			for (int ordinal = scored.nextSetBit(0); ordinal >= 0; ordinal = scored.nextSetBit(ordinal + 1)) {
+				matches[ordinal] = copyMatch(scoredMatches[ordinal]);
 			}
 
-			matches.put(edamUri, match);
+			Mapping mapping = getMapping(query, matches, args, limit);
+			if (mapping != null) return mapping;
 		}
+	}
+
+	// null if a match with a score not above limit would have to be considered for the mapping
+	private Mapping getMapping(Query query, Match[] matches, MapperArgs args, double limit) {
+		Mapping mapping = new Mapping(args.getMatches(), args.getBranches());
 
 		Set<EdamUri> annotations = new LinkedHashSet<>();
 		if (query.getAnnotations() != null) {
 			for (EdamUri annotation : query.getAnnotations()) {
 				if (args.getBranches().contains(annotation.getBranch())) {
 					annotations.add(annotation);
-					matches.get(annotation).setExistingAnnotation(true);
+					matches[registry.getOrdinal(annotation)].setExistingAnnotation(true);
 				}
 			}
 		}
@@ -1208,39 +1829,35 @@ public class Mapper {
 			for (EdamUri annotation : annotations) {
 				removeParents(annotation, matches);
 				removeChildren(annotation, matches);
-				matches.get(annotation).setRemoved(true);
+				matches[registry.getOrdinal(annotation)].setRemoved(true);
 			}
 		}
 
 		if (args.getAlgorithmArgs().getPathWeight() > 0 && args.getAlgorithmArgs().getParentWeight() > 0) {
-			for (Match match : matches.values()) {
-				match.setWithoutPathScore(match.getScore());
+			for (Match match : matches) {
+				if (match != null) match.setWithoutPathScore(match.getScore());
 			}
-			for (Map.Entry<EdamUri, Match> matchEntry : matches.entrySet()) {
-				EdamUri edamUri = matchEntry.getKey();
-				Match match = matchEntry.getValue();
-
-				if (processedConcepts.get(edamUri).getDirectParents().isEmpty()) {
+			double[] pathScores = getPathScores(matches, args.getAlgorithmArgs().getParentWeight());
+			for (int ordinal = 0; ordinal < matches.length; ++ordinal) {
+				if (matches[ordinal] == null || registry.isTopLevel(ordinal)) {
 					continue;
 				}
-
-				double bestPathScore = 0;
-				for (EdamUri parent : processedConcepts.get(edamUri).getDirectParents()) {
-					double best = bestPathScore(parent, matches, 1, 0, args.getAlgorithmArgs().getParentWeight());
-					if (best > bestPathScore) bestPathScore = best;
-				}
-				match.setScore((match.getScore() + args.getAlgorithmArgs().getPathWeight() * bestPathScore) / (1 + args.getAlgorithmArgs().getPathWeight()));
+				matches[ordinal].setScore((matches[ordinal].getScore() + args.getAlgorithmArgs().getPathWeight() * pathScores[ordinal]) / (1 + args.getAlgorithmArgs().getPathWeight()));
 			}
 		}
 
-		for (Match match : matches.values()) {
-			if (processedConcepts.get(match.getEdamUri()).getDirectParents().isEmpty() && !processedConcepts.get(match.getEdamUri()).isObsolete()) {
+		List<Integer> sortedOrdinals = new ArrayList<>();
+		for (int ordinal = 0; ordinal < matches.length; ++ordinal) {
+			Match match = matches[ordinal];
+			if (match == null) continue;
+			sortedOrdinals.add(ordinal);
+			if (registry.isTopLevel(ordinal) && !registry.isObsolete(ordinal)) {
 				match.setRemoved(true);
 			}
-			if (processedConcepts.get(match.getEdamUri()).isObsolete() && !args.isObsolete() && !args.isReplaceObsolete()) {
+			if (registry.isObsolete(ordinal) && !args.isObsolete() && !args.isReplaceObsolete()) {
 				match.setRemoved(true);
 			}
-			if (edamBlacklist != null && edamBlacklist.contains(match.getEdamUri())) {
+			if (blacklisted.get(ordinal)) {
 				match.setRemoved(true);
 			}
 			if (!args.isDoneAnnotations() && match.isExistingAnnotation()) {
@@ -1248,11 +1865,13 @@ public class Mapper {
 			}
 		}
 
-		List<Match> sortedMatches = new ArrayList<>(matches.values());
-		Collections.sort(sortedMatches, Collections.reverseOrder());
+		// in decreasing order of score, ties in increasing order of ordinal
+		Collections.sort(sortedOrdinals, (a, b) -> matches[b].compareTo(matches[a]));
 
-		for (Match match : sortedMatches) {
+		for (int ordinal : sortedOrdinals) {
+			Match match = matches[ordinal];
 			if (mapping.isFull()) break;
+			if (match.getScore() <= limit) return null;
 			if (mapping.isFull(match.getEdamUri().getBranch())) continue;
 
 			if (match.isRemoved()) continue;
@@ -1267,26 +1886,8 @@ public class Mapper {
 				}
 			}
 
-			double goodScore = 0;
-			double badScore = 0;
-			switch (match.getEdamUri().getBranch()) {
-			case topic:
-				goodScore = args.getScoreArgs().getGoodScoreTopic();
-				badScore = args.getScoreArgs().getBadScoreTopic();
-				break;
-			case operation:
-				goodScore = args.getScoreArgs().getGoodScoreOperation();
-				badScore = args.getScoreArgs().getBadScoreOperation();
-				break;
-			case data:
-				goodScore = args.getScoreArgs().getGoodScoreData();
-				badScore = args.getScoreArgs().getBadScoreData();
-				break;
-			case format:
-				goodScore = args.getScoreArgs().getGoodScoreFormat();
-				badScore = args.getScoreArgs().getBadScoreFormat();
-				break;
-			}
+			double goodScore = getGoodScore(match.getEdamUri().getBranch(), args.getScoreArgs());
+			double badScore = getBadScore(match.getEdamUri().getBranch(), args.getScoreArgs());
 
 			double score = 0;
 			if (args.getAlgorithmArgs().getMappingStrategy() == MapperStrategy.average) {
@@ -1307,15 +1908,15 @@ public class Mapper {
 						mapping.getMatches(match.getEdamUri().getBranch()).size() + 1 <= args.getScoreArgs().getPassableBadScoresInTopN())) continue;
 			}
 
-			if (processedConcepts.get(match.getEdamUri()).isObsolete() && args.isReplaceObsolete()) {
-				Match bestReplacementMatch = findBestReplacement(processedConcepts.get(match.getEdamUri()), null, matches, mapping, args, 0);
+			if (registry.isObsolete(ordinal) && args.isReplaceObsolete()) {
+				Match bestReplacementMatch = findBestReplacement(ordinal, null, matches, mapping, args, 0);
 				if (bestReplacementMatch != null && bestReplacementMatch.getScore() >= 0) {
 					match.setEdamUri(bestReplacementMatch.getEdamUri());
 					if (!match.isExistingAnnotation()) {
 						match.setExistingAnnotation(bestReplacementMatch.isExistingAnnotation());
 					}
 					bestReplacementMatch.setRemoved(true);
-				} else if (!(args.isObsolete() && processedConcepts.get(match.getEdamUri()).getReplacedBy().isEmpty())) {
+				} else if (!(args.isObsolete() && registry.getProcessedConcept(ordinal).getReplacedBy().isEmpty())) {
 					continue;
 				}
 			}
@@ -1328,9 +1929,11 @@ public class Mapper {
 			addParentsChildren(match, mapping, false);
 			mapping.addMatch(match);
 		}
+		if (!mapping.isFull() && limit > Double.NEGATIVE_INFINITY) return null;
 
 		if (args.isDoneAnnotations() && annotations.size() > 0) {
-			for (Match match : sortedMatches) {
+			for (int ordinal : sortedOrdinals) {
+				Match match = matches[ordinal];
 				if (match.isExistingAnnotation() && !mapping.getMatches(match.getEdamUriOriginal().getBranch()).contains(match)) {
 					boolean existing = false;
 					for (Match existingMatch : mapping.getMatches(match.getEdamUriOriginal().getBranch())) {
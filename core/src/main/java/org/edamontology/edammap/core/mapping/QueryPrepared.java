@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.mapping;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.edamontology.edammap.core.idf.Idf;
+import org.edamontology.edammap.core.mapping.args.IdfArgs;
+import org.edamontology.edammap.core.mapping.args.NormaliserArgs;
+import org.edamontology.edammap.core.processing.PublicationProcessed;
+import org.edamontology.edammap.core.processing.QueryProcessed;
+
+// Query parts, flattened for each QueryMatchType, that all concepts are matched against.
+// Prepared once in Mapper.map, as they don't depend on the concept being matched, and not modified afterwards.
+public class QueryPrepared {
+
+	static class Part {
+		final List<List<String>> tokens = new ArrayList<>();
+		final List<int[]> tokenIds;
+		final List<double[]> idfPowers = new ArrayList<>();
+		final List<Double> multipliers = new ArrayList<>();
+		boolean shortParts = false;
+
+		private Part(boolean tokenIds) {
+			this.tokenIds = tokenIds ? new ArrayList<>() : null;
+		}
+	}
+
+	private final QueryProcessed processedQuery;
+
+	private final boolean tokenIds;
+
+	private final Map<QueryMatchType, Part> parts = new EnumMap<>(QueryMatchType.class);
+
+	// idf^queryIdfScaling of all IDF arrays of the query, keyed by the IDF array (or list of arrays) itself
+	private final Map<double[], double[]> idfPowers = new IdentityHashMap<>();
+	private final Map<List<double[]>, List<double[]>> idfsPowers = new IdentityHashMap<>();
+
+	private TokenNeighbours tokenNeighbours = null;
+
+	private CompoundNeighbours compoundNeighbours = null;
+
+	QueryPrepared(QueryProcessed processedQuery, boolean tokenIds, IdfArgs idfArgs, NormaliserArgs normaliserArgs) {
+		this.processedQuery = processedQuery;
+		this.tokenIds = tokenIds;
+		if (idfArgs.getQueryIdfScaling() > 0) {
+			addIdfPowers(processedQuery, idfArgs.getQueryIdfScaling());
+		}
+		for (QueryMatchType type : QueryMatchType.values()) {
+			if (type == QueryMatchType.none) continue;
+			if (type == QueryMatchType.publication_go) {
+				// EFO and GO terms are matched together
+				parts.put(type, parts.get(QueryMatchType.publication_efo));
+			} else {
+				parts.put(type, prepare(processedQuery, type, tokenIds, idfArgs, normaliserArgs));
+			}
+		}
+	}
+
+	private void addIdfPowers(double[] idfs, double scaling) {
+		if (idfs != null && !idfPowers.containsKey(idfs)) {
+			idfPowers.put(idfs, Idf.getIdfPowers(idfs, scaling));
+		}
+	}
+
+	private void addIdfPowers(List<double[]> idfs, double scaling) {
+		if (idfs != null && !idfsPowers.containsKey(idfs)) {
+			List<double[]> powers = new ArrayList<>(idfs.size());
+			for (double[] sentenceIdfs : idfs) {
+				addIdfPowers(sentenceIdfs, scaling);
+				powers.add(getIdfPowers(sentenceIdfs));
+			}
+			idfsPowers.put(idfs, powers);
+		}
+	}
+
+	private void addIdfPowers(QueryProcessed processedQuery, double scaling) {
+		addIdfPowers(processedQuery.getNameIdfs(), scaling);
+		for (double[] keywordIdfs : processedQuery.getKeywordsIdfs()) {
+			addIdfPowers(keywordIdfs, scaling);
+		}
+		addIdfPowers(processedQuery.getDescriptionIdfs(), scaling);
+		for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+			if (processedPublication == null) continue;
+			addIdfPowers(processedPublication.getTitleIdfs(), scaling);
+			for (double[] keywordIdfs : processedPublication.getKeywordsIdfs()) {
+				addIdfPowers(keywordIdfs, scaling);
+			}
+			for (double[] meshTermIdfs : processedPublication.getMeshTermsIdfs()) {
+				addIdfPowers(meshTermIdfs, scaling);
+			}
+			for (double[] efoTermIdfs : processedPublication.getEfoTermsIdfs()) {
+				addIdfPowers(efoTermIdfs, scaling);
+			}
+			for (double[] goTermIdfs : processedPublication.getGoTermsIdfs()) {
+				addIdfPowers(goTermIdfs, scaling);
+			}
+			addIdfPowers(processedPublication.getAbstractIdfs(), scaling);
+			addIdfPowers(processedPublication.getFulltextIdfs(), scaling);
+		}
+		for (List<double[]> docIdfs : processedQuery.getDocsIdfs()) {
+			addIdfPowers(docIdfs, scaling);
+		}
+		for (List<double[]> webpageIdfs : processedQuery.getWebpagesIdfs()) {
+			addIdfPowers(webpageIdfs, scaling);
+		}
+	}
+
+	private Part prepare(QueryProcessed processedQuery, QueryMatchType type, boolean tokenIds, IdfArgs idfArgs, NormaliserArgs normaliserArgs) {
+		Part part = new Part(tokenIds);
+
+		switch (type) {
+		case name:
+			if (processedQuery.getNameTokens() != null && normaliserArgs.getNameNormaliser() > 0) {
+				part.tokens.add(processedQuery.getNameTokens());
+				if (part.tokenIds != null) part.tokenIds.add(processedQuery.getNameTokenIds());
+				part.idfPowers.add((processedQuery.getNameIdfs() == null || !idfArgs.isNameKeywordsIdf()) ? null : getIdfPowers(processedQuery.getNameIdfs()));
+				part.multipliers.add(1.0);
+			}
+			part.shortParts = true;
+			break;
+		case keyword:
+			if (normaliserArgs.getKeywordNormaliser() > 0) {
+				for (int i = 0; i < processedQuery.getKeywordsTokens().size(); ++i) {
+					if (processedQuery.getKeywordsTokens().get(i) == null) continue;
+					part.tokens.add(processedQuery.getKeywordsTokens().get(i));
+					if (part.tokenIds != null) part.tokenIds.add(processedQuery.getKeywordsTokenIds().get(i));
+					part.idfPowers.add((processedQuery.getKeywordsIdfs().get(i) == null || !idfArgs.isNameKeywordsIdf()) ? null : getIdfPowers(processedQuery.getKeywordsIdfs().get(i)));
+					part.multipliers.add(1.0);
+				}
+			}
+			part.shortParts = true;
+			break;
+		case description:
+			if (normaliserArgs.getDescriptionNormaliser() > 0) {
+				for (int i = 0; i < processedQuery.getDescriptionTokens().size(); ++i) {
+					part.tokens.add(processedQuery.getDescriptionTokens().get(i));
+					if (part.tokenIds != null) part.tokenIds.add(processedQuery.getDescriptionTokenIds().get(i));
+					part.idfPowers.add((processedQuery.getDescriptionIdfs() == null || processedQuery.getDescriptionIdfs().get(i) == null || !idfArgs.isDescriptionIdf()) ? null : getIdfPowers(processedQuery.getDescriptionIdfs().get(i)));
+					part.multipliers.add(1.0);
+				}
+			}
+			part.shortParts = true;
+			break;
+		case publication_title:
+			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+				if (processedPublication == null) continue;
+				if (processedPublication.getTitleTokens() != null && normaliserArgs.getPublicationTitleNormaliser() > 0) {
+					part.tokens.add(processedPublication.getTitleTokens());
+					if (part.tokenIds != null) part.tokenIds.add(processedPublication.getTitleTokenIds());
+					part.idfPowers.add((processedPublication.getTitleIdfs() == null || !idfArgs.isTitleKeywordsIdf()) ? null : getIdfPowers(processedPublication.getTitleIdfs()));
+					part.multipliers.add(1.0);
+				}
+			}
+			part.shortParts = true;
+			break;
+		case publication_keyword:
+			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+				if (processedPublication == null) continue;
+				if (normaliserArgs.getPublicationKeywordNormaliser() > 0) {
+					for (int i = 0; i < processedPublication.getKeywordsTokens().size(); ++i) {
+						if (processedPublication.getKeywordsTokens().get(i) == null) continue;
+						part.tokens.add(processedPublication.getKeywordsTokens().get(i));
+						if (part.tokenIds != null) part.tokenIds.add(processedPublication.getKeywordsTokenIds().get(i));
+						part.idfPowers.add((processedPublication.getKeywordsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? null : getIdfPowers(processedPublication.getKeywordsIdfs().get(i)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = true;
+			break;
+		case publication_mesh:
+			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+				if (processedPublication == null) continue;
+				if (normaliserArgs.getPublicationMeshNormaliser() > 0) {
+					for (int i = 0; i < processedPublication.getMeshTermsTokens().size(); ++i) {
+						if (processedPublication.getMeshTermsTokens().get(i) == null) continue;
+						part.tokens.add(processedPublication.getMeshTermsTokens().get(i));
+						if (part.tokenIds != null) part.tokenIds.add(processedPublication.getMeshTermsTokenIds().get(i));
+						part.idfPowers.add((processedPublication.getMeshTermsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? null : getIdfPowers(processedPublication.getMeshTermsIdfs().get(i)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = true;
+			break;
+		case publication_efo:
+		case publication_go:
+			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+				if (processedPublication == null) continue;
+				if (normaliserArgs.getPublicationMinedTermNormaliser() > 0) {
+					for (int i = 0; i < processedPublication.getEfoTermsTokens().size(); ++i) {
+						if (processedPublication.getEfoTermsTokens().get(i) == null) continue;
+						part.tokens.add(processedPublication.getEfoTermsTokens().get(i));
+						if (part.tokenIds != null) part.tokenIds.add(processedPublication.getEfoTermsTokenIds().get(i));
+						part.idfPowers.add((processedPublication.getEfoTermsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? null : getIdfPowers(processedPublication.getEfoTermsIdfs().get(i)));
+						part.multipliers.add(1.0);
+					}
+				}
+				if (normaliserArgs.getPublicationMinedTermNormaliser() > 0) {
+					for (int i = 0; i < processedPublication.getGoTermsTokens().size(); ++i) {
+						if (processedPublication.getGoTermsTokens().get(i) == null) continue;
+						part.tokens.add(processedPublication.getGoTermsTokens().get(i));
+						if (part.tokenIds != null) part.tokenIds.add(processedPublication.getGoTermsTokenIds().get(i));
+						part.idfPowers.add((processedPublication.getGoTermsIdfs().get(i) == null || !idfArgs.isTitleKeywordsIdf()) ? null : getIdfPowers(processedPublication.getGoTermsIdfs().get(i)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = true;
+			break;
+		case publication_abstract:
+			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+				if (processedPublication == null) continue;
+				if (normaliserArgs.getPublicationAbstractNormaliser() > 0) {
+					for (int i = 0; i < processedPublication.getAbstractTokens().size(); ++i) {
+						part.tokens.add(processedPublication.getAbstractTokens().get(i));
+						if (part.tokenIds != null) part.tokenIds.add(processedPublication.getAbstractTokenIds().get(i));
+						part.idfPowers.add((processedPublication.getAbstractIdfs() == null || processedPublication.getAbstractIdfs().get(i) == null || !idfArgs.isAbstractIdf()) ? null : getIdfPowers(processedPublication.getAbstractIdfs().get(i)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = true;
+			break;
+		case publication_fulltext:
+			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+				if (processedPublication == null) continue;
+				if (normaliserArgs.getPublicationFulltextNormaliser() > 0) {
+					for (int i = 0; i < processedPublication.getFulltextTokens().size(); ++i) {
+						part.tokens.add(processedPublication.getFulltextTokens().get(i));
+						if (part.tokenIds != null) part.tokenIds.add(processedPublication.getFulltextTokenIds().get(i));
+						part.idfPowers.add((processedPublication.getFulltextIdfs() == null || processedPublication.getFulltextIdfs().get(i) == null) ? null : getIdfPowers(processedPublication.getFulltextIdfs().get(i)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = false;
+			break;
+		case doc:
+			if (normaliserArgs.getDocNormaliser() > 0) {
+				for (int i = 0; i < processedQuery.getDocsTokens().size(); ++i) {
+					if (processedQuery.getDocsTokens().get(i) == null) continue;
+					for (int j = 0; j < processedQuery.getDocsTokens().get(i).size(); ++j) {
+						part.tokens.add(processedQuery.getDocsTokens().get(i).get(j));
+						if (part.tokenIds != null) part.tokenIds.add(processedQuery.getDocsTokenIds().get(i).get(j));
+						part.idfPowers.add((processedQuery.getDocsIdfs().get(i) == null) ? null : getIdfPowers(processedQuery.getDocsIdfs().get(i).get(j)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = false;
+			break;
+		case webpage:
+			if (normaliserArgs.getWebpageNormaliser() > 0) {
+				for (int i = 0; i < processedQuery.getWebpagesTokens().size(); ++i) {
+					if (processedQuery.getWebpagesTokens().get(i) == null) continue;
+					for (int j = 0; j < processedQuery.getWebpagesTokens().get(i).size(); ++j) {
+						part.tokens.add(processedQuery.getWebpagesTokens().get(i).get(j));
+						if (part.tokenIds != null) part.tokenIds.add(processedQuery.getWebpagesTokenIds().get(i).get(j));
+						part.idfPowers.add((processedQuery.getWebpagesIdfs().get(i) == null) ? null : getIdfPowers(processedQuery.getWebpagesIdfs().get(i).get(j)));
+						part.multipliers.add(1.0);
+					}
+				}
+			}
+			part.shortParts = false;
+			break;
+		default:
+			break;
+		}
+
+		return part;
+	}
+
+	public QueryProcessed getProcessedQuery() {
+		return processedQuery;
+	}
+
+	public boolean isTokenIds() {
+		return tokenIds;
+	}
+
+	Part getPart(QueryMatchType type) {
+		return parts.get(type);
+	}
+
+	// null if no IDF scaling is to be done
+	double[] getIdfPowers(double[] idfs) {
+		return idfPowers.get(idfs);
+	}
+
+	List<double[]> getIdfPowers(List<double[]> idfs) {
+		return idfsPowers.get(idfs);
+	}
+
+	// null if approximate matching of tokens is not done through neighbours
+	TokenNeighbours getTokenNeighbours() {
+		return tokenNeighbours;
+	}
+	void setTokenNeighbours(TokenNeighbours tokenNeighbours) {
+		this.tokenNeighbours = tokenNeighbours;
+	}
+
+	// null if compound matching of tokens is not done or concepts are not pruned exactly
+	CompoundNeighbours getCompoundNeighbours() {
+		return compoundNeighbours;
+	}
+	void setCompoundNeighbours(CompoundNeighbours compoundNeighbours) {
+		this.compoundNeighbours = compoundNeighbours;
+	}
+}
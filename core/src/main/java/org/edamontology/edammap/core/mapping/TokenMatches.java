@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.mapping;
+
+import java.util.Arrays;
+
+// Matches between tokens of one token sequence (to) and tokens of another (from), as parallel arrays.
+// Reused by Mapper for all calculated scores, so that matching doesn't allocate.
+class TokenMatches {
+
+	int[] to = new int[64];
+	int[] from = new int[64];
+	double[] score = new double[64];
+
+	int size = 0;
+
+	private long[] keys = new long[64];
+	private int[] swapFrom = new int[64];
+	private double[] swapScore = new double[64];
+
+	void clear() {
+		size = 0;
+	}
+
+	void add(int to, int from, double score) {
+		if (size == this.to.length) {
+			this.to = Arrays.copyOf(this.to, size * 2);
+			this.from = Arrays.copyOf(this.from, size * 2);
+			this.score = Arrays.copyOf(this.score, size * 2);
+		}
+		this.to[size] = to;
+		this.from[size] = from;
+		this.score[size] = score;
+		++size;
+	}
+
+	// stable sort by to, done by sorting to and the index of the match packed in a long
+	void sortByTo() {
+		// keep all arrays the same length, as from and score are swapped with the sorted ones
+		if (swapFrom.length != to.length) {
+			keys = new long[to.length];
+			swapFrom = new int[to.length];
+			swapScore = new double[to.length];
+		}
+		for (int i = 0; i < size; ++i) {
+			keys[i] = ((long) to[i] << 32) | i;
+		}
+		Arrays.sort(keys, 0, size);
+		for (int i = 0; i < size; ++i) {
+			int index = (int) keys[i];
+			to[i] = (int) (keys[i] >>> 32);
+			swapFrom[i] = from[index];
+			swapScore[i] = score[index];
+		}
+		int[] fromSorted = swapFrom;
+		swapFrom = from;
+		from = fromSorted;
+		double[] scoreSorted = swapScore;
+		swapScore = score;
+		score = scoreSorted;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.mapping;
+
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+
+// Scores of approximate matches between query tokens and the concept tokens within the allowed distance of them,
+// found once per query with the BkTree of the concept vocabulary, so that they don't have to be computed for each concept.
+class TokenNeighbours {
+
+	// token IDs below this are from the concepts
+	private final int conceptTokens;
+
+	private final IntObjectHashMap<IntDoubleHashMap> neighbours = new IntObjectHashMap<>();
+
+	TokenNeighbours(int conceptTokens) {
+		this.conceptTokens = conceptTokens;
+	}
+
+	void put(int queryTokenId, IntDoubleHashMap scores) {
+		neighbours.put(queryTokenId, scores);
+	}
+
+	// null if not a query token
+	IntDoubleHashMap getNeighbours(int queryTokenId) {
+		return neighbours.get(queryTokenId);
+	}
+
+	// score of approximate match between a query token and a concept token (given in any order), or -1 if not known
+	double getScore(int tokenId, int otherTokenId) {
+		IntDoubleHashMap scores = (otherTokenId < conceptTokens ? neighbours.get(tokenId) : null);
+		if (scores != null) return scores.getOrDefault(otherTokenId, 0);
+		scores = (tokenId < conceptTokens ? neighbours.get(otherTokenId) : null);
+		if (scores != null) return scores.getOrDefault(tokenId, 0);
+		return -1;
+	}
+}
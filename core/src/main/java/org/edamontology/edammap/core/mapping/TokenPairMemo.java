@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.mapping;
+
+import com.carrotsearch.hppc.LongDoubleHashMap;
+
+// Scores of approximate and compound matches of token pairs already computed in the current query,
+// keyed by the token IDs of the pair (see getKey), as the same pairs are matched for many concepts.
+class TokenPairMemo {
+
+	private static final int ID_BITS = 20;
+
+	private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+	private final LongDoubleHashMap scores = new LongDoubleHashMap();
+
+	private long hits = 0;
+
+	private long lookups = 0;
+
+	// key for a single token pair (order doesn't matter, as the score is symmetric) or for a token and a compound of two tokens,
+	// -1 if the pair can't be memoized
+	static long getKey(int[] toIds, int toI, int toCW, int[] fromIds, int fromI, int fromCW, boolean approximate) {
+		if (toIds == null || fromIds == null || toCW + fromCW > 1) return -1;
+		long a, b, c;
+		if (toCW == 0 && fromCW == 0) {
+			a = Math.min(toIds[toI], fromIds[fromI]);
+			b = Math.max(toIds[toI], fromIds[fromI]);
+			c = 0;
+		} else if (toCW > 0) {
+			a = fromIds[fromI];
+			b = toIds[toI];
+			c = toIds[toI + 1];
+		} else {
+			a = toIds[toI];
+			b = fromIds[fromI];
+			c = fromIds[fromI + 1];
+		}
+		if ((a | b | c) > ID_MASK || (a | b | c) < 0) return -1;
+		long key = a | (b << ID_BITS) | (c << (2 * ID_BITS));
+		if (toCW + fromCW > 0) key |= 1L << (3 * ID_BITS);
+		if (approximate) key |= 1L << (3 * ID_BITS + 1);
+		return key;
+	}
+
+	// score for key, or NaN if not memoized
+	double get(long key) {
+		++lookups;
+		int index = scores.indexOf(key);
+		if (index < 0) return Double.NaN;
+		++hits;
+		return scores.indexGet(index);
+	}
+
+	void put(long key, double score) {
+		scores.put(key, score);
+	}
+
+	void clear() {
+		scores.clear();
+		hits = 0;
+		lookups = 0;
+	}
+
+	// add hits and lookups of a memo used for part of the same query
+	void addCounts(TokenPairMemo other) {
+		hits += other.hits;
+		lookups += other.lookups;
+	}
+
+	long getHits() {
+		return hits;
+	}
+
+	long getLookups() {
+		return lookups;
+	}
+}
@@ -23,6 +23,7 @@ import com.beust.jcommander.Parameter;
 
 import org.edamontology.edammap.core.args.PositiveDouble;
 import org.edamontology.edammap.core.args.ZeroToOneDouble;
+import org.edamontology.edammap.core.mapping.MapperPruning;
 import org.edamontology.edammap.core.mapping.MapperStrategy;
 
 import org.edamontology.pubfetcher.core.common.Arg;
@@ -109,6 +110,12 @@ public class AlgorithmArgs extends Args {
 	@Parameter(names = { "--" + pathWeightId }, validateWith = PositiveDouble.class, description = pathWeightDescription)
 	private Double pathWeight = pathWeightDefault;
 
+	private static final String pruningId = "pruning";
+	private static final String pruningDescription = "Don't score concepts not sharing any word with the query. With \"exact\", this is only done if it can't change results: with matchMinimum below 1, words within the allowed distance of some query word also count as shared, and with compoundWords above 0, also words and compounds of words within the allowed distance of some compound or word of the query. Also concepts whose upper bound of score is too low to get into the results are not scored. With \"approximate\", this is done without considering compound word matches (and approximate word matches, if their allowed distance is not bounded), so concepts that could only be matched through these will get a score of 0.";
+	private static final MapperPruning pruningDefault = MapperPruning.exact;
+	@Parameter(names = { "--" + pruningId }, description = pruningDescription)
+	private MapperPruning pruning = pruningDefault;
+
 	@Override
 	protected void addArgs() {
 		args.add(new Arg<>(this::getCompoundWords, this::setCompoundWords, compoundWordsDefault, 0, null, compoundWordsId, "Compound words", compoundWordsDescription, null));
@@ -124,6 +131,7 @@ public class AlgorithmArgs extends Args {
 		args.add(new Arg<>(this::getMappingStrategy, this::setMappingStrategy, mappingStrategyDefault, mappingStrategyId, "Mapping strategy", mappingStrategyDescription, MapperStrategy.class));
 		args.add(new Arg<>(this::getParentWeight, this::setParentWeight, parentWeightDefault, 0.0, null, parentWeightId, "Parent weight", parentWeightDescription, null));
 		args.add(new Arg<>(this::getPathWeight, this::setPathWeight, pathWeightDefault, 0.0, null, pathWeightId, "Path weight", pathWeightDescription, null));
+		args.add(new Arg<>(this::getPruning, this::setPruning, pruningDefault, pruningId, "Pruning", pruningDescription, MapperPruning.class));
 	}
 
 	@Override
@@ -226,4 +234,11 @@ public class AlgorithmArgs extends Args {
 	public void setPathWeight(Double pathWeight) {
 		this.pathWeight = pathWeight;
 	}
+
+	public MapperPruning getPruning() {
+		return pruning;
+	}
+	public void setPruning(MapperPruning pruning) {
+		this.pruning = pruning;
+	}
 }
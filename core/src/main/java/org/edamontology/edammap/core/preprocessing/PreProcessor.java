@@ -23,8 +23,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -111,25 +115,46 @@ public class PreProcessor {
 	// Freestanding number (not part of a word)
 	private final Pattern NUMBER = Pattern.compile("^[\\p{N}]+$");
 
+	private final SinglePassTokeniser singlePassTokeniser;
+
 	private final boolean numbers;
 
-	private final List<String> stopwords;
+	private final Set<String> stopwords;
 
 	private final Stemmer stemmer;
 
+	// Stems of tokens seen by all instances doing stemming, as the stem of a token does not depend on anything else.
+	// Token frequencies are very skewed, so most tokens are found here, without needing to run the stemmer.
+	// Bounded by keeping two generations: new stems are added to the current one, which replaces the old one when full,
+	// and stems found in the old one are copied to the current one, so only stems not used during a whole generation are evicted.
+	// Lookups are not locked, but additions are, so the two generations hold at most 2 * STEMS_GENERATION_MAX stems.
+	private static final int STEMS_GENERATION_MAX = 1 << 16;
+	private static volatile Map<String, String> stems = new ConcurrentHashMap<>();
+	private static volatile Map<String, String> stemsOld = new ConcurrentHashMap<>();
+	private static final Object stemsLock = new Object();
+
 	private final int minLength;
 
+	// identifies the args the output of process() depends on (the tokeniser does not change the output)
+	private final String argsKey;
+
 	public PreProcessor(PreProcessorArgs args) throws IOException {
+		this.singlePassTokeniser = (args.getTokeniser() == Tokeniser.single_pass ? new SinglePassTokeniser() : null);
+
 		this.numbers = args.isNumbers();
 
-		this.stopwords = getStopwords(args.getStopwords());
+		this.stopwords = new HashSet<>(getStopwords(args.getStopwords()));
 
 		this.stemmer = (args.isStemming() ? new Stemmer() : null);
 
 		this.minLength = args.getMinLength();
+
+		this.argsKey = argsKey(numbers, args.getStopwords(), args.isStemming(), minLength);
 	}
 
-	public PreProcessor(PreProcessorArgs args, List<String> stopwords) {
+	public PreProcessor(PreProcessorArgs args, Set<String> stopwords) {
+		this.singlePassTokeniser = (args.getTokeniser() == Tokeniser.single_pass ? new SinglePassTokeniser() : null);
+
 		this.numbers = args.isNumbers();
 
 		this.stopwords = stopwords;
@@ -137,16 +162,45 @@ public class PreProcessor {
 		this.stemmer = (args.isStemming() ? new Stemmer() : null);
 
 		this.minLength = args.getMinLength();
+
+		this.argsKey = argsKey(numbers, args.getStopwords(), args.isStemming(), minLength);
 	}
 
 	public PreProcessor(boolean stemming) throws IOException {
+		this.singlePassTokeniser = null;
+
 		this.numbers = true;
 
-		this.stopwords = getStopwords(Stopwords.off);
+		this.stopwords = Collections.emptySet();
 
 		this.stemmer = (stemming ? new Stemmer() : null);
 
 		this.minLength = 1;
+
+		this.argsKey = argsKey(numbers, Stopwords.off, stemming, minLength);
+	}
+
+	// same args as other, for use in another thread
+	public PreProcessor(PreProcessor other) {
+		this.singlePassTokeniser = (other.singlePassTokeniser != null ? new SinglePassTokeniser() : null);
+
+		this.numbers = other.numbers;
+
+		this.stopwords = other.stopwords;
+
+		this.stemmer = (other.stemmer != null ? new Stemmer() : null);
+
+		this.minLength = other.minLength;
+
+		this.argsKey = other.argsKey;
+	}
+
+	private static String argsKey(boolean numbers, Stopwords stopwords, boolean stemming, int minLength) {
+		return "numbers=" + numbers + " stopwords=" + stopwords + " stemming=" + stemming + " minLength=" + minLength;
+	}
+
+	public String getArgsKey() {
+		return argsKey;
 	}
 
 	public static List<String> getStopwords(Stopwords stopwords) throws IOException {
@@ -170,14 +224,45 @@ public class PreProcessor {
 		return sbN.toString();
 	}
 
+	private String stem(String token) {
+		Map<String, String> stemsCurrent = stems;
+		String stem = stemsCurrent.get(token);
+		if (stem == null) {
+			stem = stemsOld.get(token);
+			if (stem == null) {
+				for (int i = 0; i < token.length(); ++i) {
+					stemmer.add(token.charAt(i));
+				}
+				stemmer.stem();
+				stem = stemmer.toString();
+			}
+			// adding and replacing the full generation are done together, so no thread can add to a generation that is already old
+			synchronized (stemsLock) {
+				if (stems.size() >= STEMS_GENERATION_MAX) {
+					stemsOld = stems;
+					stems = new ConcurrentHashMap<>();
+				}
+				stems.put(token, stem);
+			}
+		}
+		return stem;
+	}
+
 	public List<String> process(String input) {
 		return process(input, null);
 	}
 
-	public List<String> process(String input, List<String> extracted) {
-		input = HYPHENATION.matcher(input).replaceAll("");
+	// a sentence from sentences() can't contain matches of HYPHENATION and WORD_DIVIDER anymore (but can contain matches of periodFix)
+	private List<String> tokenise(String input, boolean sentence) {
+		if (singlePassTokeniser != null) {
+			return singlePassTokeniser.tokenise(input);
+		}
 
-		input = WORD_DIVIDER.matcher(input).replaceAll(" ");
+		if (!sentence) {
+			input = HYPHENATION.matcher(input).replaceAll("");
+
+			input = WORD_DIVIDER.matcher(input).replaceAll(" ");
+		}
 
 		input = periodFix(input);
 
@@ -197,8 +282,48 @@ public class PreProcessor {
 
 		input = input.toLowerCase(Locale.ROOT);
 
-		List<String> output = Arrays.stream(input.split(" ")).collect(Collectors.toList());
+		return Arrays.stream(input.split(" ")).collect(Collectors.toList());
+	}
+
+	public List<String> process(String input, List<String> extracted) {
+		return postProcess(tokenise(input, false), extracted);
+	}
+
+	// same as process() on each of sentences(input), with sentences without tokens left out
+	// (with the single pass tokeniser, the sentences are found while tokenising the whole input)
+	public SentenceTokens processSentences(String input) {
+		if (singlePassTokeniser != null) {
+			SentenceTokens sentences = singlePassTokeniser.tokeniseSentences(input);
+			List<String> tokens = new ArrayList<>(sentences.getTokens().size());
+			int[] sentenceStarts = new int[sentences.size() + 1];
+			int size = 0;
+			for (int i = 0; i < sentences.size(); ++i) {
+				if (sentences.getStart(i) < sentences.getEnd(i)) {
+					List<String> sentenceTokens = postProcess(new ArrayList<>(sentences.getSentence(i)), null);
+					if (!sentenceTokens.isEmpty()) {
+						tokens.addAll(sentenceTokens);
+						sentenceStarts[++size] = tokens.size();
+					}
+				}
+			}
+			return new SentenceTokens(tokens, Arrays.copyOf(sentenceStarts, size + 1));
+		}
+
+		List<String> sentences = sentences(input);
+		List<String> tokens = new ArrayList<>();
+		int[] sentenceStarts = new int[sentences.size() + 1];
+		int size = 0;
+		for (String sentence : sentences) {
+			List<String> sentenceTokens = postProcess(tokenise(sentence, true), null);
+			if (!sentenceTokens.isEmpty()) {
+				tokens.addAll(sentenceTokens);
+				sentenceStarts[++size] = tokens.size();
+			}
+		}
+		return new SentenceTokens(tokens, Arrays.copyOf(sentenceStarts, size + 1));
+	}
 
+	private List<String> postProcess(List<String> output, List<String> extracted) {
 		if (!numbers) {
 			if (extracted == null) {
 				output.removeIf(s -> NUMBER.matcher(s).matches());
@@ -229,9 +354,7 @@ public class PreProcessor {
 
 		if (stemmer != null) {
 			for (int i = 0; i < output.size(); ++i) {
-				stemmer.add(output.get(i).toCharArray(), output.get(i).length());
-				stemmer.stem();
-				output.set(i, stemmer.toString());
+				output.set(i, stem(output.get(i)));
 			}
 		}
 
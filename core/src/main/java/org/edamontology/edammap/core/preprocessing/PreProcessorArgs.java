@@ -27,6 +27,12 @@ import org.edamontology.pubfetcher.core.common.PositiveInteger;
 
 public class PreProcessorArgs extends Args {
 
+	private static final String tokeniserId = "tokeniser";
+	private static final String tokeniserDescription = "Implementation used for splitting input to tokens in pre-processing, both giving the same tokens: a chain of regular expression replacements or a single pass over the input";
+	private static final Tokeniser tokeniserDefault = Tokeniser.regex;
+	@Parameter(names = { "--" + tokeniserId }, description = tokeniserDescription)
+	private Tokeniser tokeniser = tokeniserDefault;
+
 	private static final String numbersId = "numbers";
 	private static final String numbersDescription = "Include/exclude freestanding numbers (i.e., that are not part of a word) in pre-processing";
 	private static final Boolean numbersDefault = true;
@@ -53,6 +59,7 @@ public class PreProcessorArgs extends Args {
 
 	@Override
 	protected void addArgs() {
+		args.add(new Arg<>(this::getTokeniser, this::setTokeniser, tokeniserDefault, tokeniserId, "Tokeniser", tokeniserDescription, Tokeniser.class));
 		args.add(new Arg<>(this::isNumbers, this::setNumbers, numbersDefault, numbersId, "Freestanding numbers", numbersDescription, null));
 		args.add(new Arg<>(this::getStopwords, this::setStopwords, stopwordsDefault, stopwordsId, "Stopword list", stopwordsDescription, Stopwords.class));
 		args.add(new Arg<>(this::isStemming, this::setStemming, stemmingDefault, stemmingId, "Stemming", stemmingDescription, null));
@@ -69,6 +76,13 @@ public class PreProcessorArgs extends Args {
 		return "Preprocessing";
 	}
 
+	public Tokeniser getTokeniser() {
+		return tokeniser;
+	}
+	public void setTokeniser(Tokeniser tokeniser) {
+		this.tokeniser = tokeniser;
+	}
+
 	public boolean isNumbers() {
 		return numbers;
 	}
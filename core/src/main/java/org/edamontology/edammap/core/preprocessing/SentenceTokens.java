@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.preprocessing;
+
+import java.util.List;
+
+// Tokens of all sentences of a text in one list, the tokens of sentence i being in positions from getStart(i) (inclusive) to getEnd(i) (exclusive)
+public class SentenceTokens {
+
+	private final List<String> tokens;
+
+	// sentenceStarts[i + 1] is the end of sentence i
+	private final int[] sentenceStarts;
+
+	public SentenceTokens(List<String> tokens, int[] sentenceStarts) {
+		this.tokens = tokens;
+		this.sentenceStarts = sentenceStarts;
+	}
+
+	public List<String> getTokens() {
+		return tokens;
+	}
+
+	public int size() {
+		return sentenceStarts.length - 1;
+	}
+
+	public int getStart(int i) {
+		return sentenceStarts[i];
+	}
+
+	public int getEnd(int i) {
+		return sentenceStarts[i + 1];
+	}
+
+	// a view of the tokens of sentence i
+	public List<String> getSentence(int i) {
+		return tokens.subList(sentenceStarts[i], sentenceStarts[i + 1]);
+	}
+}
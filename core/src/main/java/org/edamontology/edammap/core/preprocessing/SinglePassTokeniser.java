@@ -0,0 +1,467 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.preprocessing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Splits input to lowercase tokens in one pass over its code points, giving the same tokens as the regex replacements in PreProcessor.process
+// (up to and including the lowercasing and splitting), but without making a new string for each replacement.
+// Replacements depending on neighbouring characters are done by stages passing code points on to the next stage
+// (hyphenation, word dividers, period fix before uppercase letters, period fix before numbers), the rest is done per character and per token in the last stage.
+// The last stage can also find the sentence boundaries PreProcessor.sentences would find, so that a whole text can be split to sentence tokens in the same pass
+// (then the period fix stages are repeated, as PreProcessor.process would repeat them on each sentence, with the spaces added the second time not seen when finding sentences).
+// Not thread-safe.
+class SinglePassTokeniser {
+
+	private final List<String> tokens = new ArrayList<>();
+
+	private final StringBuilder token = new StringBuilder();
+
+	// some token contains capital sigma, whose lowercase depends on word boundaries found in the whole lowercased string
+	private boolean sigma = false;
+
+	// hyphen (and whitespace following it) not yet known to be part of a hyphenation
+	private int hyphen = -1;
+	private final StringBuilder hyphenWhitespace = new StringBuilder();
+	private boolean hyphenLinebreak = false;
+
+	// hyphen-minus not yet known to be part of --
+	private boolean dividerHyphen = false;
+
+	// code points not yet known to be part of a period fix match, in the first and second pass
+	private final int[][] periodUppercase = new int[2][2];
+	private final int[] periodUppercaseSize = new int[2];
+	private final int[][] periodNumber = new int[2][2];
+	private final int[] periodNumberSize = new int[2];
+
+	// space added by a period fix in the second pass
+	private static final int SPACE_ADDED = -2;
+
+	// sentence boundaries are only looked for if true
+	private boolean sentences = false;
+	private int[] sentenceStarts = new int[16];
+	private int sentenceStartsSize = 0;
+
+	// previous two code points, for finding the blank lines separating blocks
+	private int previous = -1;
+	private int previousPrevious = -1;
+
+	// number of | the block starts with (block starting with ||| is not split to sentences)
+	private int blockBars = 0;
+	private boolean blockBarsEnded = false;
+
+	// the current word (as separated by whitespace) and the part of the block (as separated by . or ? followed by whitespace) containing it
+	private boolean word = false;
+	private int wordStart = 0;
+	private int wordFirst = -1;
+	private int wordLength = 0;
+	private int wordLast = -1;
+	private int partStart = 0;
+	private int partWords = 0;
+	private boolean partUppercase = false;
+	private int partIndex = 0;
+	private boolean partFirstSpace = false;
+
+	// tokens of input, or a list containing an empty string if there are no tokens (like splitting an empty string would give)
+	List<String> tokenise(String input) {
+		pass(input);
+		List<String> output = new ArrayList<>(tokens.size());
+		lowercase(0, tokens.size(), output);
+		if (output.isEmpty()) {
+			output.add("");
+		}
+		tokens.clear();
+		sigma = false;
+		return output;
+	}
+
+	// tokens of input as tokenise() would give (but an empty list if there are no tokens),
+	// with sentence i containing the tokens tokenise() would give for sentence i of PreProcessor.sentences (sentences can be empty)
+	SentenceTokens tokeniseSentences(String input) {
+		sentences = true;
+		pass(input);
+		sentences = false;
+		int[] starts = Arrays.copyOf(sentenceStarts, sentenceStartsSize + 1);
+		starts[sentenceStartsSize] = tokens.size();
+		sentenceStartsSize = 0;
+		List<String> output = new ArrayList<>(tokens.size());
+		int start = 0;
+		for (int end : starts) {
+			lowercase(start, end, output);
+			start = end;
+		}
+		tokens.clear();
+		sigma = false;
+		return new SentenceTokens(output, starts);
+	}
+
+	private void pass(String input) {
+		for (int i = 0; i < input.length(); ) {
+			int codePoint = input.codePointAt(i);
+			i += Character.charCount(codePoint);
+			hyphenation(codePoint);
+		}
+		hyphenationEnd();
+	}
+
+	// lowercase of capital sigma depends on the other tokens lowercased with it, so tokens of a sentence must be lowercased together, as in a call of tokenise()
+	private void lowercase(int start, int end, List<String> output) {
+		if (start == end) return;
+		if (sigma) {
+			output.addAll(Arrays.asList(String.join(" ", tokens.subList(start, end)).toLowerCase(Locale.ROOT).split(" ")));
+		} else {
+			for (int i = start; i < end; ++i) {
+				output.add(tokens.get(i).toLowerCase(Locale.ROOT));
+			}
+		}
+	}
+
+	// HYPHENATION: hyphen followed by whitespace containing a line break is removed (along with all the whitespace)
+	private void hyphenation(int codePoint) {
+		if (hyphen >= 0) {
+			if (isWhitespace(codePoint)) {
+				hyphenWhitespace.appendCodePoint(codePoint);
+				if (isLinebreak(codePoint)) hyphenLinebreak = true;
+				return;
+			}
+			hyphenationFlush();
+		}
+		if (codePoint == '-' || codePoint == '\u2010') {
+			hyphen = codePoint;
+		} else {
+			divider(codePoint);
+		}
+	}
+
+	private void hyphenationFlush() {
+		if (!hyphenLinebreak) {
+			divider(hyphen);
+			for (int i = 0; i < hyphenWhitespace.length(); ) {
+				int codePoint = hyphenWhitespace.codePointAt(i);
+				i += Character.charCount(codePoint);
+				divider(codePoint);
+			}
+		}
+		hyphen = -1;
+		hyphenWhitespace.setLength(0);
+		hyphenLinebreak = false;
+	}
+
+	private void hyphenationEnd() {
+		if (hyphen >= 0) {
+			hyphenationFlush();
+		}
+		dividerEnd();
+	}
+
+	// WORD_DIVIDER: en dash, em dash, / and -- are replaced by space
+	private void divider(int codePoint) {
+		if (dividerHyphen) {
+			dividerHyphen = false;
+			if (codePoint == '-') {
+				periodUppercase(0, ' ');
+				return;
+			}
+			periodUppercase(0, '-');
+		}
+		if (codePoint == '-') {
+			dividerHyphen = true;
+		} else if (codePoint == '\u2013' || codePoint == '\u2014' || codePoint == '/') {
+			periodUppercase(0, ' ');
+		} else {
+			periodUppercase(0, codePoint);
+		}
+	}
+
+	private void dividerEnd() {
+		if (dividerHyphen) {
+			dividerHyphen = false;
+			periodUppercase(0, '-');
+		}
+		periodUppercaseEnd(0);
+	}
+
+	// PERIOD_FIX_UPPERCASE: space is added between . or ? and an uppercase letter, if . or ? is preceded by a character not a line terminator
+	private void periodUppercase(int pass, int codePoint) {
+		int[] periodUppercase = this.periodUppercase[pass];
+		if (periodUppercaseSize[pass] < 2) {
+			periodUppercase[periodUppercaseSize[pass]++] = codePoint;
+			return;
+		}
+		if (!isLineTerminator(periodUppercase[0]) && isPeriod(periodUppercase[1]) && Character.getType(codePoint) == Character.UPPERCASE_LETTER) {
+			periodNumber(pass, periodUppercase[0]);
+			periodNumber(pass, periodUppercase[1]);
+			periodNumber(pass, pass == 0 ? ' ' : SPACE_ADDED);
+			periodNumber(pass, codePoint);
+			periodUppercaseSize[pass] = 0;
+		} else {
+			periodNumber(pass, periodUppercase[0]);
+			periodUppercase[0] = periodUppercase[1];
+			periodUppercase[1] = codePoint;
+		}
+	}
+
+	private void periodUppercaseEnd(int pass) {
+		for (int i = 0; i < periodUppercaseSize[pass]; ++i) {
+			periodNumber(pass, periodUppercase[pass][i]);
+		}
+		periodUppercaseSize[pass] = 0;
+		periodNumberEnd(pass);
+	}
+
+	// PERIOD_FIX_NUMBER: space is added between . or ? and a number, if . or ? is preceded by a character not a number or whitespace
+	private void periodNumber(int pass, int codePoint) {
+		int[] periodNumber = this.periodNumber[pass];
+		if (periodNumberSize[pass] < 2) {
+			periodNumber[periodNumberSize[pass]++] = codePoint;
+			return;
+		}
+		if (!isNumber(periodNumber[0]) && !isWhitespace(periodNumber[0]) && isPeriod(periodNumber[1]) && isNumber(codePoint)) {
+			periodFixed(pass, periodNumber[0]);
+			periodFixed(pass, periodNumber[1]);
+			periodFixed(pass, pass == 0 ? ' ' : SPACE_ADDED);
+			periodFixed(pass, codePoint);
+			periodNumberSize[pass] = 0;
+		} else {
+			periodFixed(pass, periodNumber[0]);
+			periodNumber[0] = periodNumber[1];
+			periodNumber[1] = codePoint;
+		}
+	}
+
+	private void periodNumberEnd(int pass) {
+		for (int i = 0; i < periodNumberSize[pass]; ++i) {
+			periodFixed(pass, periodNumber[pass][i]);
+		}
+		periodNumberSize[pass] = 0;
+		if (sentences && pass == 0) {
+			periodUppercaseEnd(1);
+		} else {
+			if (sentences) {
+				blockEnd();
+			}
+			tokenEnd();
+		}
+	}
+
+	private void periodFixed(int pass, int codePoint) {
+		if (sentences && pass == 0) {
+			periodUppercase(1, codePoint);
+		} else {
+			character(codePoint);
+		}
+	}
+
+	// APOSTROPHE, PUNCTUATION and WHITESPACE: apostrophes are normalised, other punctuation and symbols are removed and whitespace ends a token
+	private void character(int codePoint) {
+		if (codePoint == SPACE_ADDED) {
+			tokenEnd();
+			return;
+		}
+		if (sentences) {
+			sentence(codePoint);
+		}
+		if (isApostrophe(codePoint)) {
+			token.append('\'');
+		} else if (isWhitespace(codePoint)) {
+			tokenEnd();
+		} else if (!isPunctuationOrSymbol(codePoint)) {
+			token.appendCodePoint(codePoint);
+		}
+	}
+
+	// POSSESSIVE_REMOVE and APOSTROPHE_REMOVE: 's is removed from the end of a token, then apostrophes from the beginning and end of a token
+	private void tokenEnd() {
+		int end = token.length();
+		if (end >= 2 && token.charAt(end - 2) == '\'' && token.charAt(end - 1) == 's') {
+			end -= 2;
+		}
+		while (end > 0 && token.charAt(end - 1) == '\'') {
+			--end;
+		}
+		int begin = 0;
+		while (begin < end && token.charAt(begin) == '\'') {
+			++begin;
+		}
+		if (begin < end) {
+			String tokenString = token.substring(begin, end);
+			if (tokenString.indexOf('\u03A3') >= 0) sigma = true;
+			tokens.add(tokenString);
+		}
+		token.setLength(0);
+	}
+
+	// blocks are separated by \n\n or \n\r\n, whitespace ends a word and . or ? ending a word ends a part of a block (as splitting in PreProcessor.sentences)
+	private void sentence(int codePoint) {
+		if (isWhitespace(codePoint)) {
+			if (word) {
+				wordEnd();
+			}
+			if (codePoint == '\n' && (previous == '\n' || previous == '\r' && previousPrevious == '\n')) {
+				blockEnd();
+			}
+		} else {
+			if (!word) {
+				word = true;
+				// the tokens of the word (if any) are not yet added
+				wordStart = tokens.size();
+				wordFirst = codePoint;
+				wordLength = 0;
+			}
+			++wordLength;
+			wordLast = codePoint;
+			if (!blockBarsEnded) {
+				if (codePoint == '|') ++blockBars;
+				else blockBarsEnded = true;
+			}
+		}
+		previousPrevious = previous;
+		previous = codePoint;
+	}
+
+	private void wordEnd() {
+		word = false;
+		blockBarsEnded = true;
+		boolean bars = blockBars >= 3;
+		boolean period = !bars && isPeriod(wordLast);
+		if (wordLength > (period ? 1 : 0)) {
+			if (partWords == 0) {
+				partStart = wordStart;
+				// like matching a substring of length 1, so false for a supplementary code point
+				partUppercase = Character.getType(wordFirst) == Character.UPPERCASE_LETTER && !Character.isSupplementaryCodePoint(wordFirst);
+			}
+			++partWords;
+		}
+		if (period) {
+			partEnd();
+		}
+	}
+
+	// the first part of a block starts a sentence, the second part is joined to the first if the first has only one word,
+	// and any later part is joined to the previous part if it has only one word or does not begin with an uppercase letter
+	private void partEnd() {
+		if (partWords > 0) {
+			if (partIndex == 0 || partWords > 1 && partUppercase && (partIndex > 1 || partFirstSpace)) {
+				if (sentenceStartsSize == sentenceStarts.length - 1) {
+					sentenceStarts = Arrays.copyOf(sentenceStarts, sentenceStarts.length * 2);
+				}
+				sentenceStarts[sentenceStartsSize++] = partStart;
+			}
+			if (partIndex == 0) {
+				partFirstSpace = partWords > 1;
+			}
+			++partIndex;
+			partWords = 0;
+		}
+	}
+
+	private void blockEnd() {
+		if (word) {
+			wordEnd();
+		}
+		partEnd();
+		partIndex = 0;
+		partFirstSpace = false;
+		blockBars = 0;
+		blockBarsEnded = false;
+		previous = -1;
+		previousPrevious = -1;
+	}
+
+	// \p{Z}, \p{Cc} or \p{Cf}
+	private static boolean isWhitespace(int codePoint) {
+		switch (Character.getType(codePoint)) {
+		case Character.SPACE_SEPARATOR:
+		case Character.LINE_SEPARATOR:
+		case Character.PARAGRAPH_SEPARATOR:
+		case Character.CONTROL:
+		case Character.FORMAT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isLinebreak(int codePoint) {
+		return codePoint == '\n' || codePoint == '\u000B' || codePoint == '\f' || codePoint == '\r' || codePoint == '\u0085' || codePoint == '\u2028' || codePoint == '\u2029';
+	}
+
+	// not matched by . in a regex
+	private static boolean isLineTerminator(int codePoint) {
+		return codePoint == '\n' || codePoint == '\r' || codePoint == '\u0085' || codePoint == '\u2028' || codePoint == '\u2029';
+	}
+
+	private static boolean isPeriod(int codePoint) {
+		return codePoint == '.' || codePoint == '?';
+	}
+
+	// \p{N}
+	private static boolean isNumber(int codePoint) {
+		switch (Character.getType(codePoint)) {
+		case Character.DECIMAL_DIGIT_NUMBER:
+		case Character.LETTER_NUMBER:
+		case Character.OTHER_NUMBER:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	// ' or a character of APOSTROPHE_CODES
+	private static boolean isApostrophe(int codePoint) {
+		switch (codePoint) {
+		case '\'':
+		case '`':
+		case '\u00B4':
+		case '\u2018':
+		case '\u2019':
+		case '\u02BC':
+		case '\u201B':
+		case '\u0091':
+		case '\u0092':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	// \p{P} or \p{S}
+	private static boolean isPunctuationOrSymbol(int codePoint) {
+		switch (Character.getType(codePoint)) {
+		case Character.CONNECTOR_PUNCTUATION:
+		case Character.DASH_PUNCTUATION:
+		case Character.START_PUNCTUATION:
+		case Character.END_PUNCTUATION:
+		case Character.INITIAL_QUOTE_PUNCTUATION:
+		case Character.FINAL_QUOTE_PUNCTUATION:
+		case Character.OTHER_PUNCTUATION:
+		case Character.MATH_SYMBOL:
+		case Character.CURRENCY_SYMBOL:
+		case Character.MODIFIER_SYMBOL:
+		case Character.OTHER_SYMBOL:
+			return true;
+		default:
+			return false;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.util.Arrays;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import org.edamontology.edammap.core.mapping.Levenshtein;
+
+// BK-tree of all tokens of a TokenDictionary, for finding the tokens within some Levenshtein distance of a given token.
+// Burkhard WA, Keller RM. Some approaches to best-match file searching. (https://doi.org/10.1145/362003.362025)
+// Nodes are token IDs, with children linked as siblings. Not modified after construction, so can be searched concurrently.
+public class BkTree {
+
+	private final TokenDictionary tokenDictionary;
+
+	private final int[] firstChild;
+
+	private final int[] nextSibling;
+
+	// distance from the parent node
+	private final int[] distance;
+
+	public BkTree(TokenDictionary tokenDictionary) {
+		this.tokenDictionary = tokenDictionary;
+
+		int size = tokenDictionary.size();
+		firstChild = new int[size];
+		nextSibling = new int[size];
+		distance = new int[size];
+		Arrays.fill(firstChild, -1);
+		Arrays.fill(nextSibling, -1);
+
+		Levenshtein levenshtein = new Levenshtein();
+		for (int id = 1; id < size; ++id) {
+			String token = tokenDictionary.getToken(id);
+			int node = 0;
+			while (true) {
+				int d = levenshtein.bitParallel(token, tokenDictionary.getToken(node), Integer.MAX_VALUE);
+				int child = firstChild[node];
+				while (child > -1 && distance[child] != d) {
+					child = nextSibling[child];
+				}
+				if (child < 0) {
+					distance[id] = d;
+					nextSibling[id] = firstChild[node];
+					firstChild[node] = id;
+					break;
+				}
+				node = child;
+			}
+		}
+	}
+
+	public TokenDictionary getTokenDictionary() {
+		return tokenDictionary;
+	}
+
+	// IDs of tokens at most radius away from token are added to ids, and their distances to distances
+	public void search(String token, int radius, Levenshtein levenshtein, IntArrayList ids, IntArrayList distances) {
+		if (firstChild.length == 0) return;
+		IntArrayList stack = new IntArrayList();
+		stack.add(0);
+		while (!stack.isEmpty()) {
+			int node = stack.removeAt(stack.size() - 1);
+			int d = levenshtein.bitParallel(token, tokenDictionary.getToken(node), Integer.MAX_VALUE);
+			if (d <= radius) {
+				ids.add(node);
+				distances.add(d);
+			}
+			for (int child = firstChild[node]; child > -1; child = nextSibling[child]) {
+				if (Math.abs(distance[child] - d) <= radius) {
+					stack.add(child);
+				}
+			}
+		}
+	}
+}
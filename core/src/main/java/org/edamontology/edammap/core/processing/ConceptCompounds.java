@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import org.edamontology.edammap.core.mapping.ConceptMatchType;
+
+// Compounds of concept tokens, i.e. 2 to compoundWords + 1 consecutive tokens of a token list of a concept joined with spaces (as in Mapper.getCompounds),
+// with an inverted index from them to the concepts and concept fields containing them, as in ConceptIndex.
+// Needed for finding all concepts that can be matched to a query token through an accidental compound.
+// Not modified after construction, so can be searched concurrently.
+public class ConceptCompounds {
+
+	private final int compoundWords;
+
+	private final TokenDictionary compoundDictionary = new TokenDictionary();
+
+	// for each compound ID, concept ordinal << FIELD_BITS | field, in increasing order
+	private final int[][] postings;
+
+	private final BkTree compoundTree;
+
+	ConceptCompounds(ConceptRegistry registry, int compoundWords) {
+		this.compoundWords = compoundWords;
+
+		List<IntArrayList> lists = new ArrayList<>();
+		for (int ordinal = 0; ordinal < registry.size(); ++ordinal) {
+			ConceptProcessed processedConcept = registry.getProcessedConcept(ordinal);
+			addTokens(lists, ordinal, ConceptMatchType.label, processedConcept.getLabelTokens());
+			addTokensList(lists, ordinal, ConceptMatchType.exact_synonym, processedConcept.getExactSynonymsTokens());
+			addTokensList(lists, ordinal, ConceptMatchType.narrow_synonym, processedConcept.getNarrowSynonymsTokens());
+			addTokensList(lists, ordinal, ConceptMatchType.broad_synonym, processedConcept.getBroadSynonymsTokens());
+			addTokensList(lists, ordinal, ConceptMatchType.definition, processedConcept.getDefinitionTokens());
+			addTokensList(lists, ordinal, ConceptMatchType.comment, processedConcept.getCommentTokens());
+		}
+
+		postings = new int[lists.size()][];
+		for (int i = 0; i < lists.size(); ++i) {
+			postings[i] = lists.get(i).toArray();
+		}
+
+		compoundTree = new BkTree(compoundDictionary);
+	}
+
+	private void addTokens(List<IntArrayList> lists, int ordinal, ConceptMatchType field, List<String> tokens) {
+		if (tokens == null) return;
+		int posting = ConceptIndex.getPosting(ordinal, field);
+		for (int i = 0; i < tokens.size() - 1; ++i) {
+			StringBuilder compound = new StringBuilder(tokens.get(i));
+			for (int cw = 1; cw <= compoundWords && i + cw < tokens.size(); ++cw) {
+				compound.append(' ').append(tokens.get(i + cw));
+				int id = compoundDictionary.add(compound.toString());
+				if (id == lists.size()) {
+					lists.add(new IntArrayList(2));
+				}
+				ConceptIndex.addPosting(lists.get(id), posting);
+			}
+		}
+	}
+
+	private void addTokensList(List<IntArrayList> lists, int ordinal, ConceptMatchType field, List<List<String>> tokensList) {
+		if (tokensList == null) return;
+		for (List<String> tokens : tokensList) {
+			addTokens(lists, ordinal, field, tokens);
+		}
+	}
+
+	public int getCompoundWords() {
+		return compoundWords;
+	}
+
+	public TokenDictionary getCompoundDictionary() {
+		return compoundDictionary;
+	}
+
+	public BkTree getCompoundTree() {
+		return compoundTree;
+	}
+
+	// bitmask of fields (ConceptMatchType ordinals) containing the given compound, for each concept ordinal
+	public void addFields(int[] fields, int compoundId) {
+		ConceptIndex.addFields(postings, fields, compoundId);
+	}
+
+	// add mask to each concept ordinal containing the given compound in some field
+	public void addMask(int[] masks, int compoundId, int mask) {
+		ConceptIndex.addMask(postings, masks, compoundId, mask);
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import org.edamontology.edammap.core.edam.EdamUri;
+import org.edamontology.edammap.core.mapping.ConceptMatchType;
+
+// Inverted index from token IDs of tokenDictionary to the concepts and concept fields containing the token.
+// Concepts are referred to by their ordinal in the ConceptRegistry of processedConcepts.
+public class ConceptIndex {
+
+	private static final int FIELD_BITS = 3;
+
+	private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+
+	private final Map<EdamUri, ConceptProcessed> processedConcepts;
+
+	private final TokenDictionary tokenDictionary;
+
+	private final ConceptRegistry registry;
+
+	// for each token ID, concept ordinal << FIELD_BITS | field, in increasing order
+	private final int[][] postings;
+
+	private BkTree tokenTree = null;
+
+	private final Map<Integer, ConceptCompounds> compounds = new HashMap<>();
+
+	public ConceptIndex(Map<EdamUri, ConceptProcessed> processedConcepts, TokenDictionary tokenDictionary) {
+		this.processedConcepts = processedConcepts;
+		this.tokenDictionary = tokenDictionary;
+
+		this.registry = new ConceptRegistry(processedConcepts);
+
+		IntArrayList[] lists = new IntArrayList[tokenDictionary.size()];
+		for (int ordinal = 0; ordinal < registry.size(); ++ordinal) {
+			ConceptProcessed processedConcept = registry.getProcessedConcept(ordinal);
+			add(lists, ordinal, ConceptMatchType.label, processedConcept.getLabelTokenIds());
+			add(lists, ordinal, ConceptMatchType.exact_synonym, processedConcept.getExactSynonymsTokenIds());
+			add(lists, ordinal, ConceptMatchType.narrow_synonym, processedConcept.getNarrowSynonymsTokenIds());
+			add(lists, ordinal, ConceptMatchType.broad_synonym, processedConcept.getBroadSynonymsTokenIds());
+			add(lists, ordinal, ConceptMatchType.definition, processedConcept.getDefinitionTokenIds());
+			add(lists, ordinal, ConceptMatchType.comment, processedConcept.getCommentTokenIds());
+		}
+
+		postings = new int[lists.length][];
+		for (int i = 0; i < lists.length; ++i) {
+			postings[i] = (lists[i] != null ? lists[i].toArray() : new int[0]);
+		}
+	}
+
+	private static void add(IntArrayList[] lists, int ordinal, ConceptMatchType field, int[] tokenIds) {
+		if (tokenIds == null) return;
+		int posting = getPosting(ordinal, field);
+		for (int tokenId : tokenIds) {
+			if (lists[tokenId] == null) {
+				lists[tokenId] = new IntArrayList(2);
+			}
+			addPosting(lists[tokenId], posting);
+		}
+	}
+
+	private static void add(IntArrayList[] lists, int ordinal, ConceptMatchType field, List<int[]> tokenIdsList) {
+		for (int[] tokenIds : tokenIdsList) {
+			add(lists, ordinal, field, tokenIds);
+		}
+	}
+
+	static int getPosting(int ordinal, ConceptMatchType field) {
+		return (ordinal << FIELD_BITS) | field.ordinal();
+	}
+
+	// postings are added in increasing order, so a duplicate can only be the last one
+	static void addPosting(IntArrayList list, int posting) {
+		if (list.isEmpty() || list.get(list.size() - 1) != posting) {
+			list.add(posting);
+		}
+	}
+
+	static void addFields(int[][] postings, int[] fields, int id) {
+		if (id < 0 || id >= postings.length) return;
+		for (int posting : postings[id]) {
+			fields[posting >>> FIELD_BITS] |= 1 << (posting & FIELD_MASK);
+		}
+	}
+
+	static void addMask(int[][] postings, int[] masks, int id, int mask) {
+		if (id < 0 || id >= postings.length) return;
+		for (int posting : postings[id]) {
+			masks[posting >>> FIELD_BITS] |= mask;
+		}
+	}
+
+	public Map<EdamUri, ConceptProcessed> getProcessedConcepts() {
+		return processedConcepts;
+	}
+
+	public TokenDictionary getTokenDictionary() {
+		return tokenDictionary;
+	}
+
+	// with the same concept ordinals as this index
+	public ConceptRegistry getRegistry() {
+		return registry;
+	}
+
+	// built on first use, as it's only needed for approximate matching of tokens
+	public synchronized BkTree getTokenTree() {
+		if (tokenTree == null) {
+			tokenTree = new BkTree(tokenDictionary);
+		}
+		return tokenTree;
+	}
+
+	// built on first use for each compoundWords, as it's only needed for pruning when compound matching of tokens is done
+	public synchronized ConceptCompounds getCompounds(int compoundWords) {
+		ConceptCompounds conceptCompounds = compounds.get(compoundWords);
+		if (conceptCompounds == null) {
+			conceptCompounds = new ConceptCompounds(registry, compoundWords);
+			compounds.put(compoundWords, conceptCompounds);
+		}
+		return conceptCompounds;
+	}
+
+	public int size() {
+		return processedConcepts.size();
+	}
+
+	public EdamUri getEdamUri(int ordinal) {
+		return registry.getEdamUri(ordinal);
+	}
+
+	// -1 if edamUri is not in processedConcepts
+	public int getOrdinal(EdamUri edamUri) {
+		return registry.getOrdinal(edamUri);
+	}
+
+	// bitmask of fields (ConceptMatchType ordinals) containing some of the given tokens, for each concept ordinal
+	public void addFields(int[] fields, int tokenId) {
+		addFields(postings, fields, tokenId);
+	}
+
+	// add mask to each concept ordinal containing the given token in some field
+	public void addMask(int[] masks, int tokenId, int mask) {
+		addMask(postings, masks, tokenId, mask);
+	}
+}
@@ -27,26 +27,40 @@ import org.edamontology.edammap.core.edam.EdamUri;
 public class ConceptProcessed {
 
 	private List<String> labelTokens = null;
-	private List<Double> labelIdfs = null;
+	private int[] labelTokenIds = null;
+	private double[] labelIdfs = null;
+	private double[] labelIdfPowers = null;
 
 	private List<List<String>> exactSynonymsTokens = new ArrayList<>();
-	private List<List<Double>> exactSynonymsIdfs = new ArrayList<>();
+	private List<int[]> exactSynonymsTokenIds = new ArrayList<>();
+	private List<double[]> exactSynonymsIdfs = new ArrayList<>();
+	private List<double[]> exactSynonymsIdfPowers = new ArrayList<>();
 
 	private List<List<String>> narrowSynonymsTokens = new ArrayList<>();
-	private List<List<Double>> narrowSynonymsIdfs = new ArrayList<>();
+	private List<int[]> narrowSynonymsTokenIds = new ArrayList<>();
+	private List<double[]> narrowSynonymsIdfs = new ArrayList<>();
+	private List<double[]> narrowSynonymsIdfPowers = new ArrayList<>();
 
 	private List<List<String>> broadSynonymsTokens = new ArrayList<>();
-	private List<List<Double>> broadSynonymsIdfs = new ArrayList<>();
+	private List<int[]> broadSynonymsTokenIds = new ArrayList<>();
+	private List<double[]> broadSynonymsIdfs = new ArrayList<>();
+	private List<double[]> broadSynonymsIdfPowers = new ArrayList<>();
 
 	private List<List<String>> definitionTokens =  new ArrayList<>();
-	private List<List<Double>> definitionIdfs =  new ArrayList<>();
+	private List<int[]> definitionTokenIds =  new ArrayList<>();
+	private List<double[]> definitionIdfs =  new ArrayList<>();
+	private List<double[]> definitionIdfPowers =  new ArrayList<>();
 
 	private List<List<String>> commentTokens =  new ArrayList<>();
-	private List<List<Double>> commentIdfs =  new ArrayList<>();
+	private List<int[]> commentTokenIds =  new ArrayList<>();
+	private List<double[]> commentIdfs =  new ArrayList<>();
+	private List<double[]> commentIdfPowers =  new ArrayList<>();
 
 	private List<List<String>> tokens = new ArrayList<>();
-	private List<List<Double>> idfs = new ArrayList<>();
+	private List<int[]> tokenIds = new ArrayList<>();
+	private List<double[]> idfs = new ArrayList<>();
 	private List<Double> idfScalings = new ArrayList<>();
+	private List<double[]> idfPowers = new ArrayList<>();
 	private List<Double> multipliers = new ArrayList<>();
 
 	private List<EdamUri> directParents = new ArrayList<>();
@@ -61,12 +75,24 @@ public class ConceptProcessed {
 	public void setLabelTokens(List<String> labelTokens) {
 		this.labelTokens = labelTokens;
 	}
-	public List<Double> getLabelIdfs() {
+	public int[] getLabelTokenIds() {
+		return labelTokenIds;
+	}
+	public void setLabelTokenIds(int[] labelTokenIds) {
+		this.labelTokenIds = labelTokenIds;
+	}
+	public double[] getLabelIdfs() {
 		return labelIdfs;
 	}
-	public void setLabelIdfs(List<Double> labelIdfs) {
+	public void setLabelIdfs(double[] labelIdfs) {
 		this.labelIdfs = labelIdfs;
 	}
+	public double[] getLabelIdfPowers() {
+		return labelIdfPowers;
+	}
+	public void setLabelIdfPowers(double[] labelIdfPowers) {
+		this.labelIdfPowers = labelIdfPowers;
+	}
 
 	public List<List<String>> getExactSynonymsTokens() {
 		return exactSynonymsTokens;
@@ -74,12 +100,24 @@ public class ConceptProcessed {
 	public void addExactSynonymTokens(List<String> exactSynonymTokens) {
 		this.exactSynonymsTokens.add(exactSynonymTokens);
 	}
-	public List<List<Double>> getExactSynonymsIdfs() {
+	public List<int[]> getExactSynonymsTokenIds() {
+		return exactSynonymsTokenIds;
+	}
+	public void addExactSynonymTokenIds(int[] exactSynonymTokenIds) {
+		this.exactSynonymsTokenIds.add(exactSynonymTokenIds);
+	}
+	public List<double[]> getExactSynonymsIdfs() {
 		return exactSynonymsIdfs;
 	}
-	public void addExactSynonymIdfs(List<Double> exactSynonymIdfs) {
+	public void addExactSynonymIdfs(double[] exactSynonymIdfs) {
 		this.exactSynonymsIdfs.add(exactSynonymIdfs);
 	}
+	public List<double[]> getExactSynonymsIdfPowers() {
+		return exactSynonymsIdfPowers;
+	}
+	public void addExactSynonymIdfPowers(double[] exactSynonymIdfPowers) {
+		this.exactSynonymsIdfPowers.add(exactSynonymIdfPowers);
+	}
 
 	public List<List<String>> getNarrowSynonymsTokens() {
 		return narrowSynonymsTokens;
@@ -87,12 +125,24 @@ public class ConceptProcessed {
 	public void addNarrowSynonymTokens(List<String> narrowSynonymTokens) {
 		this.narrowSynonymsTokens.add(narrowSynonymTokens);
 	}
-	public List<List<Double>> getNarrowSynonymsIdfs() {
+	public List<int[]> getNarrowSynonymsTokenIds() {
+		return narrowSynonymsTokenIds;
+	}
+	public void addNarrowSynonymTokenIds(int[] narrowSynonymTokenIds) {
+		this.narrowSynonymsTokenIds.add(narrowSynonymTokenIds);
+	}
+	public List<double[]> getNarrowSynonymsIdfs() {
 		return narrowSynonymsIdfs;
 	}
-	public void addNarrowSynonymIdfs(List<Double> narrowSynonymIdfs) {
+	public void addNarrowSynonymIdfs(double[] narrowSynonymIdfs) {
 		this.narrowSynonymsIdfs.add(narrowSynonymIdfs);
 	}
+	public List<double[]> getNarrowSynonymsIdfPowers() {
+		return narrowSynonymsIdfPowers;
+	}
+	public void addNarrowSynonymIdfPowers(double[] narrowSynonymIdfPowers) {
+		this.narrowSynonymsIdfPowers.add(narrowSynonymIdfPowers);
+	}
 
 	public List<List<String>> getBroadSynonymsTokens() {
 		return broadSynonymsTokens;
@@ -100,12 +150,24 @@ public class ConceptProcessed {
 	public void addBroadSynonymTokens(List<String> broadSynonymTokens) {
 		this.broadSynonymsTokens.add(broadSynonymTokens);
 	}
-	public List<List<Double>> getBroadSynonymsIdfs() {
+	public List<int[]> getBroadSynonymsTokenIds() {
+		return broadSynonymsTokenIds;
+	}
+	public void addBroadSynonymTokenIds(int[] broadSynonymTokenIds) {
+		this.broadSynonymsTokenIds.add(broadSynonymTokenIds);
+	}
+	public List<double[]> getBroadSynonymsIdfs() {
 		return broadSynonymsIdfs;
 	}
-	public void addBroadSynonymIdfs(List<Double> broadSynonymIdfs) {
+	public void addBroadSynonymIdfs(double[] broadSynonymIdfs) {
 		this.broadSynonymsIdfs.add(broadSynonymIdfs);
 	}
+	public List<double[]> getBroadSynonymsIdfPowers() {
+		return broadSynonymsIdfPowers;
+	}
+	public void addBroadSynonymIdfPowers(double[] broadSynonymIdfPowers) {
+		this.broadSynonymsIdfPowers.add(broadSynonymIdfPowers);
+	}
 
 	public List<List<String>> getDefinitionTokens() {
 		return definitionTokens;
@@ -113,12 +175,24 @@ public class ConceptProcessed {
 	public void addDefinitionTokens(List<String> definitionTokens) {
 		this.definitionTokens.add(definitionTokens);
 	}
-	public List<List<Double>> getDefinitionIdfs() {
+	public List<int[]> getDefinitionTokenIds() {
+		return definitionTokenIds;
+	}
+	public void addDefinitionTokenIds(int[] definitionTokenIds) {
+		this.definitionTokenIds.add(definitionTokenIds);
+	}
+	public List<double[]> getDefinitionIdfs() {
 		return definitionIdfs;
 	}
-	public void addDefinitionIdfs(List<Double> definitionIdfs) {
+	public void addDefinitionIdfs(double[] definitionIdfs) {
 		this.definitionIdfs.add(definitionIdfs);
 	}
+	public List<double[]> getDefinitionIdfPowers() {
+		return definitionIdfPowers;
+	}
+	public void addDefinitionIdfPowers(double[] definitionIdfPowers) {
+		this.definitionIdfPowers.add(definitionIdfPowers);
+	}
 
 	public List<List<String>> getCommentTokens() {
 		return commentTokens;
@@ -126,12 +200,24 @@ public class ConceptProcessed {
 	public void addCommentTokens(List<String> commentTokens) {
 		this.commentTokens.add(commentTokens);
 	}
-	public List<List<Double>> getCommentIdfs() {
+	public List<int[]> getCommentTokenIds() {
+		return commentTokenIds;
+	}
+	public void addCommentTokenIds(int[] commentTokenIds) {
+		this.commentTokenIds.add(commentTokenIds);
+	}
+	public List<double[]> getCommentIdfs() {
 		return commentIdfs;
 	}
-	public void addCommentIdfs(List<Double> commentIdfs) {
+	public void addCommentIdfs(double[] commentIdfs) {
 		this.commentIdfs.add(commentIdfs);
 	}
+	public List<double[]> getCommentIdfPowers() {
+		return commentIdfPowers;
+	}
+	public void addCommentIdfPowers(double[] commentIdfPowers) {
+		this.commentIdfPowers.add(commentIdfPowers);
+	}
 
 	public List<List<String>> getTokens() {
 		return tokens;
@@ -139,10 +225,16 @@ public class ConceptProcessed {
 	public void addTokens(List<String> tokens) {
 		this.tokens.add(tokens);
 	}
-	public List<List<Double>> getIdfs() {
+	public List<int[]> getTokenIds() {
+		return tokenIds;
+	}
+	public void addTokenIds(int[] tokenIds) {
+		this.tokenIds.add(tokenIds);
+	}
+	public List<double[]> getIdfs() {
 		return idfs;
 	}
-	public void addIdfs(List<Double> idfs) {
+	public void addIdfs(double[] idfs) {
 		this.idfs.add(idfs);
 	}
 
@@ -152,6 +244,12 @@ public class ConceptProcessed {
 	public void addScaling(Double scaling) {
 		this.idfScalings.add(scaling);
 	}
+	public List<double[]> getIdfPowers() {
+		return idfPowers;
+	}
+	public void addIdfPowers(double[] idfPowers) {
+		this.idfPowers.add(idfPowers);
+	}
 	public List<Double> getMultipliers() {
 		return multipliers;
 	}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+
+import org.edamontology.edammap.core.edam.Branch;
+import org.edamontology.edammap.core.edam.EdamUri;
+
+// Processed concepts and their parent-child relations, with concepts referred to by a dense ordinal.
+// Ordinals are grouped by branch (in the order of Branch), within a branch concepts are in the order of iterating processedConcepts.
+// Built once for processedConcepts, after which it is only read, so it can be shared by Mappers in different threads.
+public class ConceptRegistry {
+
+	private final EdamUri[] edamUris;
+
+	private final ObjectIntHashMap<EdamUri> ordinals = new ObjectIntHashMap<>();
+
+	// concepts of a branch have ordinals from branchStarts[branch.ordinal()] (inclusive) to branchStarts[branch.ordinal() + 1] (exclusive)
+	private final int[] branchStarts = new int[Branch.values().length + 1];
+
+	private final ConceptProcessed[] processedConcepts;
+
+	private final boolean[] obsolete;
+
+	// concepts without direct parents (including ones with parents not in processedConcepts)
+	private final boolean[] topLevel;
+
+	private final int[][] replacedBy;
+
+	private final int[][] parents;
+
+	private final int[][] children;
+
+	// all ancestors of each concept (not including the concept itself)
+	private final BitSet[] ancestors;
+
+	// length of the longest path from a top-level concept of the branch (which has depth 0)
+	private final int[] depths;
+
+	private final int maxDepth;
+
+	// all concepts in order of increasing depth, thus each concept coming after all its ancestors
+	private final int[] ordinalsByDepth;
+
+	public ConceptRegistry(Map<EdamUri, ConceptProcessed> processedConcepts) {
+		int size = processedConcepts.size();
+		edamUris = new EdamUri[size];
+		this.processedConcepts = new ConceptProcessed[size];
+		int ordinal = 0;
+		for (Branch branch : Branch.values()) {
+			branchStarts[branch.ordinal()] = ordinal;
+			for (Map.Entry<EdamUri, ConceptProcessed> conceptEntry : processedConcepts.entrySet()) {
+				if (conceptEntry.getKey().getBranch() != branch) continue;
+				edamUris[ordinal] = conceptEntry.getKey();
+				this.processedConcepts[ordinal] = conceptEntry.getValue();
+				ordinals.put(conceptEntry.getKey(), ordinal);
+				++ordinal;
+			}
+		}
+		branchStarts[Branch.values().length] = ordinal;
+
+		obsolete = new boolean[size];
+		topLevel = new boolean[size];
+		replacedBy = new int[size][];
+		parents = new int[size][];
+		children = new int[size][];
+		for (ordinal = 0; ordinal < size; ++ordinal) {
+			ConceptProcessed processedConcept = this.processedConcepts[ordinal];
+			obsolete[ordinal] = processedConcept.isObsolete();
+			topLevel[ordinal] = processedConcept.getDirectParents().isEmpty();
+			replacedBy[ordinal] = getOrdinals(processedConcept.getReplacedBy());
+			parents[ordinal] = getOrdinals(processedConcept.getDirectParents());
+			children[ordinal] = getOrdinals(processedConcept.getDirectChildren());
+		}
+
+		ancestors = new BitSet[size];
+		depths = new int[size];
+		for (ordinal = 0; ordinal < size; ++ordinal) {
+			setAncestors(ordinal);
+		}
+
+		maxDepth = Arrays.stream(depths).max().orElse(0);
+		int[] starts = new int[maxDepth + 2];
+		for (int depth : depths) {
+			++starts[depth + 1];
+		}
+		for (int depth = 1; depth < starts.length; ++depth) {
+			starts[depth] += starts[depth - 1];
+		}
+		ordinalsByDepth = new int[size];
+		for (ordinal = 0; ordinal < size; ++ordinal) {
+			ordinalsByDepth[starts[depths[ordinal]]++] = ordinal;
+		}
+	}
+
+	// concepts not in processedConcepts are left out
+	private int[] getOrdinals(List<EdamUri> edamUris) {
+		return edamUris.stream().mapToInt(this::getOrdinal).filter(o -> o >= 0).toArray();
+	}
+
+	private void setAncestors(int ordinal) {
+		if (ancestors[ordinal] != null) return;
+		BitSet ordinalAncestors = new BitSet();
+		// set before recursing, so that a cycle (not present in a consistent EDAM) can't cause infinite recursion
+		ancestors[ordinal] = ordinalAncestors;
+		int depth = 0;
+		for (int parent : parents[ordinal]) {
+			setAncestors(parent);
+			ordinalAncestors.set(parent);
+			ordinalAncestors.or(ancestors[parent]);
+			depth = Math.max(depth, depths[parent] + 1);
+		}
+		depths[ordinal] = depth;
+	}
+
+	public int size() {
+		return edamUris.length;
+	}
+
+	public EdamUri getEdamUri(int ordinal) {
+		return edamUris[ordinal];
+	}
+
+	// -1 if edamUri is not in processedConcepts
+	public int getOrdinal(EdamUri edamUri) {
+		int index = ordinals.indexOf(edamUri);
+		if (index < 0) return -1;
+		return ordinals.indexGet(index);
+	}
+
+	public int getBranchStart(Branch branch) {
+		return branchStarts[branch.ordinal()];
+	}
+
+	public int getBranchEnd(Branch branch) {
+		return branchStarts[branch.ordinal() + 1];
+	}
+
+	public ConceptProcessed getProcessedConcept(int ordinal) {
+		return processedConcepts[ordinal];
+	}
+
+	public boolean isObsolete(int ordinal) {
+		return obsolete[ordinal];
+	}
+
+	public boolean isTopLevel(int ordinal) {
+		return topLevel[ordinal];
+	}
+
+	public int[] getReplacedBy(int ordinal) {
+		return replacedBy[ordinal];
+	}
+
+	public int[] getParents(int ordinal) {
+		return parents[ordinal];
+	}
+
+	public int[] getChildren(int ordinal) {
+		return children[ordinal];
+	}
+
+	// must not be modified
+	public BitSet getAncestors(int ordinal) {
+		return ancestors[ordinal];
+	}
+
+	public boolean isAncestor(int ordinal, int ancestorOrdinal) {
+		return ancestors[ordinal].get(ancestorOrdinal);
+	}
+
+	public int getDepth(int ordinal) {
+		return depths[ordinal];
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	// must not be modified
+	public int[] getOrdinalsByDepth() {
+		return ordinalsByDepth;
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.preprocessing.SentenceTokens;
+
+// On-disk cache of the sentence tokens of long texts (publication abstracts and fulltexts, webpage and doc contents),
+// so that content that has not changed does not have to be tokenised again in later runs.
+// An entry is a file named by a hash of the text and the PreProcessor args, in a subdirectory named by the first two characters of the hash.
+// When the total size of entries exceeds the maximum, least recently used entries are removed (file modification times are used as last use times between runs).
+public class PreProcessedCache {
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private static final int MAGIC = 0x4544434D;
+
+	private static final int VERSION = 1;
+
+	private static final String TMP_SUFFIX = ".tmp";
+
+	private static final String ENTRY = "preprocessed cache entry";
+
+	private final Path path;
+
+	private final long maxSize;
+
+	// entry name to entry size in bytes, in order of last use
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long size = 0;
+
+	public PreProcessedCache(String path, long maxSize) throws IOException {
+		this.path = Paths.get(path);
+		this.maxSize = maxSize;
+
+		Files.createDirectories(this.path);
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(this.path, 2)) {
+			files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		Map<Path, FileTime> times = new HashMap<>();
+		for (Path file : files) {
+			if (file.getFileName().toString().endsWith(TMP_SUFFIX)) {
+				Files.deleteIfExists(file);
+			} else {
+				times.put(file, Files.getLastModifiedTime(file));
+			}
+		}
+		List<Path> sorted = new ArrayList<>(times.keySet());
+		sorted.sort(Comparator.comparing(times::get));
+		for (Path file : sorted) {
+			long fileSize = Files.size(file);
+			entries.put(file.getFileName().toString(), fileSize);
+			size += fileSize;
+		}
+		evict();
+		logger.info("Loaded preprocessed cache {} with {} entries of total size {}", path, entries.size(), size);
+	}
+
+	public SentenceTokens processSentences(PreProcessor preProcessor, String input) {
+		String name = name(preProcessor.getArgsKey(), input);
+		SentenceTokens sentenceTokens = read(name);
+		if (sentenceTokens == null) {
+			sentenceTokens = preProcessor.processSentences(input);
+			write(name, sentenceTokens);
+		}
+		return sentenceTokens;
+	}
+
+	private static String name(String argsKey, String input) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(argsKey.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
+		StringBuilder name = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			name.append(Character.forDigit((b >> 4) & 0xF, 16));
+			name.append(Character.forDigit(b & 0xF, 16));
+		}
+		return name.toString();
+	}
+
+	private Path file(String name) {
+		return path.resolve(name.substring(0, 2)).resolve(name);
+	}
+
+	private SentenceTokens read(String name) {
+		synchronized (entries) {
+			if (entries.get(name) == null) return null;
+		}
+		Path file = file(name);
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+			SentenceTokens sentenceTokens = read(in);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return sentenceTokens;
+		} catch (IOException e) {
+			logger.warn("Can't read preprocessed cache entry {}: {}", file, e.toString());
+			remove(name);
+			return null;
+		}
+	}
+
+	private void write(String name, SentenceTokens sentenceTokens) {
+		Path file = file(name);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				write(out, sentenceTokens);
+			}
+			Files.createDirectories(file.getParent());
+			Path tmp = Files.createTempFile(file.getParent(), name, TMP_SUFFIX);
+			try {
+				Files.write(tmp, bytes.toByteArray());
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+			synchronized (entries) {
+				Long old = entries.put(name, (long) bytes.size());
+				size += bytes.size() - (old != null ? old : 0);
+				evict();
+			}
+		} catch (IOException e) {
+			logger.warn("Can't write preprocessed cache entry {}: {}", file, e.toString());
+		}
+	}
+
+	private void remove(String name) {
+		synchronized (entries) {
+			Long old = entries.remove(name);
+			if (old != null) {
+				size -= old;
+			}
+		}
+	}
+
+	// must hold lock on entries (or be in constructor)
+	private void evict() {
+		for (Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator(); size > maxSize && it.hasNext(); ) {
+			Map.Entry<String, Long> entry = it.next();
+			try {
+				Files.deleteIfExists(file(entry.getKey()));
+			} catch (IOException e) {
+				logger.warn("Can't remove preprocessed cache entry {}: {}", file(entry.getKey()), e.toString());
+			}
+			size -= entry.getValue();
+			it.remove();
+		}
+	}
+
+	// Format: magic, version, distinct tokens (as length of UTF-8 bytes and bytes), tokens (as index into distinct tokens), sentence ends (as difference from previous end)
+	// All ints except magic and version are written as variable-length ints.
+	private static void write(DataOutputStream out, SentenceTokens sentenceTokens) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+
+		List<String> tokens = sentenceTokens.getTokens();
+		Map<String, Integer> indexes = new HashMap<>();
+		List<String> distinct = new ArrayList<>();
+		int[] tokenIndexes = new int[tokens.size()];
+		for (int i = 0; i < tokenIndexes.length; ++i) {
+			Integer index = indexes.get(tokens.get(i));
+			if (index == null) {
+				index = distinct.size();
+				indexes.put(tokens.get(i), index);
+				distinct.add(tokens.get(i));
+			}
+			tokenIndexes[i] = index;
+		}
+
+		VarInt.write(out, distinct.size());
+		for (String token : distinct) {
+			byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+			VarInt.write(out, bytes.length);
+			out.write(bytes);
+		}
+
+		VarInt.write(out, tokenIndexes.length);
+		for (int tokenIndex : tokenIndexes) {
+			VarInt.write(out, tokenIndex);
+		}
+
+		VarInt.write(out, sentenceTokens.size());
+		for (int i = 0; i < sentenceTokens.size(); ++i) {
+			VarInt.write(out, sentenceTokens.getEnd(i) - sentenceTokens.getStart(i));
+		}
+	}
+
+	// each element takes at least one byte, so a count or length larger than the number of bytes left is from a corrupt entry
+	// (checked before allocating, so that a corrupt entry can't cause an OutOfMemoryError)
+	private static int readLength(DataInputStream in) throws IOException {
+		int length = VarInt.read(in, ENTRY);
+		if (length > in.available()) {
+			throw new IOException("Length " + length + " larger than remaining " + in.available() + " bytes of " + ENTRY);
+		}
+		return length;
+	}
+
+	// in must be reading bytes already in memory, for available() to be the number of bytes left
+	private static SentenceTokens read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a preprocessed cache entry");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported preprocessed cache entry version " + version);
+		}
+
+		String[] distinct = new String[readLength(in)];
+		for (int i = 0; i < distinct.length; ++i) {
+			byte[] bytes = new byte[readLength(in)];
+			in.readFully(bytes);
+			distinct[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		int tokensSize = readLength(in);
+		List<String> tokens = new ArrayList<>(tokensSize);
+		for (int i = 0; i < tokensSize; ++i) {
+			int tokenIndex = VarInt.read(in, ENTRY);
+			if (tokenIndex >= distinct.length) {
+				throw new IOException("Token index " + tokenIndex + " out of bounds");
+			}
+			tokens.add(distinct[tokenIndex]);
+		}
+
+		int[] sentenceStarts = new int[readLength(in) + 1];
+		for (int i = 1; i < sentenceStarts.length; ++i) {
+			int sentenceSize = VarInt.read(in, ENTRY);
+			if (sentenceSize > tokensSize - sentenceStarts[i - 1]) {
+				throw new IOException("Sentence ends larger than number of tokens");
+			}
+			sentenceStarts[i] = sentenceStarts[i - 1] + sentenceSize;
+		}
+		if (sentenceStarts[sentenceStarts.length - 1] != tokensSize) {
+			throw new IOException("Sentence ends don't match number of tokens");
+		}
+
+		return new SentenceTokens(tokens, sentenceStarts);
+	}
+}
@@ -20,12 +20,20 @@
 package org.edamontology.edammap.core.processing;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.edamontology.pubfetcher.core.common.FetcherArgs;
 import org.edamontology.pubfetcher.core.common.FetcherPrivateArgs;
@@ -39,14 +47,17 @@ import org.edamontology.pubfetcher.core.db.webpage.Webpage;
 import org.edamontology.pubfetcher.core.fetching.Fetcher;
 
 import org.edamontology.edammap.core.edam.Concept;
+import org.edamontology.edammap.core.edam.ConceptTokens;
 import org.edamontology.edammap.core.edam.EdamUri;
 import org.edamontology.edammap.core.idf.Idf;
 import org.edamontology.edammap.core.idf.IdfMake;
+import org.edamontology.edammap.core.idf.IdfMakeState;
 import org.edamontology.edammap.core.input.DatabaseEntryId;
 import org.edamontology.edammap.core.mapping.args.IdfArgs;
 import org.edamontology.edammap.core.mapping.args.MultiplierArgs;
 import org.edamontology.edammap.core.output.DatabaseEntryEntry;
 import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.preprocessing.SentenceTokens;
 import org.edamontology.edammap.core.query.Keyword;
 import org.edamontology.edammap.core.query.Link;
 import org.edamontology.edammap.core.query.PublicationIdsQuery;
@@ -55,10 +66,15 @@ import org.edamontology.edammap.core.query.QueryType;
 
 public class Processor {
 
+	// minimum number of concepts processed by one task of pool in getProcessedConcepts
+	private static final int MIN_CONCEPTS_TASK_SIZE = 64;
+
 	private final Fetcher fetcher;
 
 	private final Database database;
 
+	private final PreProcessedCache preProcessedCache;
+
 	public Processor(ProcessorArgs args, FetcherPrivateArgs fetcherPrivateArgs) throws IOException, ParseException {
 		if (!args.isFetching()) {
 			this.fetcher = null;
@@ -71,6 +87,12 @@ public class Processor {
 		} else {
 			this.database = new Database(args.getDb());
 		}
+
+		if (args.getPreProcessedCache() == null || args.getPreProcessedCache().isEmpty()) {
+			this.preProcessedCache = null;
+		} else {
+			this.preProcessedCache = new PreProcessedCache(args.getPreProcessedCache(), args.getPreProcessedCacheSize() * 1024L * 1024L);
+		}
 	}
 
 	@Deprecated
@@ -87,50 +109,109 @@ public class Processor {
 		}
 	}
 
-	private ConceptProcessed processConcept(Concept concept, IdfMake idfMake, PreProcessor preProcessor) {
-		ConceptProcessed processedConcept = new ConceptProcessed();
+	private int[] getTokenIds(List<String> tokens, TokenDictionary tokenDictionary) {
+		if (tokenDictionary == null) return null;
+		return tokenDictionary.add(tokens);
+	}
+
+	private SentenceTokens processSentences(PreProcessor pp, String input) {
+		if (preProcessedCache == null) return pp.processSentences(input);
+		return preProcessedCache.processSentences(pp, input);
+	}
+
+	private int[] getSentenceTokenIds(int[] tokenIds, SentenceTokens sentenceTokens, int i) {
+		if (tokenIds == null) return null;
+		return Arrays.copyOfRange(tokenIds, sentenceTokens.getStart(i), sentenceTokens.getEnd(i));
+	}
+
+	public static ConceptTokens getConceptTokens(Concept concept, PreProcessor preProcessor) {
+		ConceptTokens conceptTokens = new ConceptTokens();
 
 		if (concept.getLabel() != null) {
-			List<String> labelTokens = preProcessor.process(concept.getLabel());
-			processedConcept.setLabelTokens(labelTokens);
-			idfMake.addTerms(labelTokens);
+			conceptTokens.setLabel(preProcessor.process(concept.getLabel()));
 		}
 
 		for (String exactSynonym : concept.getExactSynonyms()) {
-			List<String> exactSynonymTokens = preProcessor.process(exactSynonym);
-			processedConcept.addExactSynonymTokens(exactSynonymTokens);
-			idfMake.addTerms(exactSynonymTokens);
+			conceptTokens.addExactSynonym(preProcessor.process(exactSynonym));
 		}
 
 		for (String narrowSynonym : concept.getNarrowSynonyms()) {
-			List<String> narrowSynonymTokens = preProcessor.process(narrowSynonym);
-			processedConcept.addNarrowSynonymTokens(narrowSynonymTokens);
-			idfMake.addTerms(narrowSynonymTokens);
+			conceptTokens.addNarrowSynonym(preProcessor.process(narrowSynonym));
 		}
 
 		for (String broadSynonym : concept.getBroadSynonyms()) {
-			List<String> broadSynonymTokens = preProcessor.process(broadSynonym);
-			processedConcept.addBroadSynonymTokens(broadSynonymTokens);
-			idfMake.addTerms(broadSynonymTokens);
+			conceptTokens.addBroadSynonym(preProcessor.process(broadSynonym));
 		}
 
 		if (concept.getDefinition() != null) {
 			for (String definitionSentence : preProcessor.sentences(concept.getDefinition())) {
-				List<String> definitionTokens = preProcessor.process(definitionSentence);
-				processedConcept.addDefinitionTokens(definitionTokens);
-				idfMake.addTerms(definitionTokens);
+				conceptTokens.addDefinition(preProcessor.process(definitionSentence));
 			}
 		}
 
 		if (concept.getComment() != null) {
 			for (String commentSentence : preProcessor.sentences(concept.getComment())) {
-				List<String> commentTokens = preProcessor.process(commentSentence);
-				processedConcept.addCommentTokens(commentTokens);
-				idfMake.addTerms(commentTokens);
+				conceptTokens.addComment(preProcessor.process(commentSentence));
 			}
 		}
 
+		return conceptTokens;
+	}
+
+	// tokens loaded from an EDAM snapshot, if made with the same preprocessing
+	private static ConceptTokens getConceptTokensOrSnapshot(Concept concept, PreProcessor preProcessor) {
+		ConceptTokens conceptTokens = concept.getTokens(preProcessor.getArgsKey());
+		if (conceptTokens == null) {
+			conceptTokens = getConceptTokens(concept, preProcessor);
+		}
+		return conceptTokens;
+	}
+
+	private static void addConceptIdfTerms(ConceptTokens conceptTokens, IdfMake idfMake) {
+		if (conceptTokens.getLabel() != null) {
+			idfMake.addTerms(conceptTokens.getLabel());
+		}
+		idfMake.addTermsTerms(conceptTokens.getExactSynonyms());
+		idfMake.addTermsTerms(conceptTokens.getNarrowSynonyms());
+		idfMake.addTermsTerms(conceptTokens.getBroadSynonyms());
+		idfMake.addTermsTerms(conceptTokens.getDefinition());
+		idfMake.addTermsTerms(conceptTokens.getComment());
 		idfMake.endDocument();
+	}
+
+	private ConceptProcessed processConcept(Concept concept, ConceptTokens conceptTokens, TokenDictionary tokenDictionary) {
+		ConceptProcessed processedConcept = new ConceptProcessed();
+
+		List<String> labelTokens = conceptTokens.getLabel();
+		if (labelTokens != null) {
+			processedConcept.setLabelTokens(labelTokens);
+			processedConcept.setLabelTokenIds(tokenDictionary.add(labelTokens));
+		}
+
+		for (List<String> exactSynonymTokens : conceptTokens.getExactSynonyms()) {
+			processedConcept.addExactSynonymTokens(exactSynonymTokens);
+			processedConcept.addExactSynonymTokenIds(tokenDictionary.add(exactSynonymTokens));
+		}
+
+		for (List<String> narrowSynonymTokens : conceptTokens.getNarrowSynonyms()) {
+			processedConcept.addNarrowSynonymTokens(narrowSynonymTokens);
+			processedConcept.addNarrowSynonymTokenIds(tokenDictionary.add(narrowSynonymTokens));
+		}
+
+		for (List<String> broadSynonymTokens : conceptTokens.getBroadSynonyms()) {
+			processedConcept.addBroadSynonymTokens(broadSynonymTokens);
+			processedConcept.addBroadSynonymTokenIds(tokenDictionary.add(broadSynonymTokens));
+		}
+
+		for (List<String> definitionTokens : conceptTokens.getDefinition()) {
+			processedConcept.addDefinitionTokens(definitionTokens);
+			processedConcept.addDefinitionTokenIds(tokenDictionary.add(definitionTokens));
+		}
+
+		for (List<String> commentTokens : conceptTokens.getComment()) {
+			processedConcept.addCommentTokens(commentTokens);
+			processedConcept.addCommentTokenIds(tokenDictionary.add(commentTokens));
+		}
 
 		processedConcept.setDirectParents(concept.getDirectParents());
 		processedConcept.setDirectChildren(concept.getDirectChildren());
@@ -141,32 +222,46 @@ public class Processor {
 		return processedConcept;
 	}
 
-	private void processConceptIdf(ConceptProcessed processedConcept, Idf idf) {
+	private void processConceptIdf(ConceptProcessed processedConcept, Idf idf, IdfArgs idfArgs) {
+		double scaling = idfArgs.getConceptIdfScaling();
+
 		if (processedConcept.getLabelTokens() != null) {
-			processedConcept.setLabelIdfs(idf.getIdf(processedConcept.getLabelTokens()));
+			double[] labelIdfs = idf.getIdf(processedConcept.getLabelTokens());
+			processedConcept.setLabelIdfs(labelIdfs);
+			processedConcept.setLabelIdfPowers(Idf.getIdfPowers(labelIdfs, scaling));
 		}
 
 		for (List<String> exactSynonymTokens : processedConcept.getExactSynonymsTokens()) {
-			processedConcept.addExactSynonymIdfs(idf.getIdf(exactSynonymTokens));
+			double[] exactSynonymIdfs = idf.getIdf(exactSynonymTokens);
+			processedConcept.addExactSynonymIdfs(exactSynonymIdfs);
+			processedConcept.addExactSynonymIdfPowers(Idf.getIdfPowers(exactSynonymIdfs, scaling));
 		}
 
 		for (List<String> narrowSynonymTokens : processedConcept.getNarrowSynonymsTokens()) {
-			processedConcept.addNarrowSynonymIdfs(idf.getIdf(narrowSynonymTokens));
+			double[] narrowSynonymIdfs = idf.getIdf(narrowSynonymTokens);
+			processedConcept.addNarrowSynonymIdfs(narrowSynonymIdfs);
+			processedConcept.addNarrowSynonymIdfPowers(Idf.getIdfPowers(narrowSynonymIdfs, scaling));
 		}
 
 		for (List<String> broadSynonymTokens : processedConcept.getBroadSynonymsTokens()) {
-			processedConcept.addBroadSynonymIdfs(idf.getIdf(broadSynonymTokens));
+			double[] broadSynonymIdfs = idf.getIdf(broadSynonymTokens);
+			processedConcept.addBroadSynonymIdfs(broadSynonymIdfs);
+			processedConcept.addBroadSynonymIdfPowers(Idf.getIdfPowers(broadSynonymIdfs, scaling));
 		}
 
 		if (processedConcept.getDefinitionTokens() != null) {
 			for (List<String> definitionTokens : processedConcept.getDefinitionTokens()) {
-				processedConcept.addDefinitionIdfs(idf.getIdf(definitionTokens));
+				double[] definitionIdfs = idf.getIdf(definitionTokens);
+				processedConcept.addDefinitionIdfs(definitionIdfs);
+				processedConcept.addDefinitionIdfPowers(Idf.getIdfPowers(definitionIdfs, scaling));
 			}
 		}
 
 		if (processedConcept.getCommentTokens() != null) {
 			for (List<String> commentTokens : processedConcept.getCommentTokens()) {
-				processedConcept.addCommentIdfs(idf.getIdf(commentTokens));
+				double[] commentIdfs = idf.getIdf(commentTokens);
+				processedConcept.addCommentIdfs(commentIdfs);
+				processedConcept.addCommentIdfPowers(Idf.getIdfPowers(commentIdfs, scaling));
 			}
 		}
 	}
@@ -174,79 +269,149 @@ public class Processor {
 	private void anonymizeProcessedConcept(ConceptProcessed processedConcept, IdfArgs idfArgs, MultiplierArgs multiplierArgs) {
 		if (processedConcept.getLabelTokens() != null && multiplierArgs.getLabelMultiplier() > 0) {
 			processedConcept.addTokens(processedConcept.getLabelTokens());
+			processedConcept.addTokenIds(processedConcept.getLabelTokenIds());
 			processedConcept.addIdfs(processedConcept.getLabelIdfs());
 			processedConcept.addScaling(idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0);
+			processedConcept.addIdfPowers(idfArgs.isLabelSynonymsIdf() ? processedConcept.getLabelIdfPowers() : null);
 			processedConcept.addMultiplier(multiplierArgs.getLabelMultiplier());
 		}
 		if (multiplierArgs.getExactSynonymMultiplier() > 0) {
 			for (int i = 0; i < processedConcept.getExactSynonymsTokens().size(); ++i) {
 				processedConcept.addTokens(processedConcept.getExactSynonymsTokens().get(i));
+				processedConcept.addTokenIds(processedConcept.getExactSynonymsTokenIds().get(i));
 				processedConcept.addIdfs(processedConcept.getExactSynonymsIdfs().get(i));
 				processedConcept.addScaling(idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0);
+				processedConcept.addIdfPowers(idfArgs.isLabelSynonymsIdf() ? processedConcept.getExactSynonymsIdfPowers().get(i) : null);
 				processedConcept.addMultiplier(multiplierArgs.getExactSynonymMultiplier());
 			}
 		}
 		if (multiplierArgs.getNarrowBroadSynonymMultiplier() > 0) {
 			for (int i = 0; i < processedConcept.getNarrowSynonymsTokens().size(); ++i) {
 				processedConcept.addTokens(processedConcept.getNarrowSynonymsTokens().get(i));
+				processedConcept.addTokenIds(processedConcept.getNarrowSynonymsTokenIds().get(i));
 				processedConcept.addIdfs(processedConcept.getNarrowSynonymsIdfs().get(i));
 				processedConcept.addScaling(idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0);
+				processedConcept.addIdfPowers(idfArgs.isLabelSynonymsIdf() ? processedConcept.getNarrowSynonymsIdfPowers().get(i) : null);
 				processedConcept.addMultiplier(multiplierArgs.getNarrowBroadSynonymMultiplier());
 			}
 		}
 		if (multiplierArgs.getNarrowBroadSynonymMultiplier() > 0) {
 			for (int i = 0; i < processedConcept.getBroadSynonymsTokens().size(); ++i) {
 				processedConcept.addTokens(processedConcept.getBroadSynonymsTokens().get(i));
+				processedConcept.addTokenIds(processedConcept.getBroadSynonymsTokenIds().get(i));
 				processedConcept.addIdfs(processedConcept.getBroadSynonymsIdfs().get(i));
 				processedConcept.addScaling(idfArgs.isLabelSynonymsIdf() ? idfArgs.getConceptIdfScaling() : 0);
+				processedConcept.addIdfPowers(idfArgs.isLabelSynonymsIdf() ? processedConcept.getBroadSynonymsIdfPowers().get(i) : null);
 				processedConcept.addMultiplier(multiplierArgs.getNarrowBroadSynonymMultiplier());
 			}
 		}
 		if (processedConcept.getDefinitionTokens() != null && multiplierArgs.getDefinitionMultiplier() > 0) {
 			for (int i = 0; i < processedConcept.getDefinitionTokens().size(); ++i) {
 				processedConcept.addTokens(processedConcept.getDefinitionTokens().get(i));
+				processedConcept.addTokenIds(processedConcept.getDefinitionTokenIds().get(i));
 				processedConcept.addIdfs(processedConcept.getDefinitionIdfs().get(i));
 				processedConcept.addScaling(idfArgs.getConceptIdfScaling());
+				processedConcept.addIdfPowers(processedConcept.getDefinitionIdfPowers().get(i));
 				processedConcept.addMultiplier(multiplierArgs.getDefinitionMultiplier());
 			}
 		}
 		if (processedConcept.getCommentTokens() != null && multiplierArgs.getCommentMultiplier() > 0) {
 			for (int i = 0; i < processedConcept.getCommentTokens().size(); ++i) {
 				processedConcept.addTokens(processedConcept.getCommentTokens().get(i));
+				processedConcept.addTokenIds(processedConcept.getCommentTokenIds().get(i));
 				processedConcept.addIdfs(processedConcept.getCommentIdfs().get(i));
 				processedConcept.addScaling(idfArgs.getConceptIdfScaling());
+				processedConcept.addIdfPowers(processedConcept.getCommentIdfPowers().get(i));
 				processedConcept.addMultiplier(multiplierArgs.getCommentMultiplier());
 			}
 		}
 	}
 
 	public Map<EdamUri, ConceptProcessed> getProcessedConcepts(Map<EdamUri, Concept> concepts, IdfArgs idfArgs, MultiplierArgs multiplierArgs, PreProcessor preProcessor) {
-		Map<EdamUri, ConceptProcessed> processedConcepts = new LinkedHashMap<>();
+		return getProcessedConcepts(concepts, idfArgs, multiplierArgs, preProcessor, new TokenDictionary(), null);
+	}
 
-		IdfMake idfMake = new IdfMake();
-		for (Map.Entry<EdamUri, Concept> concept : concepts.entrySet()) {
-			processedConcepts.put(concept.getKey(), processConcept(concept.getValue(), idfMake, preProcessor));
+	public Map<EdamUri, ConceptProcessed> getProcessedConcepts(Map<EdamUri, Concept> concepts, IdfArgs idfArgs, MultiplierArgs multiplierArgs, PreProcessor preProcessor, TokenDictionary tokenDictionary) {
+		return getProcessedConcepts(concepts, idfArgs, multiplierArgs, preProcessor, tokenDictionary, null);
+	}
+
+	// runs task for consecutive ranges of size elements, in parallel in pool if it is set and there are enough elements
+	private static void runConceptTasks(int size, ForkJoinPool pool, ConceptTask task) {
+		if (pool == null || pool.getParallelism() < 2 || size < 2 * MIN_CONCEPTS_TASK_SIZE) {
+			task.run(0, size);
+			return;
+		}
+		// more tasks than threads, as the time needed to tokenise concepts varies a lot (by length of definition and comment)
+		int taskSize = Math.max(MIN_CONCEPTS_TASK_SIZE, (size + 4 * pool.getParallelism() - 1) / (4 * pool.getParallelism()));
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (int start = 0; start < size; start += taskSize) {
+			int from = start;
+			int to = Math.min(start + taskSize, size);
+			tasks.add(pool.submit(() -> task.run(from, to)));
+		}
+		for (ForkJoinTask<?> t : tasks) {
+			t.join();
 		}
+	}
+
+	private interface ConceptTask {
+		void run(int from, int to);
+	}
 
+	// tokenDictionary must be empty and will be filled with all tokens of the concepts
+	// if pool is set, then tokenising concepts, counting their terms for the IDF, setting IDFs and anonymizing is done in parallel in it,
+	// with each task using its own PreProcessor and IdfMake. Token IDs are still assigned sequentially in the order of concepts,
+	// so the result (including the content of tokenDictionary) is the same as without pool.
+	public Map<EdamUri, ConceptProcessed> getProcessedConcepts(Map<EdamUri, Concept> concepts, IdfArgs idfArgs, MultiplierArgs multiplierArgs, PreProcessor preProcessor, TokenDictionary tokenDictionary, ForkJoinPool pool) {
+		List<Map.Entry<EdamUri, Concept>> conceptEntries = new ArrayList<>(concepts.entrySet());
+		int size = conceptEntries.size();
+
+		ConceptTokens[] conceptsTokens = new ConceptTokens[size];
+		List<IdfMake> idfMakes = Collections.synchronizedList(new ArrayList<>());
+		runConceptTasks(size, pool, (from, to) -> {
+			PreProcessor taskPreProcessor = (pool != null ? new PreProcessor(preProcessor) : preProcessor);
+			IdfMake idfMake = new IdfMake();
+			for (int i = from; i < to; ++i) {
+				conceptsTokens[i] = getConceptTokensOrSnapshot(conceptEntries.get(i).getValue(), taskPreProcessor);
+				addConceptIdfTerms(conceptsTokens[i], idfMake);
+			}
+			idfMakes.add(idfMake);
+		});
+		// term counts are sums, so the order of merging does not matter
+		IdfMake idfMake = new IdfMake();
+		for (IdfMake taskIdfMake : idfMakes) {
+			idfMake.merge(taskIdfMake);
+		}
 		Idf idf = new Idf(idfMake.getIdf(), idfMake.getCounts(), idfMake.getDocumentCount());
-		for (ConceptProcessed processedConcept : processedConcepts.values()) {
-			processConceptIdf(processedConcept, idf);
+
+		ConceptProcessed[] processedConceptsArray = new ConceptProcessed[size];
+		for (int i = 0; i < size; ++i) {
+			processedConceptsArray[i] = processConcept(conceptEntries.get(i).getValue(), conceptsTokens[i], tokenDictionary);
 		}
 
-		for (ConceptProcessed processedConcept : processedConcepts.values()) {
-			anonymizeProcessedConcept(processedConcept, idfArgs, multiplierArgs);
+		runConceptTasks(size, pool, (from, to) -> {
+			for (int i = from; i < to; ++i) {
+				processConceptIdf(processedConceptsArray[i], idf, idfArgs);
+				anonymizeProcessedConcept(processedConceptsArray[i], idfArgs, multiplierArgs);
+			}
+		});
+
+		Map<EdamUri, ConceptProcessed> processedConcepts = new LinkedHashMap<>();
+		for (int i = 0; i < size; ++i) {
+			processedConcepts.put(conceptEntries.get(i).getKey(), processedConceptsArray[i]);
 		}
 
 		return processedConcepts;
 	}
 
-	private PublicationProcessed processPublication(Publication publication, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs) {
+	private PublicationProcessed processPublication(Publication publication, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, TokenDictionary tokenDictionary) {
 		PublicationProcessed publicationProcessed = new PublicationProcessed();
 
 		if (publication.getTitle().isUsable(fetcherArgs)) {
 			List<String> titleTokens = pp.process(publication.getTitle().getContent());
 			if (!titleTokens.isEmpty()) {
 				publicationProcessed.setTitleTokens(titleTokens);
+				publicationProcessed.setTitleTokenIds(getTokenIds(titleTokens, tokenDictionary));
 				if (queryIdf != null) {
 					publicationProcessed.setTitleIdfs(queryIdf.getIdf(titleTokens));
 				}
@@ -256,13 +421,14 @@ public class Processor {
 		if (publication.getKeywords().isUsable(fetcherArgs)) {
 			for (String keyword : publication.getKeywords().getList()) {
 				List<String> keywordTokens = pp.process(keyword);
-				List<Double> keywordIdfs = null;
+				double[] keywordIdfs = null;
 				if (keywordTokens.isEmpty()) {
 					keywordTokens = null;
 				} else if (queryIdf != null) {
 					keywordIdfs = queryIdf.getIdf(keywordTokens);
 				}
 				publicationProcessed.addKeywordTokens(keywordTokens);
+				publicationProcessed.addKeywordTokenIds(getTokenIds(keywordTokens, tokenDictionary));
 				publicationProcessed.addKeywordIdfs(keywordIdfs);
 			}
 		}
@@ -270,47 +436,50 @@ public class Processor {
 		if (publication.getMeshTerms().isUsable(fetcherArgs)) {
 			for (MeshTerm meshTerm : publication.getMeshTerms().getList()) {
 				List<String> meshTermTokens = pp.process(meshTerm.getTerm());
-				List<Double> meshTermIdfs = null;
+				double[] meshTermIdfs = null;
 				if (meshTermTokens.isEmpty()) {
 					meshTermTokens = null;
 				} else if (queryIdf != null) {
 					meshTermIdfs = queryIdf.getIdf(meshTermTokens);
 				}
 				publicationProcessed.addMeshTermTokens(meshTermTokens);
+				publicationProcessed.addMeshTermTokenIds(getTokenIds(meshTermTokens, tokenDictionary));
 				publicationProcessed.addMeshTermIdfs(meshTermIdfs);
 			}
 		}
 
 		if (publication.getAbstract().isUsable(fetcherArgs)) {
-			for (String abstractSentence : pp.sentences(publication.getAbstract().getContent())) {
-				List<String> abstractTokens = pp.process(abstractSentence);
-				if (!abstractTokens.isEmpty()) {
-					publicationProcessed.addAbstractTokens(abstractTokens);
-					if (queryIdf != null) {
-						publicationProcessed.addAbstractIdfs(queryIdf.getIdf(abstractTokens));
-					}
+			SentenceTokens abstractSentences = processSentences(pp, publication.getAbstract().getContent());
+			int[] abstractTokenIds = getTokenIds(abstractSentences.getTokens(), tokenDictionary);
+			for (int i = 0; i < abstractSentences.size(); ++i) {
+				List<String> abstractTokens = abstractSentences.getSentence(i);
+				publicationProcessed.addAbstractTokens(abstractTokens);
+				publicationProcessed.addAbstractTokenIds(getSentenceTokenIds(abstractTokenIds, abstractSentences, i));
+				if (queryIdf != null) {
+					publicationProcessed.addAbstractIdfs(queryIdf.getIdf(abstractTokens));
 				}
 			}
 		}
 
 		int fulltextWordCount = 0;
 		if (publication.getFulltext().isUsable(fetcherArgs)) {
-			for (String fulltextSentence : pp.sentences(publication.getFulltext().getContent())) {
-				List<String> fulltextTokens = pp.process(fulltextSentence);
-				if (!fulltextTokens.isEmpty()) {
-					publicationProcessed.addFulltextTokens(fulltextTokens);
-					fulltextWordCount += fulltextTokens.size();
-					if (queryIdf != null) {
-						publicationProcessed.addFulltextIdfs(queryIdf.getIdf(fulltextTokens));
-					}
+			SentenceTokens fulltextSentences = processSentences(pp, publication.getFulltext().getContent());
+			int[] fulltextTokenIds = getTokenIds(fulltextSentences.getTokens(), tokenDictionary);
+			for (int i = 0; i < fulltextSentences.size(); ++i) {
+				List<String> fulltextTokens = fulltextSentences.getSentence(i);
+				publicationProcessed.addFulltextTokens(fulltextTokens);
+				publicationProcessed.addFulltextTokenIds(getSentenceTokenIds(fulltextTokenIds, fulltextSentences, i));
+				if (queryIdf != null) {
+					publicationProcessed.addFulltextIdfs(queryIdf.getIdf(fulltextTokens));
 				}
 			}
+			fulltextWordCount = fulltextSentences.getTokens().size();
 		}
 
 		if (publication.getEfoTerms().isUsable(fetcherArgs)) {
 			for (MinedTerm efoTerm : publication.getEfoTerms().getList()) {
 				List<String> efoTermTokens = pp.process(efoTerm.getTerm());
-				List<Double> efoTermIdfs = null;
+				double[] efoTermIdfs = null;
 				Double efoTermFrequency = null;
 				if (efoTermTokens.isEmpty()) {
 					efoTermTokens = null;
@@ -321,6 +490,7 @@ public class Processor {
 					efoTermFrequency = efoTerm.getFrequency(fulltextWordCount);
 				}
 				publicationProcessed.addEfoTermTokens(efoTermTokens);
+				publicationProcessed.addEfoTermTokenIds(getTokenIds(efoTermTokens, tokenDictionary));
 				publicationProcessed.addEfoTermIdfs(efoTermIdfs);
 				publicationProcessed.addEfoTermFrequency(efoTermFrequency);
 			}
@@ -329,7 +499,7 @@ public class Processor {
 		if (publication.getGoTerms().isUsable(fetcherArgs)) {
 			for (MinedTerm goTerm : publication.getGoTerms().getList()) {
 				List<String> goTermTokens = pp.process(goTerm.getTerm());
-				List<Double> goTermIdfs = null;
+				double[] goTermIdfs = null;
 				Double goTermFrequency = null;
 				if (goTermTokens.isEmpty()) {
 					goTermTokens = null;
@@ -340,6 +510,7 @@ public class Processor {
 					goTermFrequency = goTerm.getFrequency(fulltextWordCount);
 				}
 				publicationProcessed.addGoTermTokens(goTermTokens);
+				publicationProcessed.addGoTermTokenIds(getTokenIds(goTermTokens, tokenDictionary));
 				publicationProcessed.addGoTermIdfs(goTermIdfs);
 				publicationProcessed.addGoTermFrequency(goTermFrequency);
 			}
@@ -348,32 +519,43 @@ public class Processor {
 		return publicationProcessed;
 	}
 
-	private void addWebpage(Webpage webpage, QueryProcessed queryProcessed, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Iterator<Link> it) {
+	private void addWebpage(Webpage webpage, QueryProcessed queryProcessed, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Iterator<Link> it, TokenDictionary tokenDictionary) {
 		List<List<String>> webpageTokens = null;
-		List<List<Double>> webpageIdfs = null;
+		List<int[]> webpageTokenIds = null;
+		List<double[]> webpageIdfs = null;
 		if (webpage != null && webpage.isUsable(fetcherArgs)) {
 			List<String> titleProcessed = pp.process(webpage.getTitle());
 			if (!titleProcessed.isEmpty()) {
 				webpageTokens = new ArrayList<>();
 				webpageTokens.add(titleProcessed);
+				if (tokenDictionary != null) {
+					webpageTokenIds = new ArrayList<>();
+					webpageTokenIds.add(tokenDictionary.add(titleProcessed));
+				}
 				if (queryIdf != null) {
 					webpageIdfs = new ArrayList<>();
 					webpageIdfs.add(queryIdf.getIdf(titleProcessed));
 				}
 			}
-			for (String contentSentence : pp.sentences(webpage.getContent())) {
-				List<String> contentSentenceProcessed = pp.process(contentSentence);
-				if (!contentSentenceProcessed.isEmpty()) {
-					if (webpageTokens == null) {
-						webpageTokens = new ArrayList<>();
+			SentenceTokens contentSentences = processSentences(pp, webpage.getContent());
+			int[] contentTokenIds = getTokenIds(contentSentences.getTokens(), tokenDictionary);
+			for (int i = 0; i < contentSentences.size(); ++i) {
+				List<String> contentSentenceProcessed = contentSentences.getSentence(i);
+				if (webpageTokens == null) {
+					webpageTokens = new ArrayList<>();
+				}
+				webpageTokens.add(contentSentenceProcessed);
+				if (tokenDictionary != null) {
+					if (webpageTokenIds == null) {
+						webpageTokenIds = new ArrayList<>();
 					}
-					webpageTokens.add(contentSentenceProcessed);
-					if (queryIdf != null) {
-						if (webpageIdfs == null) {
-							webpageIdfs = new ArrayList<>();
-						}
-						webpageIdfs.add(queryIdf.getIdf(contentSentenceProcessed));
+					webpageTokenIds.add(getSentenceTokenIds(contentTokenIds, contentSentences, i));
+				}
+				if (queryIdf != null) {
+					if (webpageIdfs == null) {
+						webpageIdfs = new ArrayList<>();
 					}
+					webpageIdfs.add(queryIdf.getIdf(contentSentenceProcessed));
 				}
 			}
 		}
@@ -382,36 +564,48 @@ public class Processor {
 		} else {
 			queryProcessed.addWebpage(webpage);
 			queryProcessed.addWebpageTokens(webpageTokens);
+			queryProcessed.addWebpageTokenIds(webpageTokenIds);
 			queryProcessed.addWebpageIdfs(webpageIdfs);
 		}
 	}
 
-	private void addDoc(Webpage doc, QueryProcessed queryProcessed, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Iterator<Link> it) {
+	private void addDoc(Webpage doc, QueryProcessed queryProcessed, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Iterator<Link> it, TokenDictionary tokenDictionary) {
 		List<List<String>> docTokens = null;
-		List<List<Double>> docIdfs = null;
+		List<int[]> docTokenIds = null;
+		List<double[]> docIdfs = null;
 		if (doc != null && doc.isUsable(fetcherArgs)) {
 			List<String> titleProcessed = pp.process(doc.getTitle());
 			if (!titleProcessed.isEmpty()) {
 				docTokens = new ArrayList<>();
 				docTokens.add(titleProcessed);
+				if (tokenDictionary != null) {
+					docTokenIds = new ArrayList<>();
+					docTokenIds.add(tokenDictionary.add(titleProcessed));
+				}
 				if (queryIdf != null) {
 					docIdfs = new ArrayList<>();
 					docIdfs.add(queryIdf.getIdf(titleProcessed));
 				}
 			}
-			for (String contentSentence : pp.sentences(doc.getContent())) {
-				List<String> contentSentenceProcessed = pp.process(contentSentence);
-				if (!contentSentenceProcessed.isEmpty()) {
-					if (docTokens == null) {
-						docTokens = new ArrayList<>();
+			SentenceTokens contentSentences = processSentences(pp, doc.getContent());
+			int[] contentTokenIds = getTokenIds(contentSentences.getTokens(), tokenDictionary);
+			for (int i = 0; i < contentSentences.size(); ++i) {
+				List<String> contentSentenceProcessed = contentSentences.getSentence(i);
+				if (docTokens == null) {
+					docTokens = new ArrayList<>();
+				}
+				docTokens.add(contentSentenceProcessed);
+				if (tokenDictionary != null) {
+					if (docTokenIds == null) {
+						docTokenIds = new ArrayList<>();
 					}
-					docTokens.add(contentSentenceProcessed);
-					if (queryIdf != null) {
-						if (docIdfs == null) {
-							docIdfs = new ArrayList<>();
-						}
-						docIdfs.add(queryIdf.getIdf(contentSentenceProcessed));
+					docTokenIds.add(getSentenceTokenIds(contentTokenIds, contentSentences, i));
+				}
+				if (queryIdf != null) {
+					if (docIdfs == null) {
+						docIdfs = new ArrayList<>();
 					}
+					docIdfs.add(queryIdf.getIdf(contentSentenceProcessed));
 				}
 			}
 		}
@@ -420,14 +614,15 @@ public class Processor {
 		} else {
 			queryProcessed.addDoc(doc);
 			queryProcessed.addDocTokens(docTokens);
+			queryProcessed.addDocTokenIds(docTokenIds);
 			queryProcessed.addDocIdfs(docIdfs);
 		}
 	}
 
-	private void addPublication(Publication publication, QueryProcessed queryProcessed, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs) {
+	private void addPublication(Publication publication, QueryProcessed queryProcessed, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, TokenDictionary tokenDictionary) {
 		if (publication != null) {
 			queryProcessed.addPublication(publication);
-			queryProcessed.addProcessedPublication(processPublication(publication, pp, queryIdf, fetcherArgs));
+			queryProcessed.addProcessedPublication(processPublication(publication, pp, queryIdf, fetcherArgs, tokenDictionary));
 		} else {
 			queryProcessed.addPublication(null);
 			queryProcessed.addProcessedPublication(null);
@@ -435,14 +630,35 @@ public class Processor {
 	}
 
 	public QueryProcessed getProcessedQuery(Query query, QueryType type, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Integer threads) {
+		return getProcessedQuery(query, type, pp, queryIdf, fetcherArgs, threads, null);
+	}
+
+	// conceptsTokenDictionary is the dictionary filled in getProcessedConcepts, it is extended (not modified) with tokens of the query
+	public QueryProcessed getProcessedQuery(Query query, QueryType type, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Integer threads, TokenDictionary conceptsTokenDictionary) {
+		return getProcessedQuery(query, type, pp, queryIdf, fetcherArgs, threads, conceptsTokenDictionary, null);
+	}
+
+	// webpages, docs and publications are taken from linked instead of the database, if linked is given
+	QueryProcessed getProcessedQuery(Query query, QueryType type, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, QueryLinked linked) {
+		return getProcessedQuery(query, type, pp, queryIdf, fetcherArgs, null, null, linked);
+	}
+
+	private QueryProcessed getProcessedQuery(Query query, QueryType type, PreProcessor pp, Idf queryIdf, FetcherArgs fetcherArgs, Integer threads, TokenDictionary conceptsTokenDictionary, QueryLinked linked) {
 		QueryProcessed queryProcessed = new QueryProcessed();
 
+		TokenDictionary tokenDictionary = null;
+		if (conceptsTokenDictionary != null) {
+			tokenDictionary = conceptsTokenDictionary.extend();
+			queryProcessed.setTokenDictionary(tokenDictionary);
+		}
+
 		boolean removeBroken = (type == QueryType.Bioconductor);
 
 		if (query.getName() != null) {
 			List<String> nameTokens = pp.process(query.getName());
 			if (!nameTokens.isEmpty()) {
 				queryProcessed.setNameTokens(nameTokens);
+				queryProcessed.setNameTokenIds(getTokenIds(nameTokens, tokenDictionary));
 				if (queryIdf != null) {
 					queryProcessed.setNameIdfs(queryIdf.getIdf(nameTokens));
 				}
@@ -453,7 +669,7 @@ public class Processor {
 			for (Keyword keyword : query.getKeywords()) {
 				String keywordValue = keyword.getValue();
 				List<String> keywordTokens = null;
-				List<Double> keywordIdfs = null;
+				double[] keywordIdfs = null;
 				if (keywordValue != null) {
 					keywordTokens = pp.process(keywordValue);
 					if (keywordTokens.isEmpty()) {
@@ -463,6 +679,7 @@ public class Processor {
 					}
 				}
 				queryProcessed.addKeywordTokens(keywordTokens);
+				queryProcessed.addKeywordTokenIds(getTokenIds(keywordTokens, tokenDictionary));
 				queryProcessed.addKeywordIdfs(keywordIdfs);
 			}
 		}
@@ -473,6 +690,7 @@ public class Processor {
 				List<String> descriptionTokens = pp.process(descriptionSentence);
 				if (!descriptionTokens.isEmpty()) {
 					queryProcessed.addDescriptionTokens(descriptionTokens);
+					queryProcessed.addDescriptionTokenIds(getTokenIds(descriptionTokens, tokenDictionary));
 					if (queryIdf != null) {
 						queryProcessed.addDescriptionIdfs(queryIdf.getIdf(descriptionTokens));
 					}
@@ -482,25 +700,27 @@ public class Processor {
 
 		if (threads == null) {
 			if (query.getWebpageUrls() != null) {
-				for (Iterator<Link> it = query.getWebpageUrls().iterator(); it.hasNext(); ) {
+				int i = 0;
+				for (Iterator<Link> it = query.getWebpageUrls().iterator(); it.hasNext(); ++i) {
 					String webpageUrl = it.next().getUrl();
-					Webpage webpage = PubFetcher.getWebpage(webpageUrl, database, fetcher, fetcherArgs);
-					addWebpage(webpage, queryProcessed, pp, queryIdf, fetcherArgs, removeBroken ? it : null);
+					Webpage webpage = (linked != null ? linked.getWebpages().get(i) : PubFetcher.getWebpage(webpageUrl, database, fetcher, fetcherArgs));
+					addWebpage(webpage, queryProcessed, pp, queryIdf, fetcherArgs, removeBroken ? it : null, tokenDictionary);
 				}
 			}
 
 			if (query.getDocUrls() != null) {
-				for (Iterator<Link> it = query.getDocUrls().iterator(); it.hasNext(); ) {
+				int i = 0;
+				for (Iterator<Link> it = query.getDocUrls().iterator(); it.hasNext(); ++i) {
 					String docUrl = it.next().getUrl();
-					Webpage doc = PubFetcher.getDoc(docUrl, database, fetcher, fetcherArgs);
-					addDoc(doc, queryProcessed, pp, queryIdf, fetcherArgs, removeBroken ? it : null);
+					Webpage doc = (linked != null ? linked.getDocs().get(i) : PubFetcher.getDoc(docUrl, database, fetcher, fetcherArgs));
+					addDoc(doc, queryProcessed, pp, queryIdf, fetcherArgs, removeBroken ? it : null, tokenDictionary);
 				}
 			}
 
 			if (query.getPublicationIds() != null) {
-				for (PublicationIdsQuery publicationIds : query.getPublicationIds()) {
-					Publication publication = PubFetcher.getPublication(publicationIds, database, fetcher, null, fetcherArgs);
-					addPublication(publication, queryProcessed, pp, queryIdf, fetcherArgs);
+				for (int i = 0; i < query.getPublicationIds().size(); ++i) {
+					Publication publication = (linked != null ? linked.getPublications().get(i) : PubFetcher.getPublication(query.getPublicationIds().get(i), database, fetcher, null, fetcherArgs));
+					addPublication(publication, queryProcessed, pp, queryIdf, fetcherArgs, tokenDictionary);
 				}
 			}
 		} else {
@@ -528,13 +748,13 @@ public class Processor {
 			for (DatabaseEntryEntry entry : entries) {
 				switch (entry.getType()) {
 				case webpage:
-					addWebpage((Webpage) entry.getEntry(), queryProcessed, pp, queryIdf, fetcherArgs, null);
+					addWebpage((Webpage) entry.getEntry(), queryProcessed, pp, queryIdf, fetcherArgs, null, tokenDictionary);
 					break;
 				case doc:
-					addDoc((Webpage) entry.getEntry(), queryProcessed, pp, queryIdf, fetcherArgs, null);
+					addDoc((Webpage) entry.getEntry(), queryProcessed, pp, queryIdf, fetcherArgs, null, tokenDictionary);
 					break;
 				case publication:
-					addPublication((Publication) entry.getEntry(), queryProcessed, pp, queryIdf, fetcherArgs);
+					addPublication((Publication) entry.getEntry(), queryProcessed, pp, queryIdf, fetcherArgs, tokenDictionary);
 					break;
 				}
 			}
@@ -547,83 +767,134 @@ public class Processor {
 		return new DatabaseEntryGet().getDatabaseEntries(database, fetcher, fetcherArgs, ids, System.currentTimeMillis(), threads);
 	}
 
-	public int makeQueryIdf(List<Query> queries, QueryType type, String outputPath, boolean webpagesDocs, boolean fulltext, PreProcessor preProcessor, Idf queryIdf, FetcherArgs fetcherArgs, boolean progress) throws IOException {
-		IdfMake idfMake = new IdfMake(outputPath);
-
-		long start = System.currentTimeMillis();
+	private static void updateFingerprint(MessageDigest digest, String s) {
+		if (s == null) {
+			digest.update((byte) 0);
+		} else {
+			digest.update((byte) 1);
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+			digest.update(bytes);
+		}
+	}
 
-		for (int i = 0; i < queries.size(); ++i) {
-			Query query = queries.get(i);
+	private static void updateFingerprint(MessageDigest digest, Webpage webpage, FetcherArgs fetcherArgs) {
+		if (webpage != null && webpage.isUsable(fetcherArgs)) {
+			updateFingerprint(digest, webpage.getTitle());
+			updateFingerprint(digest, webpage.getContent());
+		} else {
+			updateFingerprint(digest, null);
+		}
+	}
 
-			if (progress) {
-				System.err.print(PubFetcher.progress(i + 1, queries.size(), start) + "  \r");
+	QueryLinked getQueryLinked(Query query, FetcherArgs fetcherArgs) {
+		QueryLinked linked = new QueryLinked();
+		if (query.getWebpageUrls() != null) {
+			for (Link webpageUrl : query.getWebpageUrls()) {
+				linked.getWebpages().add(PubFetcher.getWebpage(webpageUrl.getUrl(), database, fetcher, fetcherArgs));
+			}
+		}
+		if (query.getDocUrls() != null) {
+			for (Link docUrl : query.getDocUrls()) {
+				linked.getDocs().add(PubFetcher.getDoc(docUrl.getUrl(), database, fetcher, fetcherArgs));
 			}
+		}
+		if (query.getPublicationIds() != null) {
+			for (PublicationIdsQuery publicationIds : query.getPublicationIds()) {
+				linked.getPublications().add(PubFetcher.getPublication(publicationIds, database, fetcher, null, fetcherArgs));
+			}
+		}
+		return linked;
+	}
 
-			QueryProcessed processedQuery = getProcessedQuery(query, type, preProcessor, queryIdf, fetcherArgs, null);
+	// digest of the query content that is processed for the query IDF, including usable parts of its webpages, docs and publications
+	byte[] getQueryFingerprint(Query query, QueryLinked linked, FetcherArgs fetcherArgs) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		updateFingerprint(digest, query.getName());
+		if (query.getKeywords() != null) {
+			for (Keyword keyword : query.getKeywords()) {
+				updateFingerprint(digest, keyword.getValue());
+			}
+		}
+		updateFingerprint(digest, query.getDescription());
 
-			if (processedQuery.getNameTokens() != null) {
-				idfMake.addTerms(processedQuery.getNameTokens());
+		for (Webpage webpage : linked.getWebpages()) {
+			updateFingerprint(digest, webpage, fetcherArgs);
+		}
+		updateFingerprint(digest, null);
+		for (Webpage doc : linked.getDocs()) {
+			updateFingerprint(digest, doc, fetcherArgs);
+		}
+		updateFingerprint(digest, null);
+		for (Publication publication : linked.getPublications()) {
+			if (publication == null) {
+				updateFingerprint(digest, null);
+				continue;
 			}
-			for (List<String> keywordTokens : processedQuery.getKeywordsTokens()) {
-				if (keywordTokens != null) idfMake.addTerms(keywordTokens);
+			updateFingerprint(digest, publication.getTitle().isUsable(fetcherArgs) ? publication.getTitle().getContent() : null);
+			if (publication.getKeywords().isUsable(fetcherArgs)) {
+				for (String keyword : publication.getKeywords().getList()) {
+					updateFingerprint(digest, keyword);
+				}
 			}
-			for (List<String> descriptionSentenceTokens : processedQuery.getDescriptionTokens()) {
-				idfMake.addTerms(descriptionSentenceTokens);
+			updateFingerprint(digest, null);
+			if (publication.getMeshTerms().isUsable(fetcherArgs)) {
+				for (MeshTerm meshTerm : publication.getMeshTerms().getList()) {
+					updateFingerprint(digest, meshTerm.getTerm());
+				}
 			}
-
-			if (webpagesDocs) {
-				for (List<List<String>> webpageTokens : processedQuery.getWebpagesTokens()) {
-					if (webpageTokens != null) {
-						for (List<String> webpageSentenceTokens : webpageTokens) {
-							idfMake.addTerms(webpageSentenceTokens);
-						}
-					}
+			updateFingerprint(digest, null);
+			updateFingerprint(digest, publication.getAbstract().isUsable(fetcherArgs) ? publication.getAbstract().getContent() : null);
+			updateFingerprint(digest, publication.getFulltext().isUsable(fetcherArgs) ? publication.getFulltext().getContent() : null);
+			if (publication.getEfoTerms().isUsable(fetcherArgs)) {
+				for (MinedTerm efoTerm : publication.getEfoTerms().getList()) {
+					updateFingerprint(digest, efoTerm.getTerm());
 				}
-				for (List<List<String>> docTokens : processedQuery.getDocsTokens()) {
-					if (docTokens != null) {
-						for (List<String> docSentenceTokens : docTokens) {
-							idfMake.addTerms(docSentenceTokens);
-						}
-					}
+			}
+			updateFingerprint(digest, null);
+			if (publication.getGoTerms().isUsable(fetcherArgs)) {
+				for (MinedTerm goTerm : publication.getGoTerms().getList()) {
+					updateFingerprint(digest, goTerm.getTerm());
 				}
 			}
+			updateFingerprint(digest, null);
+		}
 
-			for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
-				if (processedPublication == null) continue;
+		return digest.digest();
+	}
 
-				if (processedPublication.getTitleTokens() != null) {
-					idfMake.addTerms(processedPublication.getTitleTokens());
-				}
-				for (List<String> keywordTokens : processedPublication.getKeywordsTokens()) {
-					if (keywordTokens != null) idfMake.addTerms(keywordTokens);
-				}
-				for (List<String> meshTermTokens : processedPublication.getMeshTermsTokens()) {
-					if (meshTermTokens != null) idfMake.addTerms(meshTermTokens);
-				}
-				for (List<String> efoTermTokens : processedPublication.getEfoTermsTokens()) {
-					if (efoTermTokens != null) idfMake.addTerms(efoTermTokens);
-				}
-				for (List<String> goTermTokens : processedPublication.getGoTermsTokens()) {
-					if (goTermTokens != null) idfMake.addTerms(goTermTokens);
-				}
-				for (List<String> abstractSentenceTokens : processedPublication.getAbstractTokens()) {
-					idfMake.addTerms(abstractSentenceTokens);
-				}
+	public int makeQueryIdf(List<Query> queries, QueryType type, String outputPath, boolean webpagesDocs, boolean fulltext, PreProcessor preProcessor, Idf queryIdf, FetcherArgs fetcherArgs, boolean progress) throws IOException {
+		return makeQueryIdf(queries, type, outputPath, webpagesDocs, fulltext, preProcessor, queryIdf, fetcherArgs, progress, 1);
+	}
 
-				if (fulltext) {
-					for (List<String> fulltextSentenceTokens : processedPublication.getFulltextTokens()) {
-						idfMake.addTerms(fulltextSentenceTokens);
-					}
-				}
-			}
+	public int makeQueryIdf(List<Query> queries, QueryType type, String outputPath, boolean webpagesDocs, boolean fulltext, PreProcessor preProcessor, Idf queryIdf, FetcherArgs fetcherArgs, boolean progress, int threads) throws IOException {
+		return makeQueryIdf(queries, type, outputPath, webpagesDocs, fulltext, preProcessor, queryIdf, fetcherArgs, progress, threads, null);
+	}
 
-			idfMake.endDocument();
-		}
+	// preProcessor is not used directly, but copied for each of the threads
+	// if statePath is given, only queries changed since the state was written are processed, the state is updated
+	public int makeQueryIdf(List<Query> queries, QueryType type, String outputPath, boolean webpagesDocs, boolean fulltext, PreProcessor preProcessor, Idf queryIdf, FetcherArgs fetcherArgs, boolean progress, int threads, String statePath) throws IOException {
+		IdfMake idfMake = new IdfMake(outputPath);
 
-		if (progress) {
-			System.err.println();
+		if (statePath == null || statePath.isEmpty()) {
+			new QueryIdfMake(this).make(idfMake, queries, type, webpagesDocs, fulltext, preProcessor, queryIdf, fetcherArgs, progress, threads, null, null, null);
+			return idfMake.writeOutput();
+		} else {
+			String settings = preProcessor.getArgsKey() + " type=" + type + " webpagesDocs=" + webpagesDocs + " fulltext=" + fulltext;
+			IdfMakeState state = IdfMakeState.read(statePath, settings);
+			IdfMakeState stateUpdated = new IdfMakeState(settings);
+			List<String> keys = QueryIdfMake.getKeys(queries);
+			new QueryIdfMake(this).make(idfMake, queries, type, webpagesDocs, fulltext, preProcessor, queryIdf, fetcherArgs, progress, threads, keys, state, stateUpdated);
+			// state is saved only after the IDF it describes, so a failed write of the IDF doesn't leave a state claiming to cover the queries
+			int termsSize = idfMake.writeOutput();
+			stateUpdated.write(statePath, keys);
+			return termsSize;
 		}
-
-		return idfMake.writeOutput();
 	}
 }
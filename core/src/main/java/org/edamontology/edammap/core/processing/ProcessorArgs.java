@@ -25,6 +25,7 @@ import com.beust.jcommander.Parameter;
 
 import org.edamontology.pubfetcher.core.common.Arg;
 import org.edamontology.pubfetcher.core.common.Args;
+import org.edamontology.pubfetcher.core.common.PositiveInteger;
 
 public class ProcessorArgs extends Args {
 
@@ -52,12 +53,26 @@ public class ProcessorArgs extends Args {
 	@Parameter(names = { "--" + idfStemmedId, "--query-" + idfStemmedId }, description = idfStemmedDescription)
 	private String idfStemmed = idfStemmedDefault;
 
+	private static final String preProcessedCacheId = "preProcessedCache";
+	private static final String preProcessedCacheDescription = "Use the given directory for caching tokens of publication abstracts and fulltexts and webpage and doc contents, so that content that has not changed does not have to be preprocessed again in later runs; if not specified, no cache is used";
+	private static final String preProcessedCacheDefault = "";
+	@Parameter(names = { "--" + preProcessedCacheId }, description = preProcessedCacheDescription)
+	private String preProcessedCache = preProcessedCacheDefault;
+
+	private static final String preProcessedCacheSizeId = "preProcessedCacheSize";
+	private static final String preProcessedCacheSizeDescription = "Maximum total size in megabytes of entries in the directory given with --preProcessedCache, least recently used entries are removed when this is exceeded";
+	private static final Integer preProcessedCacheSizeDefault = 1024;
+	@Parameter(names = { "--" + preProcessedCacheSizeId }, validateWith = PositiveInteger.class, description = preProcessedCacheSizeDescription)
+	private Integer preProcessedCacheSize = preProcessedCacheSizeDefault;
+
 	@Override
 	protected void addArgs() {
 		args.add(new Arg<>(this::isFetching, this::setFetching, fetchingDefault, fetchingId, "Fetching", fetchingDescription, null));
 		args.add(new Arg<>(this::getDbFilename, this::setDb, dbDefault, dbId, "Database file", dbDescription, null));
 		args.add(new Arg<>(this::getIdfFilename, this::setIdf, idfDefault, idfId, "Query IDF file", idfDescription, null));
 		args.add(new Arg<>(this::getIdfStemmedFilename, this::setIdfStemmed, idfStemmedDefault, idfStemmedId, "Stemmed query IDF file", idfStemmedDescription, null));
+		args.add(new Arg<>(this::getPreProcessedCacheFilename, this::setPreProcessedCache, preProcessedCacheDefault, preProcessedCacheId, "Preprocessed cache directory", preProcessedCacheDescription, null));
+		args.add(new Arg<>(this::getPreProcessedCacheSize, this::setPreProcessedCacheSize, preProcessedCacheSizeDefault, 1, null, preProcessedCacheSizeId, "Preprocessed cache size", preProcessedCacheSizeDescription, null));
 	}
 
 	@Override
@@ -106,4 +121,21 @@ public class ProcessorArgs extends Args {
 	public void setIdfStemmed(String idfStemmed) {
 		this.idfStemmed = idfStemmed;
 	}
+
+	public String getPreProcessedCache() {
+		return preProcessedCache;
+	}
+	public String getPreProcessedCacheFilename() {
+		return new File(preProcessedCache).getName();
+	}
+	public void setPreProcessedCache(String preProcessedCache) {
+		this.preProcessedCache = preProcessedCache;
+	}
+
+	public Integer getPreProcessedCacheSize() {
+		return preProcessedCacheSize;
+	}
+	public void setPreProcessedCacheSize(Integer preProcessedCacheSize) {
+		this.preProcessedCacheSize = preProcessedCacheSize;
+	}
 }
@@ -25,27 +25,34 @@ import java.util.List;
 public class PublicationProcessed {
 
 	private List<String> titleTokens = null;
-	private List<Double> titleIdfs = null;
+	private int[] titleTokenIds = null;
+	private double[] titleIdfs = null;
 
 	private List<List<String>> keywordsTokens = new ArrayList<>();
-	private List<List<Double>> keywordsIdfs = new ArrayList<>();
+	private List<int[]> keywordsTokenIds = new ArrayList<>();
+	private List<double[]> keywordsIdfs = new ArrayList<>();
 
 	private List<List<String>> meshTermsTokens = new ArrayList<>();
-	private List<List<Double>> meshTermsIdfs = new ArrayList<>();
+	private List<int[]> meshTermsTokenIds = new ArrayList<>();
+	private List<double[]> meshTermsIdfs = new ArrayList<>();
 
 	private List<List<String>> efoTermsTokens = new ArrayList<>();
-	private List<List<Double>> efoTermsIdfs = new ArrayList<>();
+	private List<int[]> efoTermsTokenIds = new ArrayList<>();
+	private List<double[]> efoTermsIdfs = new ArrayList<>();
 	private List<Double> efoTermFrequencies = new ArrayList<>();
 
 	private List<List<String>> goTermsTokens = new ArrayList<>();
-	private List<List<Double>> goTermsIdfs = new ArrayList<>();
+	private List<int[]> goTermsTokenIds = new ArrayList<>();
+	private List<double[]> goTermsIdfs = new ArrayList<>();
 	private List<Double> goTermFrequencies = new ArrayList<>();
 
 	private List<List<String>> abstractTokens = new ArrayList<>();
-	private List<List<Double>> abstractIdfs = null;
+	private List<int[]> abstractTokenIds = new ArrayList<>();
+	private List<double[]> abstractIdfs = null;
 
 	private List<List<String>> fulltextTokens = new ArrayList<>();
-	private List<List<Double>> fulltextIdfs = null;
+	private List<int[]> fulltextTokenIds = new ArrayList<>();
+	private List<double[]> fulltextIdfs = null;
 
 	public List<String> getTitleTokens() {
 		return titleTokens;
@@ -53,10 +60,16 @@ public class PublicationProcessed {
 	public void setTitleTokens(List<String> titleTokens) {
 		this.titleTokens = titleTokens;
 	}
-	public List<Double> getTitleIdfs() {
+	public int[] getTitleTokenIds() {
+		return titleTokenIds;
+	}
+	public void setTitleTokenIds(int[] titleTokenIds) {
+		this.titleTokenIds = titleTokenIds;
+	}
+	public double[] getTitleIdfs() {
 		return titleIdfs;
 	}
-	public void setTitleIdfs(List<Double> titleIdfs) {
+	public void setTitleIdfs(double[] titleIdfs) {
 		this.titleIdfs = titleIdfs;
 	}
 
@@ -66,10 +79,16 @@ public class PublicationProcessed {
 	public void addKeywordTokens(List<String> keywordTokens) {
 		this.keywordsTokens.add(keywordTokens);
 	}
-	public List<List<Double>> getKeywordsIdfs() {
+	public List<int[]> getKeywordsTokenIds() {
+		return keywordsTokenIds;
+	}
+	public void addKeywordTokenIds(int[] keywordTokenIds) {
+		this.keywordsTokenIds.add(keywordTokenIds);
+	}
+	public List<double[]> getKeywordsIdfs() {
 		return keywordsIdfs;
 	}
-	public void addKeywordIdfs(List<Double> keywordIdfs) {
+	public void addKeywordIdfs(double[] keywordIdfs) {
 		this.keywordsIdfs.add(keywordIdfs);
 	}
 
@@ -79,10 +98,16 @@ public class PublicationProcessed {
 	public void addMeshTermTokens(List<String> meshTermTokens) {
 		this.meshTermsTokens.add(meshTermTokens);
 	}
-	public List<List<Double>> getMeshTermsIdfs() {
+	public List<int[]> getMeshTermsTokenIds() {
+		return meshTermsTokenIds;
+	}
+	public void addMeshTermTokenIds(int[] meshTermTokenIds) {
+		this.meshTermsTokenIds.add(meshTermTokenIds);
+	}
+	public List<double[]> getMeshTermsIdfs() {
 		return meshTermsIdfs;
 	}
-	public void addMeshTermIdfs(List<Double> meshTermIdfs) {
+	public void addMeshTermIdfs(double[] meshTermIdfs) {
 		this.meshTermsIdfs.add(meshTermIdfs);
 	}
 
@@ -92,10 +117,16 @@ public class PublicationProcessed {
 	public void addEfoTermTokens(List<String> efoTermTokens) {
 		this.efoTermsTokens.add(efoTermTokens);
 	}
-	public List<List<Double>> getEfoTermsIdfs() {
+	public List<int[]> getEfoTermsTokenIds() {
+		return efoTermsTokenIds;
+	}
+	public void addEfoTermTokenIds(int[] efoTermTokenIds) {
+		this.efoTermsTokenIds.add(efoTermTokenIds);
+	}
+	public List<double[]> getEfoTermsIdfs() {
 		return efoTermsIdfs;
 	}
-	public void addEfoTermIdfs(List<Double> efoTermIdfs) {
+	public void addEfoTermIdfs(double[] efoTermIdfs) {
 		this.efoTermsIdfs.add(efoTermIdfs);
 	}
 	public List<Double> getEfoTermFrequencies() {
@@ -111,10 +142,16 @@ public class PublicationProcessed {
 	public void addGoTermTokens(List<String> goTermTokens) {
 		this.goTermsTokens.add(goTermTokens);
 	}
-	public List<List<Double>> getGoTermsIdfs() {
+	public List<int[]> getGoTermsTokenIds() {
+		return goTermsTokenIds;
+	}
+	public void addGoTermTokenIds(int[] goTermTokenIds) {
+		this.goTermsTokenIds.add(goTermTokenIds);
+	}
+	public List<double[]> getGoTermsIdfs() {
 		return goTermsIdfs;
 	}
-	public void addGoTermIdfs(List<Double> goTermIdfs) {
+	public void addGoTermIdfs(double[] goTermIdfs) {
 		this.goTermsIdfs.add(goTermIdfs);
 	}
 	public List<Double> getGoTermFrequencies() {
@@ -130,10 +167,16 @@ public class PublicationProcessed {
 	public void addAbstractTokens(List<String> abstractTokens) {
 		this.abstractTokens.add(abstractTokens);
 	}
-	public List<List<Double>> getAbstractIdfs() {
+	public List<int[]> getAbstractTokenIds() {
+		return abstractTokenIds;
+	}
+	public void addAbstractTokenIds(int[] abstractTokenIds) {
+		this.abstractTokenIds.add(abstractTokenIds);
+	}
+	public List<double[]> getAbstractIdfs() {
 		return abstractIdfs;
 	}
-	public void addAbstractIdfs(List<Double> abstractIdfs) {
+	public void addAbstractIdfs(double[] abstractIdfs) {
 		if (this.abstractIdfs == null) {
 			this.abstractIdfs = new ArrayList<>();
 		}
@@ -146,10 +189,16 @@ public class PublicationProcessed {
 	public void addFulltextTokens(List<String> fulltextTokens) {
 		this.fulltextTokens.add(fulltextTokens);
 	}
-	public List<List<Double>> getFulltextIdfs() {
+	public List<int[]> getFulltextTokenIds() {
+		return fulltextTokenIds;
+	}
+	public void addFulltextTokenIds(int[] fulltextTokenIds) {
+		this.fulltextTokenIds.add(fulltextTokenIds);
+	}
+	public List<double[]> getFulltextIdfs() {
 		return fulltextIdfs;
 	}
-	public void addFulltextIdfs(List<Double> fulltextIdfs) {
+	public void addFulltextIdfs(double[] fulltextIdfs) {
 		if (this.fulltextIdfs == null) {
 			this.fulltextIdfs = new ArrayList<>();
 		}
@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.edamontology.pubfetcher.core.common.FetcherArgs;
+import org.edamontology.pubfetcher.core.common.PubFetcher;
+
+import org.edamontology.edammap.core.idf.Idf;
+import org.edamontology.edammap.core.idf.IdfMake;
+import org.edamontology.edammap.core.idf.IdfMakeState;
+import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.query.Query;
+import org.edamontology.edammap.core.query.QueryType;
+
+// Counts terms of queries for Processor.makeQueryIdf in multiple threads, each thread having its own PreProcessor and IdfMake.
+// The IdfMake of each thread is merged to the result when the thread is done, the counts (and thus the output) don't depend on the number of threads.
+// With a state, terms of queries whose fingerprint has not changed are taken from the state instead of processing the query again.
+class QueryIdfMake {
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private Object lock = new Object();
+
+	private Processor processor;
+	private QueryType type;
+	private boolean webpagesDocs;
+	private boolean fulltext;
+	private PreProcessor preProcessor;
+	private Idf queryIdf;
+	private FetcherArgs fetcherArgs;
+	private boolean progress;
+
+	private boolean lockDone;
+	private int numThreads;
+	private int index;
+
+	private List<Query> queries;
+	private long startMillis;
+	private IdfMake idfMake;
+	private Throwable failure;
+
+	private List<String> keys;
+	private IdfMakeState state;
+	private IdfMakeState stateUpdated;
+	private int reused;
+
+	QueryIdfMake(Processor processor) {
+		this.processor = processor;
+	}
+
+	// key of a query in IdfMakeState is its ID, with occurrence number appended to repeated IDs
+	static List<String> getKeys(List<Query> queries) {
+		List<String> keys = new ArrayList<>(queries.size());
+		Map<String, Integer> occurrences = new HashMap<>();
+		for (Query query : queries) {
+			String id = (query.getId() != null ? query.getId() : "");
+			int occurrence = occurrences.merge(id, 1, Integer::sum) - 1;
+			keys.add(occurrence == 0 ? id : id + "\t" + occurrence);
+		}
+		return keys;
+	}
+
+	void make(IdfMake idfMake, List<Query> queries, QueryType type, boolean webpagesDocs, boolean fulltext, PreProcessor preProcessor, Idf queryIdf, FetcherArgs fetcherArgs, boolean progress, int threads, List<String> keys, IdfMakeState state, IdfMakeState stateUpdated) throws IOException {
+		if (queries.isEmpty()) {
+			if (progress) {
+				System.err.println();
+			}
+			return;
+		}
+
+		this.type = type;
+		this.webpagesDocs = webpagesDocs;
+		this.fulltext = fulltext;
+		this.preProcessor = preProcessor;
+		this.queryIdf = queryIdf;
+		this.fetcherArgs = fetcherArgs;
+		this.progress = progress;
+
+		lockDone = false;
+		numThreads = 0;
+		index = 0;
+
+		this.queries = queries;
+		startMillis = System.currentTimeMillis();
+		this.idfMake = idfMake;
+		failure = null;
+
+		this.keys = keys;
+		this.state = state;
+		this.stateUpdated = stateUpdated;
+		reused = 0;
+
+		for (int i = 0; i < threads && i < queries.size(); ++i) {
+			Thread t = new Thread(new QueryIdfThread());
+			t.setDaemon(true);
+			t.start();
+		}
+
+		synchronized(lock) {
+			while (!lockDone || numThreads > 0) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					logger.error("Exception!", e);
+					throw new IOException("Interrupted while making IDF", e);
+				}
+			}
+		}
+
+		if (progress) {
+			System.err.println();
+		}
+
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+
+		if (state != null) {
+			logger.info("Processed {} new or changed queries, reused {} unchanged queries from IDF state, {} queries removed from state", queries.size() - reused, reused, state.size() - reused);
+		}
+	}
+
+	private Set<String> getTerms(QueryProcessed processedQuery) {
+		Set<String> terms = new HashSet<>();
+
+		if (processedQuery.getNameTokens() != null) {
+			terms.addAll(processedQuery.getNameTokens());
+		}
+		for (List<String> keywordTokens : processedQuery.getKeywordsTokens()) {
+			if (keywordTokens != null) terms.addAll(keywordTokens);
+		}
+		for (List<String> descriptionSentenceTokens : processedQuery.getDescriptionTokens()) {
+			terms.addAll(descriptionSentenceTokens);
+		}
+
+		if (webpagesDocs) {
+			for (List<List<String>> webpageTokens : processedQuery.getWebpagesTokens()) {
+				if (webpageTokens != null) {
+					for (List<String> webpageSentenceTokens : webpageTokens) {
+						terms.addAll(webpageSentenceTokens);
+					}
+				}
+			}
+			for (List<List<String>> docTokens : processedQuery.getDocsTokens()) {
+				if (docTokens != null) {
+					for (List<String> docSentenceTokens : docTokens) {
+						terms.addAll(docSentenceTokens);
+					}
+				}
+			}
+		}
+
+		for (PublicationProcessed processedPublication : processedQuery.getProcessedPublications()) {
+			if (processedPublication == null) continue;
+
+			if (processedPublication.getTitleTokens() != null) {
+				terms.addAll(processedPublication.getTitleTokens());
+			}
+			for (List<String> keywordTokens : processedPublication.getKeywordsTokens()) {
+				if (keywordTokens != null) terms.addAll(keywordTokens);
+			}
+			for (List<String> meshTermTokens : processedPublication.getMeshTermsTokens()) {
+				if (meshTermTokens != null) terms.addAll(meshTermTokens);
+			}
+			for (List<String> efoTermTokens : processedPublication.getEfoTermsTokens()) {
+				if (efoTermTokens != null) terms.addAll(efoTermTokens);
+			}
+			for (List<String> goTermTokens : processedPublication.getGoTermsTokens()) {
+				if (goTermTokens != null) terms.addAll(goTermTokens);
+			}
+			for (List<String> abstractSentenceTokens : processedPublication.getAbstractTokens()) {
+				terms.addAll(abstractSentenceTokens);
+			}
+
+			if (fulltext) {
+				for (List<String> fulltextSentenceTokens : processedPublication.getFulltextTokens()) {
+					terms.addAll(fulltextSentenceTokens);
+				}
+			}
+		}
+
+		return terms;
+	}
+
+	private class QueryIdfThread implements Runnable {
+
+		@Override
+		public void run() {
+			synchronized(lock) {
+				++numThreads;
+				lockDone = true;
+			}
+			IdfMake threadIdfMake = new IdfMake();
+			try {
+				PreProcessor pp = new PreProcessor(preProcessor);
+				while (true) {
+					Query query;
+					int queryIndex;
+					synchronized(queries) {
+						if (index >= queries.size() || failure != null) {
+							break;
+						}
+						queryIndex = index;
+						query = queries.get(index);
+						++index;
+						if (progress) {
+							System.err.print(PubFetcher.progress(index, queries.size(), startMillis) + "  \r");
+						}
+					}
+
+					Collection<String> terms = null;
+					byte[] fingerprint = null;
+					QueryLinked linked = null;
+					if (state != null) {
+						// loaded once for both the fingerprint and the processing of a changed query
+						linked = processor.getQueryLinked(query, fetcherArgs);
+						fingerprint = processor.getQueryFingerprint(query, linked, fetcherArgs);
+						IdfMakeState.Entry entry = state.get(keys.get(queryIndex));
+						if (entry != null && Arrays.equals(entry.getFingerprint(), fingerprint)) {
+							terms = entry.getTerms();
+							synchronized(queries) {
+								++reused;
+							}
+						}
+					}
+					if (terms == null) {
+						terms = getTerms(processor.getProcessedQuery(query, type, pp, queryIdf, fetcherArgs, linked));
+					}
+
+					threadIdfMake.addDocument(terms);
+					if (stateUpdated != null) {
+						stateUpdated.put(keys.get(queryIndex), fingerprint, terms);
+					}
+				}
+			} catch (Throwable e) {
+				synchronized(queries) {
+					if (failure == null) {
+						failure = e;
+					}
+				}
+			} finally {
+				synchronized(lock) {
+					idfMake.merge(threadIdfMake);
+					--numThreads;
+					lock.notifyAll();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.edamontology.pubfetcher.core.db.publication.Publication;
+import org.edamontology.pubfetcher.core.db.webpage.Webpage;
+
+// Webpages, docs and publications of a query loaded from the database (null if not found), in the order of their links in the query.
+// Loaded once for making both the fingerprint and the processed query of a query in QueryIdfMake.
+class QueryLinked {
+
+	private final List<Webpage> webpages = new ArrayList<>();
+
+	private final List<Webpage> docs = new ArrayList<>();
+
+	private final List<Publication> publications = new ArrayList<>();
+
+	List<Webpage> getWebpages() {
+		return webpages;
+	}
+
+	List<Webpage> getDocs() {
+		return docs;
+	}
+
+	List<Publication> getPublications() {
+		return publications;
+	}
+}
@@ -27,36 +27,56 @@ import org.edamontology.pubfetcher.core.db.webpage.Webpage;
 
 public class QueryProcessed {
 
+	private TokenDictionary tokenDictionary = null;
+
 	private List<String> nameTokens = null;
-	private List<Double> nameIdfs = null;
+	private int[] nameTokenIds = null;
+	private double[] nameIdfs = null;
 
 	private List<List<String>> keywordsTokens = new ArrayList<>();
-	private List<List<Double>> keywordsIdfs = new ArrayList<>();
+	private List<int[]> keywordsTokenIds = new ArrayList<>();
+	private List<double[]> keywordsIdfs = new ArrayList<>();
 
 	private List<List<String>> descriptionTokens = new ArrayList<>();
-	private List<List<Double>> descriptionIdfs = null;
+	private List<int[]> descriptionTokenIds = new ArrayList<>();
+	private List<double[]> descriptionIdfs = null;
 
 	private List<Webpage> webpages = new ArrayList<>();
 	private List<List<List<String>>> webpagesTokens = new ArrayList<>();
-	private List<List<List<Double>>> webpagesIdfs = new ArrayList<>();
+	private List<List<int[]>> webpagesTokenIds = new ArrayList<>();
+	private List<List<double[]>> webpagesIdfs = new ArrayList<>();
 
 	private List<Webpage> docs = new ArrayList<>();
 	private List<List<List<String>>> docsTokens = new ArrayList<>();
-	private List<List<List<Double>>> docsIdfs = new ArrayList<>();
+	private List<List<int[]>> docsTokenIds = new ArrayList<>();
+	private List<List<double[]>> docsIdfs = new ArrayList<>();
 
 	private List<Publication> publications = new ArrayList<>();
 	private List<PublicationProcessed> processedPublications = new ArrayList<>();
 
+	public TokenDictionary getTokenDictionary() {
+		return tokenDictionary;
+	}
+	public void setTokenDictionary(TokenDictionary tokenDictionary) {
+		this.tokenDictionary = tokenDictionary;
+	}
+
 	public List<String> getNameTokens() {
 		return nameTokens;
 	}
 	public void setNameTokens(List<String> nameTokens) {
 		this.nameTokens = nameTokens;
 	}
-	public List<Double> getNameIdfs() {
+	public int[] getNameTokenIds() {
+		return nameTokenIds;
+	}
+	public void setNameTokenIds(int[] nameTokenIds) {
+		this.nameTokenIds = nameTokenIds;
+	}
+	public double[] getNameIdfs() {
 		return nameIdfs;
 	}
-	public void setNameIdfs(List<Double> nameIdfs) {
+	public void setNameIdfs(double[] nameIdfs) {
 		this.nameIdfs = nameIdfs;
 	}
 
@@ -66,10 +86,16 @@ public class QueryProcessed {
 	public void addKeywordTokens(List<String> keywordTokens) {
 		this.keywordsTokens.add(keywordTokens);
 	}
-	public List<List<Double>> getKeywordsIdfs() {
+	public List<int[]> getKeywordsTokenIds() {
+		return keywordsTokenIds;
+	}
+	public void addKeywordTokenIds(int[] keywordTokenIds) {
+		this.keywordsTokenIds.add(keywordTokenIds);
+	}
+	public List<double[]> getKeywordsIdfs() {
 		return keywordsIdfs;
 	}
-	public void addKeywordIdfs(List<Double> keywordIdfs) {
+	public void addKeywordIdfs(double[] keywordIdfs) {
 		this.keywordsIdfs.add(keywordIdfs);
 	}
 
@@ -79,10 +105,16 @@ public class QueryProcessed {
 	public void addDescriptionTokens(List<String> descriptionTokens) {
 		this.descriptionTokens.add(descriptionTokens);
 	}
-	public List<List<Double>> getDescriptionIdfs() {
+	public List<int[]> getDescriptionTokenIds() {
+		return descriptionTokenIds;
+	}
+	public void addDescriptionTokenIds(int[] descriptionTokenIds) {
+		this.descriptionTokenIds.add(descriptionTokenIds);
+	}
+	public List<double[]> getDescriptionIdfs() {
 		return descriptionIdfs;
 	}
-	public void addDescriptionIdfs(List<Double> descriptionIdfs) {
+	public void addDescriptionIdfs(double[] descriptionIdfs) {
 		if (this.descriptionIdfs == null) {
 			this.descriptionIdfs = new ArrayList<>();
 		}
@@ -101,10 +133,16 @@ public class QueryProcessed {
 	public void addWebpageTokens(List<List<String>> webpageTokens) {
 		this.webpagesTokens.add(webpageTokens);
 	}
-	public List<List<List<Double>>> getWebpagesIdfs() {
+	public List<List<int[]>> getWebpagesTokenIds() {
+		return webpagesTokenIds;
+	}
+	public void addWebpageTokenIds(List<int[]> webpageTokenIds) {
+		this.webpagesTokenIds.add(webpageTokenIds);
+	}
+	public List<List<double[]>> getWebpagesIdfs() {
 		return webpagesIdfs;
 	}
-	public void addWebpageIdfs(List<List<Double>> webpageIdfs) {
+	public void addWebpageIdfs(List<double[]> webpageIdfs) {
 		this.webpagesIdfs.add(webpageIdfs);
 	}
 
@@ -120,10 +158,16 @@ public class QueryProcessed {
 	public void addDocTokens(List<List<String>> docTokens) {
 		this.docsTokens.add(docTokens);
 	}
-	public List<List<List<Double>>> getDocsIdfs() {
+	public List<List<int[]>> getDocsTokenIds() {
+		return docsTokenIds;
+	}
+	public void addDocTokenIds(List<int[]> docTokenIds) {
+		this.docsTokenIds.add(docTokenIds);
+	}
+	public List<List<double[]>> getDocsIdfs() {
 		return docsIdfs;
 	}
-	public void addDocIdfs(List<List<Double>> docIdfs) {
+	public void addDocIdfs(List<double[]> docIdfs) {
 		this.docsIdfs.add(docIdfs);
 	}
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.core.processing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+
+// Maps processed tokens to int IDs, so that exact matching of tokens can be done by comparing ints.
+// Built in Processor.getProcessedConcepts, after which it must not be modified anymore,
+// as it will be read concurrently by all extensions made with extend() in Processor.getProcessedQuery.
+public class TokenDictionary {
+
+	private final TokenDictionary parent;
+
+	private final int offset;
+
+	private final ObjectIntHashMap<String> ids = new ObjectIntHashMap<>();
+
+	private final List<String> tokens = new ArrayList<>();
+
+	public TokenDictionary() {
+		this.parent = null;
+		this.offset = 0;
+	}
+
+	private TokenDictionary(TokenDictionary parent) {
+		this.parent = parent;
+		this.offset = parent.size();
+	}
+
+	// new tokens added to the extension get IDs not used by this dictionary, this dictionary is not changed
+	public TokenDictionary extend() {
+		return new TokenDictionary(this);
+	}
+
+	public TokenDictionary getParent() {
+		return parent;
+	}
+
+	public int size() {
+		return offset + tokens.size();
+	}
+
+	public int getId(String token) {
+		if (parent != null) {
+			int id = parent.getId(token);
+			if (id > -1) return id;
+		}
+		int index = ids.indexOf(token);
+		if (index < 0) return -1;
+		return ids.indexGet(index);
+	}
+
+	public int add(String token) {
+		int id = getId(token);
+		if (id < 0) {
+			id = offset + tokens.size();
+			ids.put(token, id);
+			tokens.add(token);
+		}
+		return id;
+	}
+
+	public int[] add(List<String> tokens) {
+		if (tokens == null) return null;
+		int[] tokenIds = new int[tokens.size()];
+		for (int i = 0; i < tokenIds.length; ++i) {
+			tokenIds[i] = add(tokens.get(i));
+		}
+		return tokenIds;
+	}
+
+	public String getToken(int id) {
+		if (id < offset) {
+			return parent.getToken(id);
+		}
+		return tokens.get(id - offset);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.server;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.edamontology.edammap.core.edam.Concept;
+import org.edamontology.edammap.core.edam.EdamUri;
+
+// One loaded EDAM ontology file together with everything derived from it.
+// Not modified after being made, a reload makes a new EdamVersion which replaces the old one in Server,
+// while requests already running keep using the old one they got at the start.
+public class EdamVersion {
+
+	private final String name;
+
+	private final String path;
+
+	private final Map<EdamUri, Concept> concepts;
+
+	private final Set<EdamUri> blacklist;
+
+	private final ProcessedConceptsCache processedConceptsCache;
+
+	public EdamVersion(String path, Map<EdamUri, Concept> concepts, Set<EdamUri> blacklist, ProcessedConceptsCache processedConceptsCache) {
+		this.name = getName(path);
+		this.path = path;
+		this.concepts = Collections.unmodifiableMap(concepts);
+		this.blacklist = Collections.unmodifiableSet(blacklist);
+		this.processedConceptsCache = processedConceptsCache;
+	}
+
+	public static String getName(String path) {
+		return new File(path).getName();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public Map<EdamUri, Concept> getConcepts() {
+		return concepts;
+	}
+
+	public Set<EdamUri> getBlacklist() {
+		return blacklist;
+	}
+
+	public ProcessedConceptsCache getProcessedConceptsCache() {
+		return processedConceptsCache;
+	}
+}
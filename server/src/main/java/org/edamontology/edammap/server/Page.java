@@ -176,12 +176,12 @@ public final class Page {
 		writer.write("<section id=\"tabs\" style=\"display: none;\">\n");
 		writer.write("\n");
 		try {
-			Params.writeMain(Server.getArgsMain(true, txt, true, json), writer);
+			Params.writeMain(Server.getArgsMain(true, txt, true, json, Server.edam.getName()), writer);
 			Params.writeProcessing(args.getProcessorArgs(), writer);
 			Params.writePreProcessing(args.getPreProcessorArgs(), writer, true);
 			Params.writeFetching(args.getFetcherArgs(), writer, false, true);
 			Params.writeMapping(args.getMapperArgs(), writer, true);
-			Params.writeCountsEdamOnly(writer, Server.concepts);
+			Params.writeCountsEdamOnly(writer, Server.edam.getConcepts());
 		} catch (IOException e) {
 			logger.error("Exception!", e);
 			// should not happen, as writing only to StringWriter
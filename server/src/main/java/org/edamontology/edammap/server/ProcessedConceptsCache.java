@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2026 Erik Jaaniso
+ *
+ * This file is part of EDAMmap.
+ *
+ * EDAMmap is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * EDAMmap is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with EDAMmap.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.edamontology.edammap.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.edamontology.pubfetcher.core.common.Arg;
+import org.edamontology.pubfetcher.core.common.Args;
+
+import org.edamontology.edammap.core.args.CoreArgs;
+import org.edamontology.edammap.core.edam.Concept;
+import org.edamontology.edammap.core.edam.EdamUri;
+import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.processing.ConceptIndex;
+import org.edamontology.edammap.core.processing.ConceptProcessed;
+import org.edamontology.edammap.core.processing.Processor;
+import org.edamontology.edammap.core.processing.TokenDictionary;
+
+// Processed concepts shared by all requests, as the ConceptIndex holding them together with their TokenDictionary.
+// Processed concepts depend only on the preprocessing, IDF and multiplier args, which are used as key.
+// A ConceptIndex is not modified after being made (queries only extend its TokenDictionary), so it can be used by concurrent requests.
+public class ProcessedConceptsCache {
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private final Map<EdamUri, Concept> concepts;
+
+	private final Processor processor;
+
+	// if set, concepts are processed in parallel in it
+	private final ForkJoinPool pool;
+
+	// least recently used removed when full, concurrent requests with the same key wait for the same task
+	private final Map<String, FutureTask<ConceptIndex>> cache;
+
+	public ProcessedConceptsCache(Map<EdamUri, Concept> concepts, Processor processor, int size, ForkJoinPool pool) {
+		this.concepts = concepts;
+		this.processor = processor;
+		this.pool = pool;
+		this.cache = new LinkedHashMap<String, FutureTask<ConceptIndex>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FutureTask<ConceptIndex>> eldest) {
+				return size() > size;
+			}
+		};
+	}
+
+	private static void appendArgs(StringBuilder key, Args args) {
+		for (Arg<?, ?> arg : args.getArgs()) {
+			key.append(arg.getId()).append('=').append(arg.getValue()).append(' ');
+		}
+	}
+
+	private static String getKey(CoreArgs coreArgs) {
+		StringBuilder key = new StringBuilder();
+		appendArgs(key, coreArgs.getPreProcessorArgs());
+		appendArgs(key, coreArgs.getMapperArgs().getIdfArgs());
+		appendArgs(key, coreArgs.getMapperArgs().getMultiplierArgs());
+		return key.toString();
+	}
+
+	private ConceptIndex process(CoreArgs coreArgs, PreProcessor preProcessor) {
+		logger.info("Processing {} concepts", concepts.size());
+		long startConcepts = System.currentTimeMillis();
+		TokenDictionary tokenDictionary = new TokenDictionary();
+		Map<EdamUri, ConceptProcessed> processedConcepts = processor.getProcessedConcepts(concepts,
+			coreArgs.getMapperArgs().getIdfArgs(), coreArgs.getMapperArgs().getMultiplierArgs(), preProcessor, tokenDictionary, pool);
+		ConceptIndex conceptIndex = new ConceptIndex(processedConcepts, tokenDictionary);
+		logger.info("Processing concepts took {}s", (System.currentTimeMillis() - startConcepts) / 1000.0);
+		return conceptIndex;
+	}
+
+	// preProcessor must have been made with the preprocessing args of coreArgs
+	public ConceptIndex get(CoreArgs coreArgs, PreProcessor preProcessor) {
+		String key = getKey(coreArgs);
+		FutureTask<ConceptIndex> task;
+		boolean run = false;
+		synchronized (cache) {
+			task = cache.get(key);
+			if (task == null) {
+				task = new FutureTask<>(() -> process(coreArgs, preProcessor));
+				cache.put(key, task);
+				run = true;
+			}
+		}
+		if (run) {
+			task.run();
+		} else {
+			logger.info("Using cached processed concepts");
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			synchronized (cache) {
+				cache.remove(key, task);
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException(cause);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -58,9 +58,11 @@ import org.edamontology.edammap.core.output.Json;
 import org.edamontology.edammap.core.output.JsonType;
 import org.edamontology.edammap.core.output.Output;
 import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.processing.ConceptIndex;
 import org.edamontology.edammap.core.processing.ConceptProcessed;
 import org.edamontology.edammap.core.processing.Processor;
 import org.edamontology.edammap.core.processing.QueryProcessed;
+import org.edamontology.edammap.core.processing.TokenDictionary;
 import org.edamontology.edammap.core.query.Query;
 import org.edamontology.edammap.core.query.QueryType;
 
@@ -125,6 +127,9 @@ public class Resource extends ResourceBase {
 			}
 		}
 
+		// the version is fixed for the whole query, even if it is reloaded in the meantime
+		EdamVersion edam = Server.getEdam(ParamParse.getParamString(params, ServerArgs.edamId));
+
 		ServerInput serverInput = getServerInput(params, isJson, tool, true, false);
 
 		checkInput(serverInput, tool);
@@ -149,18 +154,22 @@ public class Resource extends ResourceBase {
 
 		PreProcessor preProcessor = new PreProcessor(coreArgs.getPreProcessorArgs(), Server.stopwordsAll.get(coreArgs.getPreProcessorArgs().getStopwords()));
 
-		Map<EdamUri, ConceptProcessed> processedConcepts = getProcessedConcepts(coreArgs, preProcessor);
+		ConceptIndex conceptIndex = getConceptIndex(coreArgs, preProcessor, edam.getProcessedConceptsCache());
+
+		Map<EdamUri, ConceptProcessed> processedConcepts = conceptIndex.getProcessedConcepts();
+
+		TokenDictionary tokenDictionary = conceptIndex.getTokenDictionary();
 
-		Query query = getQuery(serverInput, tool, toolMissingId, false, false);
+		Query query = getQuery(serverInput, tool, toolMissingId, false, false, edam.getConcepts());
 
-		QueryProcessed processedQuery = getProcessedQuery(coreArgs, Server.idf, Server.idfStemmed, query, preProcessor);
+		QueryProcessed processedQuery = getProcessedQuery(coreArgs, Server.idf, Server.idfStemmed, query, preProcessor, tokenDictionary);
 
 		List<Query> queries = Collections.singletonList(query);
 		List<List<Webpage>> webpages = Collections.singletonList(processedQuery.getWebpages());
 		List<List<Webpage>> docs = Collections.singletonList(processedQuery.getDocs());
 		List<List<Publication>> publications = Collections.singletonList(processedQuery.getPublications());
 
-		Results results = getResults(processedConcepts, query, queries, processedQuery, coreArgs, Server.edamBlacklist);
+		Results results = getResults(processedConcepts, query, queries, processedQuery, coreArgs, edam.getBlacklist(), conceptIndex, Server.mappingPool);
 
 		URI baseLocation = new URI(Server.args.getServerPrivateArgs().isHttpsProxy() ? "https" : request.getScheme(), null, request.getServerName(), Server.args.getServerPrivateArgs().isHttpsProxy() ? 443 : request.getServerPort(), null, null, null);
 		URI apiLocation = new URI(baseLocation.getScheme(), null, baseLocation.getHost(), baseLocation.getPort(), Server.args.getServerPrivateArgs().getPath() + "/api", null, null);
@@ -189,8 +198,8 @@ public class Resource extends ResourceBase {
 
 		logger.info("Outputting results");
 
-		output.output(coreArgs, Server.getArgsMain(false, txt, html, json), null, jsonFields, 1, 1,
-			Server.concepts, queries, webpages, docs, publications, results, tool, start, stop, Server.version, jsonVersion, false);
+		output.output(coreArgs, Server.getArgsMain(false, txt, html, json, edam.getName()), null, jsonFields, 1, 1,
+			edam.getConcepts(), queries, webpages, docs, publications, results, tool, start, stop, Server.version, jsonVersion, false);
 
 		String jsonString = null;
 		if (isJson) {
@@ -201,8 +210,8 @@ public class Resource extends ResourceBase {
 					jsonType = JsonType.full;
 				}
 			}
-			jsonString = Json.output(coreArgs, Server.getArgsMain(false, txt, html, json), jsonFields, QueryType.server, jsonType, null,
-				Server.concepts, queries, publications, webpages, docs, results, tool, start, stop, Server.version, jsonVersion, false);
+			jsonString = Json.output(coreArgs, Server.getArgsMain(false, txt, html, json, edam.getName()), jsonFields, QueryType.server, jsonType, null,
+				edam.getConcepts(), queries, publications, webpages, docs, results, tool, start, stop, Server.version, jsonVersion, false);
 		}
 
 		if (isJson) {
@@ -237,7 +246,7 @@ public class Resource extends ResourceBase {
 
 	@Override
 	protected Map<EdamUri, Concept> getConcepts() {
-		return Server.concepts;
+		return Server.edam.getConcepts();
 	}
 
 	@Override
@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import jakarta.json.JsonArray;
@@ -76,10 +77,12 @@ import org.edamontology.edammap.core.mapping.Mapping;
 import org.edamontology.edammap.core.output.DatabaseEntryEntry;
 import org.edamontology.edammap.core.output.Json;
 import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.processing.ConceptIndex;
 import org.edamontology.edammap.core.processing.ConceptProcessed;
 import org.edamontology.edammap.core.processing.Processor;
 import org.edamontology.edammap.core.processing.ProcessorArgs;
 import org.edamontology.edammap.core.processing.QueryProcessed;
+import org.edamontology.edammap.core.processing.TokenDictionary;
 import org.edamontology.edammap.core.query.Query;
 import org.edamontology.edammap.core.query.QueryLoader;
 import org.edamontology.edammap.core.query.QueryType;
@@ -215,21 +218,16 @@ public abstract class ResourceBase {
 		return uuid;
 	}
 
-	protected Map<EdamUri, ConceptProcessed> getProcessedConcepts(CoreArgs coreArgs, PreProcessor preProcessor) {
-		logger.info("Processing {} concepts", getConcepts().size());
-		long startConcepts = System.currentTimeMillis();
-		Map<EdamUri, ConceptProcessed> processedConcepts = getProcessor().getProcessedConcepts(getConcepts(),
-			coreArgs.getMapperArgs().getIdfArgs(), coreArgs.getMapperArgs().getMultiplierArgs(), preProcessor);
-		logger.info("Processing concepts took {}s", (System.currentTimeMillis() - startConcepts) / 1000.0);
-		return processedConcepts;
+	protected ConceptIndex getConceptIndex(CoreArgs coreArgs, PreProcessor preProcessor, ProcessedConceptsCache processedConceptsCache) {
+		return processedConceptsCache.get(coreArgs, preProcessor);
 	}
 
-	protected Query getQuery(ServerInput serverInput, Tool tool, boolean toolMissingId, boolean isHomepageDoc, boolean homepageMissing) {
+	protected Query getQuery(ServerInput serverInput, Tool tool, boolean toolMissingId, boolean isHomepageDoc, boolean homepageMissing, Map<EdamUri, Concept> concepts) {
 		Query query;
 		if (serverInput != null) {
-			query = QueryLoader.fromServer(serverInput, getConcepts(), MAX_KEYWORDS_SIZE, MAX_LINKS_SIZE, MAX_PUBLICATION_IDS_SIZE);
+			query = QueryLoader.fromServer(serverInput, concepts, MAX_KEYWORDS_SIZE, MAX_LINKS_SIZE, MAX_PUBLICATION_IDS_SIZE);
 		} else {
-			query = QueryLoader.getBiotools(tool, getConcepts(), MAX_LINKS_SIZE, MAX_PUBLICATION_IDS_SIZE, QueryType.server.name(), isHomepageDoc, homepageMissing);
+			query = QueryLoader.getBiotools(tool, concepts, MAX_LINKS_SIZE, MAX_PUBLICATION_IDS_SIZE, QueryType.server.name(), isHomepageDoc, homepageMissing);
 			if (toolMissingId) {
 				tool.setBiotoolsID(null);
 			}
@@ -237,7 +235,7 @@ public abstract class ResourceBase {
 		return query;
 	}
 
-	protected QueryProcessed getProcessedQuery(CoreArgs coreArgs, Idf idf, Idf idfStemmed, Query query, PreProcessor preProcessor) {
+	protected QueryProcessed getProcessedQuery(CoreArgs coreArgs, Idf idf, Idf idfStemmed, Query query, PreProcessor preProcessor, TokenDictionary tokenDictionary) {
 		logger.info("Loading query");
 		long startQuery = System.currentTimeMillis();
 
@@ -248,18 +246,18 @@ public abstract class ResourceBase {
 			idfChosen = idf;
 		}
 
-		QueryProcessed processedQuery = getProcessor().getProcessedQuery(query, QueryType.server, preProcessor, idfChosen, coreArgs.getFetcherArgs(), getServerPrivateArgs().getFetchingThreads());
+		QueryProcessed processedQuery = getProcessor().getProcessedQuery(query, QueryType.server, preProcessor, idfChosen, coreArgs.getFetcherArgs(), getServerPrivateArgs().getFetchingThreads(), tokenDictionary);
 
 		logger.info("Loading query took {}s", (System.currentTimeMillis() - startQuery) / 1000.0);
 
 		return processedQuery;
 	}
 
-	protected Results getResults(Map<EdamUri, ConceptProcessed> processedConcepts, Query query, List<Query> queries, QueryProcessed processedQuery, CoreArgs coreArgs, Set<EdamUri> edamBlacklist) {
+	protected Results getResults(Map<EdamUri, ConceptProcessed> processedConcepts, Query query, List<Query> queries, QueryProcessed processedQuery, CoreArgs coreArgs, Set<EdamUri> edamBlacklist, ConceptIndex conceptIndex, ForkJoinPool mappingPool) {
 		logger.info("Mapping query");
 		long startMapping = System.currentTimeMillis();
 
-		Mapping mapping = new Mapper(processedConcepts, edamBlacklist).map(query, processedQuery, coreArgs.getMapperArgs());
+		Mapping mapping = new Mapper(processedConcepts, edamBlacklist, conceptIndex, mappingPool).map(query, processedQuery, coreArgs.getMapperArgs());
 
 		List<Mapping> mappings = Collections.singletonList(mapping);
 		Results results = Benchmark.calculate(queries, mappings);
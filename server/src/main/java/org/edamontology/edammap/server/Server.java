@@ -22,16 +22,27 @@ package org.edamontology.edammap.server;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -54,11 +65,13 @@ import org.glassfish.jersey.server.ResourceConfig;
 
 import org.edamontology.pubfetcher.core.common.Arg;
 import org.edamontology.pubfetcher.core.common.BasicArgs;
+import org.edamontology.pubfetcher.core.common.IllegalRequestException;
 import org.edamontology.pubfetcher.core.common.PubFetcher;
 import org.edamontology.pubfetcher.core.common.Version;
 import org.edamontology.pubfetcher.core.db.Database;
 
 import org.edamontology.edammap.core.args.ArgMain;
+import org.edamontology.edammap.core.args.CoreArgs;
 import org.edamontology.edammap.core.edam.Concept;
 import org.edamontology.edammap.core.edam.Edam;
 import org.edamontology.edammap.core.edam.EdamUri;
@@ -70,27 +83,45 @@ import org.edamontology.edammap.core.processing.Processor;
 
 public final class Server {
 
+	private static final long EDAM_WATCH_DELAY = 2000;
+
 	private static Logger logger;
 
 	static Version version;
 
 	static ServerArgs args;
 
-	static EnumMap<Stopwords, List<String>> stopwordsAll = new EnumMap<>(Stopwords.class);
-
-	static Set<EdamUri> edamBlacklist;
+	static EnumMap<Stopwords, Set<String>> stopwordsAll = new EnumMap<>(Stopwords.class);
 
 	static Processor processor = null;
 
 	static Idf idf = null;
 	static Idf idfStemmed = null;
 
-	static Map<EdamUri, Concept> concepts;
+	static ForkJoinPool mappingPool = null;
+
+	// all loaded EDAM versions by name, a reload replaces the EdamVersion of a name
+	static final Map<String, EdamVersion> edamVersions = new ConcurrentHashMap<>();
 
-	static List<ArgMain> getArgsMain(boolean input, Boolean txt, Boolean html, Boolean json) {
+	// the version loaded from --edam, used when a query does not choose a version
+	static volatile EdamVersion edam = null;
+
+	static EdamVersion getEdam(String name) {
+		if (name == null || name.isEmpty()) {
+			return edam;
+		}
+		EdamVersion edamVersion = edamVersions.get(name);
+		if (edamVersion == null) {
+			throw new IllegalRequestException("Illegal EDAM version: '" + name + "'; possible values: " + edamVersions.keySet().stream().sorted().map(k -> "'" + k + "'").collect(Collectors.joining(", ")));
+		}
+		return edamVersion;
+	}
+
+	static List<ArgMain> getArgsMain(boolean input, Boolean txt, Boolean html, Boolean json, String edam) {
 		List<ArgMain> argsMain = new ArrayList<>();
 		for (Arg<?, ?> arg : args.getArgs()) {
 			switch (arg.getId()) {
+				case ServerArgs.edamId: argsMain.add(new ArgMain(edam, arg, false)); break;
 				case ServerArgs.txtId: argsMain.add(new ArgMain(txt, arg, input)); break;
 				case ServerArgs.htmlId: argsMain.add(new ArgMain(html, arg, false)); break;
 				case ServerArgs.jsonId: argsMain.add(new ArgMain(json, arg, input)); break;
@@ -212,15 +243,93 @@ public final class Server {
 		});
 	}
 
+	private static EdamVersion loadEdam(String edamPath) throws IOException {
+		logger.info("Loading concepts from {}", edamPath);
+		Map<EdamUri, Concept> concepts = Edam.load(edamPath, args.getEdamLoader());
+		Set<EdamUri> blacklist = Edam.getBlacklist();
+
+		ProcessedConceptsCache processedConceptsCache = new ProcessedConceptsCache(concepts, processor, args.getServerPrivateArgs().getConceptsCache(), mappingPool);
+		logger.info("Processing concepts of {} for default parameters", edamPath);
+		CoreArgs defaultCoreArgs = ResourceBase.newCoreArgs(new MultivaluedHashMap<>(), false, args.getProcessorArgs(), args.getFetcherPrivateArgs());
+		processedConceptsCache.get(defaultCoreArgs, new PreProcessor(defaultCoreArgs.getPreProcessorArgs(), stopwordsAll.get(defaultCoreArgs.getPreProcessorArgs().getStopwords())));
+
+		return new EdamVersion(edamPath, concepts, blacklist, processedConceptsCache);
+	}
+
+	// the new version is made fully (including processed concepts for default parameters) before it replaces the old one
+	private static void reloadEdam(String edamPath) {
+		try {
+			EdamVersion edamVersion = loadEdam(edamPath);
+			edamVersions.put(edamVersion.getName(), edamVersion);
+			if (edam.getName().equals(edamVersion.getName())) {
+				edam = edamVersion;
+			}
+			logger.info("Reloaded EDAM version {}", edamVersion.getName());
+		} catch (Throwable e) {
+			logger.error("Reloading EDAM from " + edamPath + " failed, keeping previous version", e);
+		}
+	}
+
+	private static void watchEdam(List<String> edamPaths) throws IOException {
+		WatchService watchService = FileSystems.getDefault().newWatchService();
+		Map<Path, String> watched = new HashMap<>();
+		Set<Path> dirs = new HashSet<>();
+		for (String edamPath : edamPaths) {
+			Path path = Paths.get(edamPath).toAbsolutePath();
+			// files are watched through their directory, which also catches files replaced by a move
+			if (dirs.add(path.getParent())) {
+				path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			}
+			watched.put(path, edamPath);
+		}
+		logger.info("Watching {} EDAM files for changes", watched.size());
+
+		Thread thread = new Thread(() -> {
+			while (true) {
+				WatchKey key;
+				try {
+					key = watchService.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				Set<String> changed = new LinkedHashSet<>();
+				// a file can be written in many steps, so wait until events stop coming before reloading
+				do {
+					Path dir = (Path) key.watchable();
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							changed.addAll(watched.values());
+						} else {
+							String edamPath = watched.get(dir.resolve((Path) event.context()));
+							if (edamPath != null) {
+								changed.add(edamPath);
+							}
+						}
+					}
+					key.reset();
+					try {
+						key = watchService.poll(EDAM_WATCH_DELAY, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						return;
+					}
+				} while (key != null);
+				for (String edamPath : changed) {
+					logger.info("EDAM file {} changed", edamPath);
+					reloadEdam(edamPath);
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
 	private static void run() throws IOException, ParseException {
 		makeFiles(Server.class, version, args.getServerPrivateArgs(), true, logger);
 
 		for (Stopwords stopwords : Stopwords.values()) {
-			stopwordsAll.put(stopwords, PreProcessor.getStopwords(stopwords));
+			stopwordsAll.put(stopwords, new HashSet<>(PreProcessor.getStopwords(stopwords)));
 		}
 
-		edamBlacklist = Edam.getBlacklist();
-
 		if (!Files.isReadable(Paths.get(args.getProcessorArgs().getDb()))) {
 			logger.info("Init database: {}", args.getProcessorArgs().getDb());
 			Database.init(args.getProcessorArgs().getDb());
@@ -237,8 +346,31 @@ public final class Server {
 			idfStemmed = new Idf(args.getProcessorArgs().getIdfStemmed());
 		}
 
-		logger.info("Loading concepts from {}", args.getEdam());
-		concepts = Edam.load(args.getEdam());
+		if (args.getServerPrivateArgs().getMappingThreads() > 1) {
+			mappingPool = new ForkJoinPool(args.getServerPrivateArgs().getMappingThreads());
+		}
+
+		List<String> edamPaths = new ArrayList<>();
+		edamPaths.add(args.getEdam());
+		if (args.getServerPrivateArgs().getEdamVersions() != null) {
+			for (String edamPath : args.getServerPrivateArgs().getEdamVersions().split(",")) {
+				edamPath = edamPath.trim();
+				if (!edamPath.isEmpty()) {
+					edamPaths.add(edamPath);
+				}
+			}
+		}
+		for (String edamPath : edamPaths) {
+			EdamVersion edamVersion = loadEdam(edamPath);
+			if (edamVersions.putIfAbsent(edamVersion.getName(), edamVersion) != null) {
+				throw new IllegalArgumentException("EDAM version " + edamVersion.getName() + " given more than once (versions are named by file name)");
+			}
+		}
+		edam = edamVersions.get(EdamVersion.getName(args.getEdam()));
+
+		if (args.getServerPrivateArgs().isEdamWatch()) {
+			watchEdam(edamPaths);
+		}
 
 		run("org.edamontology.edammap.server", version, "edammap", args.getServerPrivateArgs(), args.getServerPrivateArgs().getPath(), args.getLog(), Resource::runGet, processor, logger);
 	}
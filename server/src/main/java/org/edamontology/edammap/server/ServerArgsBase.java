@@ -28,16 +28,23 @@ import org.edamontology.pubfetcher.core.common.Arg;
 import org.edamontology.pubfetcher.core.common.BasicArgs;
 import org.edamontology.pubfetcher.core.common.FetcherPrivateArgs;
 
+import org.edamontology.edammap.core.edam.EdamLoader;
 import org.edamontology.edammap.core.processing.ProcessorArgs;
 
 public abstract class ServerArgsBase extends BasicArgs {
 
-	private static final String edamId = "edam";
+	static final String edamId = "edam";
 	private static final String edamDescription = "Path of the EDAM ontology file";
 	private static final String edamDefault = null;
 	@Parameter(names = { "-e", "--" + edamId }, required = true, description = edamDescription)
 	private String edam;
 
+	private static final String edamLoaderId = "edamLoader";
+	private static final String edamLoaderDescription = "Library used to load the EDAM ontology file: owlapi (OWL API, supports all OWL formats) or stax (streaming, faster and using less memory, but supports only RDF/XML)";
+	private static final EdamLoader edamLoaderDefault = EdamLoader.owlapi;
+	@Parameter(names = { "--" + edamLoaderId }, description = edamLoaderDescription)
+	private EdamLoader edamLoader = edamLoaderDefault;
+
 	@ParametersDelegate
 	private ProcessorArgs processorArgs = new ProcessorArgs();
 
@@ -47,6 +54,7 @@ public abstract class ServerArgsBase extends BasicArgs {
 	@Override
 	protected void addArgs() {
 		args.add(new Arg<>(this::getEdamFilename, null, edamDefault, edamId, "Ontology file", edamDescription, null, "https://github.com/edamontology/edamontology/tree/master/releases"));
+		args.add(new Arg<>(this::getEdamLoader, null, edamLoaderDefault, edamLoaderId, "Ontology loader", edamLoaderDescription, EdamLoader.class));
 	}
 
 	@Override
@@ -61,6 +69,10 @@ public abstract class ServerArgsBase extends BasicArgs {
 		return new File(edam).getName();
 	}
 
+	public EdamLoader getEdamLoader() {
+		return edamLoader;
+	}
+
 	public ProcessorArgs getProcessorArgs() {
 		return processorArgs;
 	}
@@ -31,10 +31,24 @@ public class ServerPrivateArgs extends ServerPrivateArgsBase {
 	@Parameter(names = { "-p", "--" + pathId }, description = pathDescription)
 	private String path = pathDefault;
 
+	private static final String edamVersionsId = "edamVersions";
+	private static final String edamVersionsDescription = "Paths of additional EDAM ontology files, separated by commas. These versions are kept loaded alongside the main one given with --edam and can be chosen per query with the parameter \"edam\" set to the file name of the version.";
+	private static final String edamVersionsDefault = null;
+	@Parameter(names = { "--" + edamVersionsId }, description = edamVersionsDescription)
+	private String edamVersions = edamVersionsDefault;
+
+	private static final String edamWatchId = "edamWatch";
+	private static final String edamWatchDescription = "Watch the files of loaded EDAM versions and reload a version when its file is changed. Queries already running finish with the version they started with. If the reload fails, the previously loaded version is kept.";
+	private static final Boolean edamWatchDefault = false;
+	@Parameter(names = { "--" + edamWatchId }, arity = 1, description = edamWatchDescription)
+	private Boolean edamWatch = edamWatchDefault;
+
 	@Override
 	protected void addArgs() {
 		super.addArgs();
 		args.add(new Arg<>(this::getPath, null, pathDefault, pathId, "", pathDescription, null));
+		args.add(new Arg<>(this::getEdamVersions, null, edamVersionsDefault, edamVersionsId, "", edamVersionsDescription, null));
+		args.add(new Arg<>(this::isEdamWatch, null, edamWatchDefault, edamWatchId, "", edamWatchDescription, null));
 	}
 
 	@Override
@@ -45,4 +59,12 @@ public class ServerPrivateArgs extends ServerPrivateArgsBase {
 	public String getPath() {
 		return path;
 	}
+
+	public String getEdamVersions() {
+		return edamVersions;
+	}
+
+	public Boolean isEdamWatch() {
+		return edamWatch;
+	}
 }
@@ -53,12 +53,26 @@ public abstract class ServerPrivateArgsBase extends Args {
 	@Parameter(names = { "--" + fetchingThreadsId }, validateWith = PositiveInteger.class, description = fetchingThreadsDescription)
 	private Integer fetchingThreads = fetchingThreadsDefault;
 
+	private static final String mappingThreadsId = "mappingThreads";
+	private static final String mappingThreadsDescription = "How many threads to use (maximum) for scoring concepts against one query, shared by all queries, and for processing concepts. Results are the same as with one thread.";
+	private static final Integer mappingThreadsDefault = 1;
+	@Parameter(names = { "--" + mappingThreadsId }, validateWith = PositiveInteger.class, description = mappingThreadsDescription)
+	private Integer mappingThreads = mappingThreadsDefault;
+
+	private static final String conceptsCacheId = "conceptsCache";
+	private static final String conceptsCacheDescription = "How many sets of processed concepts to keep in memory for reuse by queries, one for each combination of preprocessing, IDF and multiplier parameters used. The set for default parameters is made at startup.";
+	private static final Integer conceptsCacheDefault = 8;
+	@Parameter(names = { "--" + conceptsCacheId }, validateWith = PositiveInteger.class, description = conceptsCacheDescription)
+	private Integer conceptsCache = conceptsCacheDefault;
+
 	@Override
 	protected void addArgs() {
 		args.add(new Arg<>(this::getBaseUri, null, baseUriDefault, baseUriId, "", baseUriDescription, null));
 		args.add(new Arg<>(this::isHttpsProxy, null, httpsProxyDefault, httpsProxyId, "", httpsProxyDescription, null));
 		args.add(new Arg<>(this::getFilesFilename, null, filesDefault, filesId, "", filesDescription, null));
 		args.add(new Arg<>(this::getFetchingThreads, null, 0, null, fetchingThreadsDefault, fetchingThreadsId, "", fetchingThreadsDescription, null));
+		args.add(new Arg<>(this::getMappingThreads, null, 0, null, mappingThreadsDefault, mappingThreadsId, "", mappingThreadsDescription, null));
+		args.add(new Arg<>(this::getConceptsCache, null, 0, null, conceptsCacheDefault, conceptsCacheId, "", conceptsCacheDescription, null));
 	}
 
 	@Override
@@ -84,4 +98,12 @@ public abstract class ServerPrivateArgsBase extends Args {
 	public Integer getFetchingThreads() {
 		return fetchingThreads;
 	}
+
+	public Integer getMappingThreads() {
+		return mappingThreads;
+	}
+
+	public Integer getConceptsCache() {
+		return conceptsCache;
+	}
 }
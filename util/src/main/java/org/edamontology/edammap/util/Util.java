@@ -25,9 +25,15 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -40,10 +46,16 @@ import org.edamontology.pubfetcher.core.common.PubFetcher;
 import org.edamontology.pubfetcher.core.common.Version;
 
 import org.edamontology.edammap.cli.CliArgs;
+import org.edamontology.edammap.core.edam.Concept;
+import org.edamontology.edammap.core.edam.Edam;
+import org.edamontology.edammap.core.edam.EdamSnapshot;
+import org.edamontology.edammap.core.edam.EdamUri;
 import org.edamontology.edammap.core.idf.Idf;
 import org.edamontology.edammap.core.input.BiotoolsFull;
 import org.edamontology.edammap.core.output.Report;
 import org.edamontology.edammap.core.preprocessing.PreProcessor;
+import org.edamontology.edammap.core.preprocessing.PreProcessorArgs;
+import org.edamontology.edammap.core.preprocessing.Tokeniser;
 import org.edamontology.edammap.core.processing.Processor;
 import org.edamontology.edammap.core.processing.ProcessorArgs;
 import org.edamontology.edammap.core.query.QueryLoader;
@@ -54,7 +66,7 @@ public final class Util {
 	private static final Logger logger = LogManager.getLogger();
 
 	private static void makeIdf(String queryPath, String database, String idfPath, UtilArgs args, boolean stemming) throws IOException, ParseException {
-		logger.info("Make {}stemmed query IDF from file {} of type {} to {}{}", stemming ? "" : "not ", queryPath, args.makeIdfType, idfPath, database != null ? " using database " + database : "");
+		logger.info("Make {}stemmed query IDF from file {} of type {} to {}{} with {} threads{}", stemming ? "" : "not ", queryPath, args.makeIdfType, idfPath, database != null ? " using database " + database : "", args.makeIdfThreads, args.makeIdfState != null ? " using state " + args.makeIdfState : "");
 
 		ProcessorArgs processorArgs = new ProcessorArgs();
 		processorArgs.setFetching(false);
@@ -66,12 +78,33 @@ public final class Util {
 		int idfs = processor.makeQueryIdf(QueryLoader.get(queryPath, args.makeIdfType,
 			args.fetcherArgs.getTimeout(), args.fetcherArgs.getPrivateArgs().getUserAgent()),
 			args.makeIdfType, idfPath, args.makeIdfWebpagesDocs, args.makeIdfFulltext,
-			new PreProcessor(stemming), null, args.fetcherArgs, true);
+			new PreProcessor(stemming), null, args.fetcherArgs, true, args.makeIdfThreads, args.makeIdfState);
 		logger.info("Wrote {} IDFs to {}", idfs, idfPath);
 
 		processor.closeDatabase();
 	}
 
+	private static void makeIdfBinary(String inputPath, String outputPath) throws IOException {
+		logger.info("Make binary IDF from {} to {}", inputPath, outputPath);
+		int idfs = Idf.makeBinary(inputPath, outputPath);
+		logger.info("Wrote {} IDFs to {}", idfs, outputPath);
+	}
+
+	private static void makeEdamSnapshot(String edamPath) throws IOException {
+		logger.info("Make EDAM snapshot of {} to {}", edamPath, EdamSnapshot.getPath(edamPath));
+		Map<EdamUri, Concept> concepts = Edam.loadOwl(edamPath);
+		for (boolean stemming : new boolean[] { false, true }) {
+			PreProcessorArgs preProcessorArgs = new PreProcessorArgs();
+			preProcessorArgs.setStemming(stemming);
+			PreProcessor preProcessor = new PreProcessor(preProcessorArgs);
+			for (Concept concept : concepts.values()) {
+				concept.putTokens(preProcessor.getArgsKey(), Processor.getConceptTokens(concept, preProcessor));
+			}
+		}
+		EdamSnapshot.write(edamPath, concepts);
+		logger.info("Wrote {} concepts to {}", concepts.size(), EdamSnapshot.getPath(edamPath));
+	}
+
 	private static void printIdfTop(String inputPath, long n) throws IOException {
 		new Idf(inputPath, true).getTop().stream()
 			.limit(n).forEach(e -> System.out.println(e.getTerm() + "\t" + e.getCount()));
@@ -84,6 +117,67 @@ public final class Util {
 		}
 	}
 
+	private static PreProcessor comparePreProcessor(Tokeniser tokeniser) {
+		PreProcessorArgs preProcessorArgs = new PreProcessorArgs();
+		preProcessorArgs.setTokeniser(tokeniser);
+		preProcessorArgs.setStemming(false);
+		return new PreProcessor(preProcessorArgs, Collections.emptySet());
+	}
+
+	private static void compareTokenisers(List<String> inputPaths) throws IOException {
+		PreProcessor regex = comparePreProcessor(Tokeniser.regex);
+		PreProcessor singlePass = comparePreProcessor(Tokeniser.single_pass);
+
+		long compared = 0;
+		long mismatches = 0;
+		for (String inputPath : inputPaths) {
+			logger.info("Comparing tokenisers on {}", inputPath);
+			String content = new String(Files.readAllBytes(Paths.get(inputPath)), StandardCharsets.UTF_8);
+
+			List<String> inputs = new ArrayList<>();
+			inputs.add(content);
+			inputs.addAll(Arrays.asList(content.split("\n")));
+			inputs.addAll(regex.sentences(content));
+
+			for (String input : inputs) {
+				List<String> regexTokens = regex.process(input);
+				List<String> singlePassTokens = singlePass.process(input);
+				if (!regexTokens.equals(singlePassTokens)) {
+					System.out.println(input + "\t" + regexTokens + "\t" + singlePassTokens);
+					++mismatches;
+				}
+				++compared;
+			}
+		}
+		logger.info("Compared tokenisers on {} inputs, found {} mismatches", compared, mismatches);
+	}
+
+	private static void compareEdamLoaders(List<String> edamPaths) throws IOException {
+		for (String edamPath : edamPaths) {
+			logger.info("Comparing EDAM loaders on {}", edamPath);
+			Map<EdamUri, Concept> owlapi = Edam.loadOwl(edamPath);
+			Map<EdamUri, Concept> stax = Edam.loadStax(edamPath);
+
+			long mismatches = 0;
+			Set<EdamUri> edamUris = new LinkedHashSet<>(owlapi.keySet());
+			edamUris.addAll(stax.keySet());
+			for (EdamUri edamUri : edamUris) {
+				Concept owlapiConcept = owlapi.get(edamUri);
+				Concept staxConcept = stax.get(edamUri);
+				String owlapiString = (owlapiConcept != null ? owlapiConcept.toString() : "MISSING\n");
+				String staxString = (staxConcept != null ? staxConcept.toString() : "MISSING\n");
+				if (!owlapiString.equals(staxString)) {
+					System.out.println(edamUri + "\nowlapi:\n" + owlapiString + "stax:\n" + staxString);
+					++mismatches;
+				}
+			}
+			if (!new ArrayList<>(owlapi.keySet()).equals(new ArrayList<>(stax.keySet()))) {
+				System.out.println("Order of concepts differs in " + edamPath);
+			}
+			logger.info("Compared {} concepts of {}, found {} mismatches", edamUris.size(), edamPath, mismatches);
+		}
+	}
+
 	private static void makeServerFiles(String outputPath, Version version) throws IOException {
 		logger.info("Copying server CSS, JS and fonts to {}", outputPath);
 		Path path = PubFetcher.outputPath(outputPath, true, false);
@@ -233,6 +327,14 @@ public final class Util {
 			makeIdf(args.makeIdfStemmedNoDb.get(0), null, args.makeIdfStemmedNoDb.get(1), args, true);
 		}
 
+		if (args.makeIdfBinary != null) {
+			makeIdfBinary(args.makeIdfBinary.get(0), args.makeIdfBinary.get(1));
+		}
+
+		if (args.makeEdamSnapshot != null) {
+			makeEdamSnapshot(args.makeEdamSnapshot);
+		}
+
 		if (args.printIdfTop != null) {
 			printIdfTop(args.printIdfTop.get(0), Long.parseLong(args.printIdfTop.get(1)));
 		}
@@ -245,6 +347,14 @@ public final class Util {
 			printIdf(idfPath, args.printIdfStemmed, true);
 		}
 
+		if (args.compareTokenisers != null) {
+			compareTokenisers(args.compareTokenisers);
+		}
+
+		if (args.compareEdamLoaders != null) {
+			compareEdamLoaders(args.compareEdamLoaders);
+		}
+
 		if (args.biotoolsFull != null) {
 			BiotoolsFull.get(args.biotoolsFull, args.fetcherArgs.getTimeout(), args.fetcherArgs.getPrivateArgs().getUserAgent(), false, false);
 		}
@@ -27,6 +27,7 @@ import com.beust.jcommander.ParametersDelegate;
 import org.edamontology.pubfetcher.cli.PubFetcherArgs;
 import org.edamontology.pubfetcher.core.common.BasicArgs;
 import org.edamontology.pubfetcher.core.common.FetcherArgs;
+import org.edamontology.pubfetcher.core.common.PositiveInteger;
 
 import org.edamontology.edammap.core.query.QueryType;
 
@@ -68,6 +69,18 @@ public class UtilArgs extends BasicArgs {
 	@Parameter(names = { "--make-idf-fulltext", "--make-query-idf-fulltext" }, arity = 1, description = "Whether tokens from publication fulltext will also be used to make the IDF file with -make-idf or -make-idf-stemmed")
 	boolean makeIdfFulltext = true;
 
+	@Parameter(names = { "--make-idf-threads", "--make-query-idf-threads" }, validateWith = PositiveInteger.class, description = "How many threads to use for making the IDF file with -make-idf, -make-idf-nodb, -make-idf-stemmed or -make-idf-stemmed-nodb (one thread processes one query at a time). The output does not depend on the number of threads.")
+	int makeIdfThreads = 1;
+
+	@Parameter(names = { "--make-idf-state", "--make-query-idf-state" }, description = "State file for updating the IDF file incrementally with -make-idf, -make-idf-nodb, -make-idf-stemmed or -make-idf-stemmed-nodb. For each query (by ID), the state contains a fingerprint of its content (including content loaded from the database) and the set of its terms. Only queries that are new or whose content has changed since the state was written are processed again, terms of other queries are taken from the state, and terms of queries no longer present are dropped. The IDF file is rewritten and is the same as when made from scratch. If the state file does not exist or was made with different preprocessing, then all queries are processed. The state file is updated after the IDF file is made.")
+	String makeIdfState = null;
+
+	@Parameter(names = { "-make-idf-binary", "-make-query-idf-binary" }, arity = 2, description = "Argument order: idfPath, binaryIdfPath. Convert the specified IDF file to binary format, which can be used everywhere in place of the IDF file. Opening an IDF file in binary format is faster and its terms are not loaded to memory (as the file is memory-mapped).")
+	List<String> makeIdfBinary = null;
+
+	@Parameter(names = { "-make-edam-snapshot" }, description = "Make a binary snapshot of the specified EDAM ontology file, saved next to it (with the extension .snapshot added). It contains the concepts loaded from the EDAM file and their tokens preprocessed with default preprocessing parameters, with and without stemming. If the snapshot is present, then EDAM will be loaded from the snapshot instead of the EDAM file, if the EDAM file has not changed after the snapshot was made. With the same preprocessing parameters, the concepts will then also not be preprocessed again.")
+	String makeEdamSnapshot = null;
+
 	@Parameter(names = { "-print-idf-top", "-print-query-idf-top" }, arity = 2, description = "Argument order: idfPath, n. Print top n most frequent terms from the specified IDF file along with their counts (that show in how many documents a term occurs)")
 	List<String> printIdfTop = null;
 
@@ -77,6 +90,12 @@ public class UtilArgs extends BasicArgs {
 	@Parameter(names = { "-print-idf-stemmed", "-print-query-idf-stemmed" }, variableArity = true, description = "Argument order: idfPath, term, term, ... Print given terms along with their IDF scores (between 0 and 1) read from the given IDF file. Given terms are preprocessed, with stemming being done, thus terms in the given IDF file must also be stemmed.")
 	List<String> printIdfStemmed = null;
 
+	@Parameter(names = { "-compare-tokenisers" }, variableArity = true, description = "Tokenise each line, each sentence and the whole content of the specified text files with both tokenisers (regex and single_pass) and print all inputs for which the tokens differ, along with the tokens from both tokenisers. Stopwords removal and stemming are not done.")
+	List<String> compareTokenisers = null;
+
+	@Parameter(names = { "-compare-edam-loaders" }, variableArity = true, description = "Load each of the specified EDAM ontology files (in RDF/XML) with both loaders (owlapi and stax) and print all concepts that differ, along with the concept from both loaders. Differences in the order of concepts are also reported.")
+	List<String> compareEdamLoaders = null;
+
 	@Parameter(names = { "-biotools-full" }, description = "Fetch all content (by following \"next\" until the last page) from https://bio.tools/api/tool to the specified JSON file. Fetching parameters --timeout and --userAgent can be used.")
 	String biotoolsFull = null;
 